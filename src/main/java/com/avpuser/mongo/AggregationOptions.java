@@ -0,0 +1,92 @@
+package com.avpuser.mongo;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.DistinctIterable;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cursor tuning for the streaming aggregation and distinct reads of {@link CommonDao}. Immutable;
+ * start from {@link #defaults()} and derive variants with the {@code with...} methods.
+ * <ul>
+ *     <li>{@code batchSize} - documents per {@code getMore} round trip; {@code null} keeps the driver default.</li>
+ *     <li>{@code allowDiskUse} - lets blocking stages such as {@code $group} and {@code $sort} spill to
+ *     disk instead of failing at the 100 MB memory limit. Not applicable to {@code distinct}.</li>
+ *     <li>{@code maxTime} - server-side time limit for the command; {@code null} means no limit.</li>
+ *     <li>{@code readOptions} - read preference and read concern, e.g. to run reports on a secondary.</li>
+ * </ul>
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class AggregationOptions {
+
+    private static final AggregationOptions DEFAULTS = new AggregationOptions(null, false, null, ReadOptions.defaults());
+
+    private final Integer batchSize;
+
+    private final boolean allowDiskUse;
+
+    private final Duration maxTime;
+
+    private final ReadOptions readOptions;
+
+    private AggregationOptions(Integer batchSize, boolean allowDiskUse, Duration maxTime, ReadOptions readOptions) {
+        if (batchSize != null && batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be > 0");
+        }
+        this.batchSize = batchSize;
+        this.allowDiskUse = allowDiskUse;
+        this.maxTime = maxTime;
+        this.readOptions = readOptions != null ? readOptions : ReadOptions.defaults();
+    }
+
+    public static AggregationOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public AggregationOptions withBatchSize(int batchSize) {
+        return new AggregationOptions(batchSize, allowDiskUse, maxTime, readOptions);
+    }
+
+    public AggregationOptions withAllowDiskUse(boolean allowDiskUse) {
+        return new AggregationOptions(batchSize, allowDiskUse, maxTime, readOptions);
+    }
+
+    public AggregationOptions withMaxTime(Duration maxTime) {
+        return new AggregationOptions(batchSize, allowDiskUse, maxTime, readOptions);
+    }
+
+    public AggregationOptions withReadOptions(ReadOptions readOptions) {
+        return new AggregationOptions(batchSize, allowDiskUse, maxTime, readOptions);
+    }
+
+    <R> AggregateIterable<R> applyTo(AggregateIterable<R> aggregation) {
+        AggregateIterable<R> result = aggregation;
+        if (batchSize != null) {
+            result = result.batchSize(batchSize);
+        }
+        if (allowDiskUse) {
+            result = result.allowDiskUse(true);
+        }
+        if (maxTime != null) {
+            result = result.maxTime(maxTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    <R> DistinctIterable<R> applyTo(DistinctIterable<R> distinct) {
+        DistinctIterable<R> result = distinct;
+        if (batchSize != null) {
+            result = result.batchSize(batchSize);
+        }
+        if (maxTime != null) {
+            result = result.maxTime(maxTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package com.avpuser.mongo;
+
+import com.mongodb.client.result.DeleteResult;
+import org.bson.conversions.Bson;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Asynchronous facade over a {@link CommonDao}: each method runs the corresponding blocking DAO
+ * call on an executor and returns a {@link CompletableFuture}, so independent reads can be issued
+ * together instead of one after another, e.g.
+ * <pre>{@code
+ * CompletableFuture<Optional<User>> user = users.findById(userId);
+ * CompletableFuture<List<Order>> orders = this.orders.findBySpecification(new OrdersOfUser(userId));
+ * CompletableFuture.allOf(user, orders).join();
+ * }</pre>
+ * Nothing is reimplemented: measurement, caching, encryption and versioning are those of the DAO.
+ * A DAO exception completes the future exceptionally with that same exception, i.e. it is the
+ * cause of the {@link java.util.concurrent.ExecutionException} or
+ * {@link java.util.concurrent.CompletionException} thrown by {@code get()} / {@code join()}.
+ * <p>
+ * Cursor-backed streams are not offered: a cursor should be consumed and closed by the thread that
+ * opened it. Use {@link #call(Function)} for any DAO method without an async counterpart.
+ * <p>
+ * By default calls run on {@link #defaultExecutor()}, one virtual thread per call, which suits
+ * the blocking driver; the number of concurrent operations is then bounded by the driver's
+ * connection pool rather than by a thread pool.
+ */
+public class AsyncCommonDao<T extends DbEntity> {
+
+    private final CommonDao<T> dao;
+    private final Executor executor;
+
+    public AsyncCommonDao(CommonDao<T> dao) {
+        this(dao, defaultExecutor());
+    }
+
+    public AsyncCommonDao(CommonDao<T> dao, Executor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    /**
+     * Shared executor starting one virtual thread per call; never needs to be shut down. It is the
+     * executor {@link CommonDao} itself uses for concurrent reads.
+     */
+    public static Executor defaultExecutor() {
+        return CommonDao.virtualThreadExecutor();
+    }
+
+    public final CommonDao<T> getDao() {
+        return dao;
+    }
+
+    /** Runs any operation of the wrapped DAO asynchronously. */
+    public final <R> CompletableFuture<R> call(Function<CommonDao<T>, R> operation) {
+        return CompletableFuture.supplyAsync(() -> operation.apply(dao), executor);
+    }
+
+    public CompletableFuture<String> insert(T entity) {
+        return call(dao -> dao.insert(entity));
+    }
+
+    public CompletableFuture<BulkInsertResult> insertAll(Collection<T> entities) {
+        return call(dao -> dao.insertAll(entities));
+    }
+
+    public CompletableFuture<Void> update(T entity) {
+        return call(dao -> {
+            dao.update(entity);
+            return null;
+        });
+    }
+
+    public CompletableFuture<BulkUpdateResult> updateAll(Collection<T> entities) {
+        return call(dao -> dao.updateAll(entities));
+    }
+
+    public CompletableFuture<Long> updateFields(String id, long expectedVersion, PartialUpdate update) {
+        return call(dao -> dao.updateFields(id, expectedVersion, update));
+    }
+
+    public CompletableFuture<T> findOneAndUpdate(String id, long expectedVersion, PartialUpdate update) {
+        return call(dao -> dao.findOneAndUpdate(id, expectedVersion, update));
+    }
+
+    public CompletableFuture<Void> upsert(T entity) {
+        return call(dao -> {
+            dao.upsert(entity);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Optional<T>> findById(String id) {
+        return call(dao -> dao.findById(id));
+    }
+
+    public CompletableFuture<T> findByIdOrThrow(String id) {
+        return call(dao -> dao.findByIdOrThrow(id));
+    }
+
+    public CompletableFuture<List<T>> findByIds(List<String> ids) {
+        return call(dao -> dao.findByIds(ids));
+    }
+
+    public CompletableFuture<FindByIdsResult<T>> findByIdsInOrder(List<String> ids) {
+        return call(dao -> dao.findByIdsInOrder(ids));
+    }
+
+    public CompletableFuture<Boolean> existsById(String id) {
+        return call(dao -> dao.existsById(id));
+    }
+
+    public CompletableFuture<List<T>> findBySpecification(LimitSpecification specification) {
+        return call(dao -> dao.findBySpecification(specification));
+    }
+
+    public CompletableFuture<List<T>> findBySpecification(LimitSpecification specification, Projection projection) {
+        return call(dao -> dao.findBySpecification(specification, projection));
+    }
+
+    public CompletableFuture<Optional<T>> findSingleBySpecification(LimitSpecification specification) {
+        return call(dao -> dao.findSingleBySpecification(specification));
+    }
+
+    public CompletableFuture<KeysetPage<T>> findPageBySpecification(KeysetSpecification specification,
+                                                                    String continuationToken) {
+        return call(dao -> dao.findPageBySpecification(specification, continuationToken));
+    }
+
+    public CompletableFuture<Long> countBySpecification(LimitSpecification specification) {
+        return call(dao -> dao.countBySpecification(specification));
+    }
+
+    public CompletableFuture<Boolean> existsBySpecification(LimitSpecification specification) {
+        return call(dao -> dao.existsBySpecification(specification));
+    }
+
+    public CompletableFuture<Long> count() {
+        return call(CommonDao::count);
+    }
+
+    public CompletableFuture<Long> estimatedCount() {
+        return call(CommonDao::estimatedCount);
+    }
+
+    public CompletableFuture<Boolean> deleteById(String id) {
+        return call(dao -> dao.deleteById(id));
+    }
+
+    public CompletableFuture<DeleteResult> deleteBySpecification(LimitSpecification specification) {
+        return call(dao -> dao.deleteBySpecification(specification));
+    }
+
+    public <R> CompletableFuture<List<R>> distinct(String fieldName, Bson filter, Class<R> resultClass) {
+        return call(dao -> dao.distinct(fieldName, filter, resultClass));
+    }
+
+    public <R> CompletableFuture<List<R>> runAggregation(List<Bson> pipeline, Class<R> resultClass) {
+        return call(dao -> dao.runAggregation(pipeline, resultClass));
+    }
+}
@@ -0,0 +1,119 @@
+package com.avpuser.mongo;
+
+import org.bson.conversions.Bson;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Asynchronous facade over a {@link CommonManager}, with the same semantics as
+ * {@link AsyncCommonDao}. Calls go through the manager, so overridden methods keep their domain
+ * logic; methods a subclass adds are reached through {@link #call(Function)}, which sees the
+ * concrete manager type {@code M}:
+ * <pre>{@code
+ * AsyncCommonManager<User, UserManager> users = new AsyncCommonManager<>(userManager);
+ * CompletableFuture<Optional<User>> byEmail = users.call(m -> m.findByEmail(email));
+ * }</pre>
+ */
+public class AsyncCommonManager<T extends DbEntity, M extends CommonManager<T>> {
+
+    private final M manager;
+    private final Executor executor;
+
+    public AsyncCommonManager(M manager) {
+        this(manager, AsyncCommonDao.defaultExecutor());
+    }
+
+    public AsyncCommonManager(M manager, Executor executor) {
+        this.manager = manager;
+        this.executor = executor;
+    }
+
+    public final M getManager() {
+        return manager;
+    }
+
+    /** Runs any operation of the wrapped manager asynchronously. */
+    public final <R> CompletableFuture<R> call(Function<M, R> operation) {
+        return CompletableFuture.supplyAsync(() -> operation.apply(manager), executor);
+    }
+
+    public CompletableFuture<String> insert(T entity) {
+        return call(manager -> manager.insert(entity));
+    }
+
+    public CompletableFuture<BulkInsertResult> insertAll(Collection<T> entities) {
+        return call(manager -> manager.insertAll(entities));
+    }
+
+    public CompletableFuture<Void> update(T entity) {
+        return call(manager -> {
+            manager.update(entity);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Long> updateFields(String id, long expectedVersion, PartialUpdate update) {
+        return call(manager -> manager.updateFields(id, expectedVersion, update));
+    }
+
+    public CompletableFuture<Void> upsert(T entity) {
+        return call(manager -> {
+            manager.upsert(entity);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Optional<T>> findById(String id) {
+        return call(manager -> manager.findById(id));
+    }
+
+    public CompletableFuture<T> findByIdOrThrow(String id) {
+        return call(manager -> manager.findByIdOrThrow(id));
+    }
+
+    public CompletableFuture<List<T>> findByIds(List<String> ids) {
+        return call(manager -> manager.findByIds(ids));
+    }
+
+    public CompletableFuture<Boolean> existsById(String id) {
+        return call(manager -> manager.existsById(id));
+    }
+
+    public CompletableFuture<List<T>> findBySpecification(LimitSpecification specification) {
+        return call(manager -> manager.findBySpecification(specification));
+    }
+
+    public CompletableFuture<Optional<T>> findSingleBySpecification(LimitSpecification specification) {
+        return call(manager -> manager.findSingleBySpecification(specification));
+    }
+
+    public CompletableFuture<KeysetPage<T>> findPageBySpecification(KeysetSpecification specification,
+                                                                    String continuationToken) {
+        return call(manager -> manager.findPageBySpecification(specification, continuationToken));
+    }
+
+    public CompletableFuture<Long> countBySpecification(LimitSpecification specification) {
+        return call(manager -> manager.countBySpecification(specification));
+    }
+
+    public CompletableFuture<Boolean> existsBySpecification(LimitSpecification specification) {
+        return call(manager -> manager.existsBySpecification(specification));
+    }
+
+    public CompletableFuture<Long> count() {
+        return call(CommonManager::count);
+    }
+
+    public CompletableFuture<Boolean> deleteById(String id) {
+        return call(manager -> manager.deleteById(id));
+    }
+
+    public <R> CompletableFuture<List<R>> runAggregation(List<Bson> pipeline, Class<R> resultClass) {
+        return call(manager -> manager.runAggregation(pipeline, resultClass));
+    }
+}
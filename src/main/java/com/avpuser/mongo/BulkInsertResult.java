@@ -0,0 +1,26 @@
+package com.avpuser.mongo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of {@link CommonDao#insertAll}: ids of the entities that were written and ids of the
+ * entities rejected because a document with the same key already exists.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class BulkInsertResult {
+
+    private final List<String> insertedIds = new ArrayList<>();
+
+    private final List<String> duplicateIds = new ArrayList<>();
+
+    public boolean hasDuplicates() {
+        return !duplicateIds.isEmpty();
+    }
+}
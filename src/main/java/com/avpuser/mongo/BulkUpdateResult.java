@@ -0,0 +1,34 @@
+package com.avpuser.mongo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of {@link CommonDao#updateAll}, per entity id: written, rejected because the stored
+ * version no longer matches, or rejected because no document with that id exists.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class BulkUpdateResult {
+
+    private final List<String> updatedIds = new ArrayList<>();
+
+    private final List<String> conflictedIds = new ArrayList<>();
+
+    private final List<String> missingIds = new ArrayList<>();
+
+    public boolean isFullySuccessful() {
+        return conflictedIds.isEmpty() && missingIds.isEmpty();
+    }
+
+    public void addAll(BulkUpdateResult other) {
+        updatedIds.addAll(other.updatedIds);
+        conflictedIds.addAll(other.conflictedIds);
+        missingIds.addAll(other.missingIds);
+    }
+}
@@ -1,51 +1,157 @@
 package com.avpuser.mongo;
 
+import com.avpuser.mongo.cache.BoundedTtlCache;
+import com.avpuser.mongo.cache.CacheStats;
+import com.avpuser.mongo.cache.EntityCache;
+import com.avpuser.mongo.cache.JacksonEntityCopier;
+import com.avpuser.mongo.cache.SpecificationResultCache;
+import com.avpuser.mongo.encryption.Encrypted;
 import com.avpuser.mongo.encryption.EncryptedFieldIntrospector;
 import com.avpuser.mongo.encryption.PiiEncryptionService;
 import com.avpuser.mongo.encryption.exception.PiiEncryptionConfigException;
 import com.avpuser.mongo.exception.DuplicateKeyException;
 import com.avpuser.mongo.exception.EntityNotFoundException;
 import com.avpuser.mongo.exception.VersionConflictException;
+import com.avpuser.mongo.explain.ExplainOptions;
+import com.avpuser.mongo.explain.ExplainPlanSummary;
+import com.avpuser.mongo.explain.ExplainRegistry;
+import com.avpuser.mongo.explain.QueryShape;
+import com.avpuser.mongo.metrics.DaoMetricsSink;
+import com.avpuser.mongo.typeconverter.EntityCodec;
+import com.avpuser.mongo.typeconverter.JacksonBsonConverter;
 import com.avpuser.mongo.typeconverter.MongoObjectMapperFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mongodb.ErrorCategory;
+import com.mongodb.ExplainVerbosity;
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
 import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Collation;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.Document;
 import org.bson.UuidRepresentation;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.mongojack.JacksonMongoCollection;
 import org.mongojack.MongoCollection;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class CommonDao<T extends DbEntity> {
 
-    private static final long LONG_QUERY_THRESHOLD_MS = 500;
+    private static final long DEFAULT_SLOW_QUERY_THRESHOLD_MS = 500;
+
+    public static final int DEFAULT_INSERT_BATCH_SIZE = 1000;
+
+    public static final int DEFAULT_FIND_BY_IDS_CHUNK_SIZE = 500;
+
+    public static final int DEFAULT_FIND_BY_IDS_PARALLELISM = 4;
+
+    private static final int ID_SAMPLES_PER_RANGE = 20;
+
+    private static final int RANGES_PER_THREAD = 4;
+
+    private static final int MAX_CONCURRENT_SLOW_QUERY_EXPLAINS = 2;
 
     private final static Logger logger = LogManager.getLogger(CommonDao.class);
 
+    // one virtual thread per task, shared by every DAO; never needs to be shut down
+    private static final ExecutorService VIRTUAL_THREAD_EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("mongo-dao-", 0).factory());
+
     protected final JacksonMongoCollection<T> mongoCollection;
     protected final MongoDatabase database;
 
+    /** The same collection without the Jackson codec, for raw {@link Document} aggregations. */
+    private final com.mongodb.client.MongoCollection<Document> rawCollection;
+
     private final Class<T> type;
     private final Clock clock;
     private final String dbEntityName;
+    private final ObjectMapper objectMapper;
+    private final PiiEncryptionService encryptionService;
+
+    /** The entity collection encoded with {@link EntityCodec}; {@code null} unless the direct codec is enabled. */
+    private volatile com.mongodb.client.MongoCollection<T> codecCollection;
+
+    /** BSON type {@code _id}s are stored as, learned by {@link #storedIdOf}; {@code null} until then. */
+    private volatile BsonType storedIdType;
+
+    private volatile EntityCache<T> entityCache;
+
+    private volatile BoundedTtlCache<String, Long> countCache;
+    private final AtomicLong countCacheGeneration = new AtomicLong();
+    private final Map<Class<? extends LimitSpecification>, SpecificationResultCache<T>> specificationCaches =
+            new ConcurrentHashMap<>();
+    private volatile boolean estimatedUnfilteredCount;
+
+    private volatile DaoMetricsSink metricsSink = DaoMetricsSink.NOOP;
+    private volatile long slowQueryThresholdMs = DEFAULT_SLOW_QUERY_THRESHOLD_MS;
+
+    private volatile ExplainOptions explainOptions;
+    private volatile ExplainRegistry explainRegistry;
+    private final Semaphore slowQueryExplains = new Semaphore(MAX_CONCURRENT_SLOW_QUERY_EXPLAINS);
 
     /**
      * @throws PiiEncryptionConfigException if {@code type} declares any {@code @Encrypted} field -
@@ -80,10 +186,13 @@ public class CommonDao<T extends DbEntity> {
         this.clock = clock;
         this.dbEntityName = type.getSimpleName();
 
-        ObjectMapper objectMapper = MongoObjectMapperFactory.createObjectMapper(encryptionService);
+        this.encryptionService = encryptionService;
+        this.objectMapper = MongoObjectMapperFactory.sharedObjectMapper(encryptionService);
+        MongoObjectMapperFactory.warmUp(objectMapper, List.of(type));
         this.mongoCollection = JacksonMongoCollection.builder()
                 .withObjectMapper(objectMapper)
                 .build(database, type, UuidRepresentation.STANDARD);
+        this.rawCollection = database.getCollection(getCollectionName());
     }
 
     public final Class<T> getType() {
@@ -99,27 +208,300 @@ public class CommonDao<T extends DbEntity> {
         return ann != null ? ann.name() : type.getSimpleName();
     }
 
+    /**
+     * Puts a size- and TTL-bounded read-through cache in front of {@link #findById(String)} and
+     * {@link #findByIds(List)}. Writes through this DAO ({@code update}, {@code updateAll},
+     * {@code deleteById}, {@code deleteBySpecification}, {@code deleteAll}) invalidate it, and a
+     * read that races with such a write is never cached; see {@link EntityCache}. Writes made by
+     * other processes are not seen until the entry expires, unless a
+     * {@link com.avpuser.mongo.cache.ChangeStreamCacheInvalidator} is running.
+     * Cached entities are copies: mutating a returned entity does not affect the cache.
+     */
+    public final void enableEntityCache(int maxSize, Duration ttl) {
+        ObjectMapper copyMapper = MongoObjectMapperFactory.sharedObjectMapper(null);
+        this.entityCache = new EntityCache<>(maxSize, ttl, new JacksonEntityCopier<>(copyMapper, type));
+        logger.info("Entity cache enabled for {}. maxSize={}, ttl={}", dbEntityName, maxSize, ttl);
+    }
+
+    /** Hit/miss/eviction counters of the entity cache, or empty if it is not enabled. */
+    public final Optional<CacheStats> getEntityCacheStats() {
+        EntityCache<T> cache = entityCache;
+        return cache == null ? Optional.empty() : Optional.of(cache.stats());
+    }
+
+    /**
+     * Caches the results of {@link #findBySpecification(LimitSpecification)} (and so of
+     * {@code findSingleBySpecification}) for specifications of exactly this class, keyed by the
+     * specification's {@code equals}/{@code hashCode}, for up to {@code ttl}. Any write through this
+     * DAO, inserts included, clears the results of every specification class. Writes of other
+     * processes are seen once an entry expires; updates and deletes earlier, if a
+     * {@link com.avpuser.mongo.cache.ChangeStreamCacheInvalidator} is running.
+     * Cached entities are copies, as in {@link #enableEntityCache(int, Duration)}.
+     */
+    public final void enableSpecificationCache(Class<? extends LimitSpecification> specificationClass,
+                                               int maxSize, Duration ttl) {
+        ObjectMapper copyMapper = MongoObjectMapperFactory.sharedObjectMapper(null);
+        specificationCaches.put(specificationClass,
+                new SpecificationResultCache<>(maxSize, ttl, new JacksonEntityCopier<>(copyMapper, type)));
+        logger.info("Specification cache enabled for {} by {}. maxSize={}, ttl={}", dbEntityName,
+                specificationClass.getSimpleName(), maxSize, ttl);
+    }
+
+    /** Hit/miss/eviction counters of the result cache of each specification class it is enabled for. */
+    public final Map<Class<? extends LimitSpecification>, CacheStats> getSpecificationCacheStats() {
+        Map<Class<? extends LimitSpecification>, CacheStats> stats = new HashMap<>();
+        specificationCaches.forEach((specificationClass, cache) -> stats.put(specificationClass, cache.stats()));
+        return stats;
+    }
+
+    /** Whether any in-process cache is enabled, i.e. whether writes of other nodes need to invalidate it. */
+    public final boolean hasLocalCache() {
+        return entityCache != null || !specificationCaches.isEmpty();
+    }
+
+    /** Drops the cached entity with this id, if any; for invalidation driven from outside this DAO. */
+    public final void invalidateCachedEntity(String id) {
+        afterEntityWrite(id);
+    }
+
+    /** Drops every cached entity of this DAO; for invalidation driven from outside this DAO. */
+    public final void invalidateCachedEntities() {
+        afterCollectionWrite();
+    }
+
+    private void afterEntityWrite(String id) {
+        EntityCache<T> cache = entityCache;
+        if (cache != null) {
+            cache.invalidate(id);
+        }
+        invalidateQueryCaches();
+    }
+
+    private void afterCollectionWrite() {
+        EntityCache<T> cache = entityCache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        invalidateQueryCaches();
+    }
+
+    /** Any write, including an insert, may change any cached count or specification result. */
+    private void invalidateQueryCaches() {
+        BoundedTtlCache<String, Long> cache = countCache;
+        if (cache != null) {
+            synchronized (cache) {
+                countCacheGeneration.incrementAndGet();
+                cache.clear();
+            }
+        }
+        specificationCaches.values().forEach(SpecificationResultCache::invalidateAll);
+    }
+
+    /**
+     * Caches the results of {@link #count()} and {@link #countBySpecification(LimitSpecification)}
+     * per filter and read options for up to {@code ttl}, for dashboards that poll the same counts.
+     * Writes through this DAO clear the cache; writes of other processes are only seen once an
+     * entry expires, so cached counts are approximate by up to {@code ttl}.
+     */
+    public final void enableCountCache(int maxSize, Duration ttl) {
+        this.countCache = new BoundedTtlCache<>(maxSize, ttl);
+        logger.info("Count cache enabled for {}. maxSize={}, ttl={}", dbEntityName, maxSize, ttl);
+    }
+
+    /** Hit/miss/eviction counters of the count cache, or empty if it is not enabled. */
+    public final Optional<CacheStats> getCountCacheStats() {
+        BoundedTtlCache<String, Long> cache = countCache;
+        return cache == null ? Optional.empty() : Optional.of(cache.stats());
+    }
+
+    /**
+     * Makes {@link #count()} return {@link #estimatedCount()} instead of counting documents.
+     * The estimate comes from collection metadata and may drift after an unclean shutdown or,
+     * on sharded clusters, include orphaned documents.
+     */
+    public final void enableEstimatedUnfilteredCount() {
+        this.estimatedUnfilteredCount = true;
+    }
+
+    /**
+     * Switches entity reads and writes (finds, streams, insert, update, upsert) from MongoJack's
+     * Jackson-to-BSON bridge to an {@link EntityCodec}, which encodes and decodes the entity
+     * directly against the BSON stream and stores the same document. Filters, aggregations,
+     * distinct and projections to view classes keep using Jackson. Call once, at startup.
+     *
+     * @throws org.bson.codecs.configuration.CodecConfigurationException if the entity uses Jackson
+     *                                                                    features the codec cannot reproduce
+     */
+    public final void enableDirectCodec() {
+        EntityCodec<T> codec = EntityCodec.create(type, objectMapper, encryptionService);
+        CodecRegistry registry = CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(codec), mongoCollection.getCodecRegistry());
+        this.codecCollection = database.getCollection(getCollectionName(), type).withCodecRegistry(registry);
+        logger.info("Direct BSON codec enabled for {}", dbEntityName);
+    }
+
+    /** The collection entities are encoded and decoded through: the direct codec one if enabled. */
+    private com.mongodb.client.MongoCollection<T> entityCollection() {
+        com.mongodb.client.MongoCollection<T> codec = codecCollection;
+        return codec != null ? codec : mongoCollection;
+    }
+
+    /**
+     * Reports latency, result count and failure of every measured operation of this DAO to
+     * {@code sink}, tagged with the entity name and operation name.
+     */
+    public final void enableMetrics(DaoMetricsSink sink) {
+        this.metricsSink = sink != null ? sink : DaoMetricsSink.NOOP;
+    }
+
+    /** Operations slower than this are logged at WARN as LONG QUERY; 500 ms unless set. */
+    public final void setSlowQueryThreshold(Duration threshold) {
+        if (threshold.isNegative()) {
+            throw new IllegalArgumentException("Slow query threshold must not be negative: " + threshold);
+        }
+        this.slowQueryThresholdMs = threshold.toMillis();
+    }
+
+    /**
+     * Captures {@code explain("executionStats")} plans of {@code findBySpecification},
+     * {@code findWithBsonFilterAndSort} and {@code countWithBsonFilter} into {@code registry},
+     * as selected by {@code options}. Plans with a COLLSCAN or in-memory SORT stage are also
+     * logged at WARN.
+     * <p>
+     * Explaining re-executes the query, so it never runs on the caller's thread: the decision
+     * whether to explain is taken inline, the explain itself runs afterwards on
+     * {@link #virtualThreadExecutor()} and the caller gets its result without waiting for it. At most
+     * {@value #MAX_CONCURRENT_SLOW_QUERY_EXPLAINS} slow-query explains of a DAO run at a time;
+     * a sampled slow query beyond that is not explained, so a slow server does not also get a
+     * growing backlog of explains.
+     */
+    public final void enableExplainCapture(ExplainOptions options, ExplainRegistry registry) {
+        this.explainRegistry = registry;
+        this.explainOptions = options;
+    }
+
+    private <R> R executeExplainableQuery(String operationName, String details, Bson filter, Bson sort,
+                                          Supplier<R> supplier, Supplier<Document> explain) {
+        long startNanos = System.nanoTime();
+        R result = executeMeasuredQuery(operationName, details, supplier);
+        ExplainOptions options = explainOptions;
+        if (options != null) {
+            long durationMs = (System.nanoTime() - startNanos) / 1_000_000L;
+            captureExplain(options, explainRegistry, operationName, filter, sort, durationMs, explain);
+        }
+        return result;
+    }
+
+    private void captureExplain(ExplainOptions options, ExplainRegistry registry, String operationName,
+                                Bson filter, Bson sort, long durationMs, Supplier<Document> explain) {
+        QueryShape shape;
+        ExplainPlanSummary.Trigger trigger;
+        try {
+            CodecRegistry codecRegistry = mongoCollection.getCodecRegistry();
+            shape = QueryShape.of(getCollectionName(), operationName,
+                    filter != null ? filter.toBsonDocument(BsonDocument.class, codecRegistry) : null,
+                    sort != null ? sort.toBsonDocument(BsonDocument.class, codecRegistry) : null);
+            if (options.getMode() == ExplainOptions.Mode.FIRST_RUN_PER_SHAPE) {
+                if (!registry.claimFirstRun(shape)) {
+                    return;
+                }
+                trigger = ExplainPlanSummary.Trigger.FIRST_RUN;
+            } else {
+                if (durationMs <= slowQueryThresholdMs || !options.sampled()) {
+                    return;
+                }
+                if (!slowQueryExplains.tryAcquire()) {
+                    logger.debug("Skipping explain of slow {} of {}: {} explains already running",
+                            operationName, dbEntityName, MAX_CONCURRENT_SLOW_QUERY_EXPLAINS);
+                    return;
+                }
+                trigger = ExplainPlanSummary.Trigger.SLOW_QUERY;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to explain {} of {}", operationName, dbEntityName, e);
+            return;
+        }
+
+        VIRTUAL_THREAD_EXECUTOR.execute(() -> {
+            try {
+                ExplainPlanSummary summary = ExplainPlanSummary.parse(shape, trigger, durationMs, explain.get(), clock.instant());
+                registry.record(summary);
+                if (summary.hasWarnings()) {
+                    logger.warn("QUERY PLAN: {}. entity={}, stages={}, keysExamined={}, docsExamined={}, returned={}, shape={}",
+                            operationName, dbEntityName, summary.getStages(), summary.getKeysExamined(),
+                            summary.getDocsExamined(), summary.getReturned(), shape);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to explain {} of {}", operationName, dbEntityName, e);
+            } finally {
+                if (trigger == ExplainPlanSummary.Trigger.SLOW_QUERY) {
+                    slowQueryExplains.release();
+                }
+            }
+        });
+    }
+
     private <R> R executeMeasuredQuery(String operationName, String details, Supplier<R> supplier) {
         long startNanos = System.nanoTime();
         try {
             R result = supplier.get();
-            long durationMs = (System.nanoTime() - startNanos) / 1_000_000L;
-            if (durationMs > LONG_QUERY_THRESHOLD_MS) {
+            long durationNanos = System.nanoTime() - startNanos;
+            long durationMs = durationNanos / 1_000_000L;
+            if (durationMs > slowQueryThresholdMs) {
                 logger.warn("LONG QUERY: {}. entity={}, durationMs={}, details={}",
                         operationName, dbEntityName, durationMs, details);
             } else {
                 logger.debug("QUERY: {}. entity={}, durationMs={}, details={}",
                         operationName, dbEntityName, durationMs, details);
             }
+            metricsSink.record(dbEntityName, operationName, durationNanos, resultCount(result), false);
             return result;
         } catch (RuntimeException e) {
-            long durationMs = (System.nanoTime() - startNanos) / 1_000_000L;
-            logger.error("QUERY FAILED: {}. entity={}, durationMs={}, details={}",
-                    operationName, dbEntityName, durationMs, details, e);
+            long durationNanos = System.nanoTime() - startNanos;
+            if (isDuplicateKey(e)) {
+                // an expected outcome the caller reports itself (duplicate id, version conflict), not a failure
+                logger.debug("QUERY REJECTED (duplicate key): {}. entity={}, durationMs={}, details={}",
+                        operationName, dbEntityName, durationNanos / 1_000_000L, details);
+            } else {
+                logger.error("QUERY FAILED: {}. entity={}, durationMs={}, details={}",
+                        operationName, dbEntityName, durationNanos / 1_000_000L, details, e);
+            }
+            metricsSink.record(dbEntityName, operationName, durationNanos, 0, true);
             throw e;
         }
     }
 
+    private static boolean isDuplicateKey(RuntimeException e) {
+        if (e instanceof MongoBulkWriteException bulkWriteException) {
+            List<BulkWriteError> errors = bulkWriteException.getWriteErrors();
+            return errors != null && !errors.isEmpty() && errors.stream().allMatch(CommonDao::isDuplicateKeyError);
+        }
+        if (e instanceof MongoWriteException writeException) {
+            return writeException.getError().getCategory() == ErrorCategory.DUPLICATE_KEY;
+        }
+        return e instanceof MongoException mongoException
+                && ErrorCategory.fromErrorCode(mongoException.getCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+
+    private static long resultCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof UpdateResult updateResult) {
+            return updateResult.wasAcknowledged() ? updateResult.getModifiedCount() : 0;
+        }
+        if (result instanceof DeleteResult deleteResult) {
+            return deleteResult.wasAcknowledged() ? deleteResult.getDeletedCount() : 0;
+        }
+        if (result instanceof BulkWriteResult bulkWriteResult) {
+            return bulkWriteResult.wasAcknowledged() ? bulkWriteResult.getModifiedCount() : 0;
+        }
+        return 0;
+    }
+
     private void executeMeasuredVoidQuery(String operationName, String details, Runnable runnable) {
         executeMeasuredQuery(operationName, details, () -> {
             runnable.run();
@@ -127,154 +509,987 @@ public class CommonDao<T extends DbEntity> {
         });
     }
 
-    public final String insert(T entity) {
-        Instant now = clock.instant();
-
+    private void stampInsertTimestamps(T entity, Instant now) {
         if (entity.getCreatedAt() == null) {
             entity.setCreatedAt(now);
         }
         if (entity.getUpdatedAt() == null) {
             entity.setUpdatedAt(now);
         }
+    }
+
+    private static boolean isDuplicateKeyError(BulkWriteError error) {
+        return ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+
+    public final String insert(T entity) {
+        stampInsertTimestamps(entity, clock.instant());
         try {
-            mongoCollection.insert(entity);
+            executeMeasuredVoidQuery("insert", "id=" + entity.getId(), () -> {
+                com.mongodb.client.MongoCollection<T> codec = codecCollection;
+                if (codec != null) {
+                    codec.insertOne(entity);
+                } else {
+                    mongoCollection.insert(entity);
+                }
+            });
+            invalidateQueryCaches();
             logger.info("{} saved successfully. id={}", dbEntityName, entity.getId());
             return entity.getId();
         } catch (MongoBulkWriteException e) {
             List<BulkWriteError> errors = e.getWriteErrors();
             boolean isDuplicate = errors != null && errors.stream()
-                    .anyMatch(err -> ErrorCategory.fromErrorCode(err.getCode()) == ErrorCategory.DUPLICATE_KEY);
+                    .anyMatch(CommonDao::isDuplicateKeyError);
+
+            if (isDuplicate) {
+                throw duplicateIdException(entity, e);
+            }
+
+            // If it’s not a duplicate, rethrow the original exception.
+            throw e;
+        } catch (MongoWriteException e) {
+            // insertOne of the direct codec mode reports a single write error this way
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                throw duplicateIdException(entity, e);
+            }
+            throw e;
+        }
+    }
+
+    private DuplicateKeyException duplicateIdException(T entity, MongoException cause) {
+        String message = String.format(
+                "Duplicate key error in collection '%s': document with id '%s' already exists",
+                dbEntityName,
+                entity.getId()
+        );
+        logger.warn(message);
+        return new DuplicateKeyException(message, cause);
+    }
+
+    /**
+     * Inserts entities in unordered {@code insertMany} batches of {@link #DEFAULT_INSERT_BATCH_SIZE}.
+     *
+     * @see #insertAll(Collection, int, boolean)
+     */
+    public final BulkInsertResult insertAll(Collection<T> entities) {
+        return insertAll(entities, DEFAULT_INSERT_BATCH_SIZE, false);
+    }
+
+    /**
+     * Inserts entities with one {@code insertMany} round trip per batch instead of one per entity.
+     * {@code createdAt}/{@code updatedAt} are stamped exactly like {@link #insert(DbEntity)} does.
+     * <p>
+     * Duplicate keys do not fail the whole call: each {@link BulkWriteError} is mapped back to the
+     * entity at its batch index and reported in {@link BulkInsertResult#getDuplicateIds()}.
+     * In ordered mode the server stops a batch at the first error, so the rest of that batch is
+     * resubmitted after the duplicate; insertion order is preserved either way. In unordered mode
+     * the server keeps going on its own and all errors of a batch arrive in one exception.
+     * Any error other than a duplicate key is rethrown as-is.
+     *
+     * @param batchSize maximum number of documents per {@code insertMany} call. Must be > 0.
+     * @param ordered   whether documents must be inserted strictly in iteration order
+     */
+    public final BulkInsertResult insertAll(Collection<T> entities, int batchSize, boolean ordered) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be > 0");
+        }
+        BulkInsertResult result = new BulkInsertResult();
+        if (entities == null || entities.isEmpty()) {
+            return result;
+        }
+
+        Instant now = clock.instant();
+        List<T> all = new ArrayList<>(entities);
+        for (T entity : all) {
+            stampInsertTimestamps(entity, now);
+        }
+
+        InsertManyOptions options = new InsertManyOptions().ordered(ordered);
+        String details = String.format("count=%d, batchSize=%d, ordered=%s", all.size(), batchSize, ordered);
+        try {
+            executeMeasuredVoidQuery("insertAll", details, () -> {
+                for (int from = 0; from < all.size(); from += batchSize) {
+                    List<T> batch = all.subList(from, Math.min(from + batchSize, all.size()));
+                    insertBatch(batch, options, result);
+                }
+            });
+        } finally {
+            invalidateQueryCaches();
+        }
+
+        logger.info("{} bulk insert finished. inserted={}, duplicates={}",
+                dbEntityName, result.getInsertedIds().size(), result.getDuplicateIds().size());
+        return result;
+    }
+
+    private void insertBatch(List<T> batch, InsertManyOptions options, BulkInsertResult result) {
+        List<T> pending = batch;
+        while (!pending.isEmpty()) {
+            try {
+                entityCollection().insertMany(pending, options);
+                pending.forEach(entity -> result.getInsertedIds().add(entity.getId()));
+                return;
+            } catch (MongoBulkWriteException e) {
+                List<BulkWriteError> errors = e.getWriteErrors();
+                if (errors == null || errors.isEmpty()
+                        || !errors.stream().allMatch(CommonDao::isDuplicateKeyError)) {
+                    throw e;
+                }
+
+                boolean[] failed = new boolean[pending.size()];
+                for (BulkWriteError error : errors) {
+                    failed[error.getIndex()] = true;
+                    String id = pending.get(error.getIndex()).getId();
+                    result.getDuplicateIds().add(id);
+                    logger.warn("Duplicate key error in collection '{}': document with id '{}' already exists",
+                            dbEntityName, id);
+                }
+
+                if (!options.isOrdered()) {
+                    for (int i = 0; i < pending.size(); i++) {
+                        if (!failed[i]) {
+                            result.getInsertedIds().add(pending.get(i).getId());
+                        }
+                    }
+                    return;
+                }
+
+                // Ordered: everything before the failed index is in, everything after was never attempted.
+                int failedIndex = errors.getFirst().getIndex();
+                for (int i = 0; i < failedIndex; i++) {
+                    result.getInsertedIds().add(pending.get(i).getId());
+                }
+                pending = pending.subList(failedIndex + 1, pending.size());
+            }
+        }
+    }
+
+
+    /**
+     * Updates the entity with a single versioned {@code replaceOne} filtered by {@code _id} and
+     * {@code version}; the stored document is not read beforehand. Only when nothing matched is a
+     * cheap {@code _id}-only lookup issued to tell {@link EntityNotFoundException} apart from
+     * {@link VersionConflictException}. On either failure the entity keeps its original version.
+     */
+    public final void update(T entity) {
+        String id = entity.getId();
+
+        Instant now = clock.instant();
+        if (entity.getCreatedAt() == null) {
+            entity.setCreatedAt(now);
+        }
+        Instant oldUpdatedAt = entity.getUpdatedAt();
+        entity.setUpdatedAt(now);
+
+        long oldVersion = entity.getVersion();
+        entity.setVersion(oldVersion + 1);
+
+        try {
+            UpdateResult result = tryVersionedUpdate(id, oldVersion, entity);
+
+            if (result.getModifiedCount() > 0) {
+                logSuccess(id);
+                return;
+            }
+
+            if (oldVersion == 0) {
+                result = tryFallbackUpdateForLegacyEntity(id, entity);
+                if (result.getModifiedCount() > 0) {
+                    logger.warn("Fallback used for entity without version: " + id);
+                    logSuccess(id);
+                    return;
+                }
+            }
+
+            entity.setVersion(oldVersion);
+            entity.setUpdatedAt(oldUpdatedAt);
+            throw updateMissException(id, oldVersion);
+        } finally {
+            afterEntityWrite(id);
+        }
+    }
+
+    /**
+     * Explains why a versioned write matched nothing. Runs only on the rare miss path and fetches
+     * nothing but {@code _id}, so no {@code @Encrypted} field is transferred or decrypted.
+     */
+    private RuntimeException updateMissException(String id, long expectedVersion) {
+        if (!existsByIdOnly(id)) {
+            return new EntityNotFoundException("No " + dbEntityName + " with id: " + id);
+        }
+        return new VersionConflictException("Version conflict for " + dbEntityName + " with id: " + id +
+                ". Possibly modified concurrently. Expected version: " + expectedVersion);
+    }
+
+    private boolean existsByIdOnly(String id) {
+        return executeMeasuredQuery("existsByIdOnly", "id=" + id, () ->
+                mongoCollection.find(Filters.eq("_id", id))
+                        .projection(Projections.include("_id"))
+                        .first() != null);
+    }
+
+    /**
+     * Bulk counterpart of {@link #update(DbEntity)}: every entity becomes a versioned
+     * {@link ReplaceOneModel} with the same {@code _id}+{@code version} filter, and all of them go
+     * out in one unordered {@code bulkWrite}. Versions and timestamps are bumped exactly as
+     * {@code update} does.
+     * <p>
+     * The entities are encoded once, up front, and those exact documents are written. A bulk write
+     * only reports aggregate counts, so when fewer documents matched than were sent, the stored
+     * documents of the batch are read back and compared with what was sent: an identical document
+     * was written by this call (encrypted fields carry a fresh IV per write, so a concurrent writer
+     * cannot produce the same document; for plain entities an identical document is the same
+     * state either way), a missing document is reported as missing, a legacy document without a
+     * version field goes through the same unversioned fallback as {@code update}, and anything
+     * else is a conflict.
+     * <p>
+     * Entities that were not written keep their original version and {@code updatedAt}; if the
+     * bulk write throws, all of them do. Nothing is thrown for conflicts or missing documents;
+     * inspect the returned result instead.
+     *
+     * @throws IllegalArgumentException if an id occurs more than once; nothing is written then
+     */
+    public final BulkUpdateResult updateAll(Collection<T> entities) {
+        BulkUpdateResult result = new BulkUpdateResult();
+        if (entities == null || entities.isEmpty()) {
+            return result;
+        }
+
+        List<T> all = new ArrayList<>(entities);
+        Set<String> distinctIds = new HashSet<>();
+        for (T entity : all) {
+            if (!distinctIds.add(entity.getId())) {
+                throw new IllegalArgumentException("updateAll got id " + entity.getId() + " more than once");
+            }
+        }
+
+        Instant now = clock.instant();
+        Map<String, Instant> oldUpdatedAts = new HashMap<>();
+        Map<String, BsonDocument> sent = new HashMap<>();
+        List<WriteModel<BsonDocument>> models = new ArrayList<>(all.size());
+        try {
+            for (T entity : all) {
+                if (entity.getCreatedAt() == null) {
+                    entity.setCreatedAt(now);
+                }
+                oldUpdatedAts.put(entity.getId(), entity.getUpdatedAt());
+                entity.setUpdatedAt(now);
+
+                long oldVersion = entity.getVersion();
+                entity.setVersion(oldVersion + 1);
+                BsonDocument document = toBsonDocument(entity);
+                sent.put(entity.getId(), document);
+                models.add(new ReplaceOneModel<>(versionedFilter(entity.getId(), oldVersion), document));
+            }
+
+            BulkWriteResult bulkResult = executeMeasuredQuery("updateAll", "count=" + all.size(), () ->
+                    documentCollection().bulkWrite(models, new BulkWriteOptions().ordered(false)));
+
+            if (bulkResult.getMatchedCount() == all.size()) {
+                all.forEach(entity -> result.getUpdatedIds().add(entity.getId()));
+            } else {
+                resolveUnmatchedUpdates(all, sent, result);
+            }
+        } finally {
+            all.forEach(entity -> afterEntityWrite(entity.getId()));
+
+            Set<String> updatedIds = new HashSet<>(result.getUpdatedIds());
+            for (T entity : all) {
+                if (oldUpdatedAts.containsKey(entity.getId()) && !updatedIds.contains(entity.getId())) {
+                    entity.setVersion(entity.getVersion() - 1);
+                    entity.setUpdatedAt(oldUpdatedAts.get(entity.getId()));
+                }
+            }
+        }
+
+        logger.info("{} bulk update finished. updated={}, conflicted={}, missing={}", dbEntityName,
+                result.getUpdatedIds().size(), result.getConflictedIds().size(), result.getMissingIds().size());
+        return result;
+    }
+
+    private void resolveUnmatchedUpdates(List<T> entities, Map<String, BsonDocument> sent, BulkUpdateResult result) {
+        List<String> ids = entities.stream().map(DbEntity::getId).toList();
+        Map<String, BsonDocument> stored = new HashMap<>();
+        executeMeasuredVoidQuery("resolveUnmatchedUpdates", "count=" + ids.size(), () -> {
+            try (MongoCursor<BsonDocument> cursor = documentCollection().find(Filters.in("_id", ids)).iterator()) {
+                cursor.forEachRemaining(document -> stored.put(document.getString("_id").getValue(), document));
+            }
+        });
+
+        for (T entity : entities) {
+            String id = entity.getId();
+            BsonDocument current = stored.get(id);
+            if (current == null) {
+                result.getMissingIds().add(id);
+            } else if (current.equals(sent.get(id))) {
+                result.getUpdatedIds().add(id);
+            } else if (entity.getVersion() == 1 && !current.containsKey("version")
+                    && tryFallbackUpdateForLegacyEntity(id, entity).getModifiedCount() > 0) {
+                logger.warn("Fallback used for entity without version: " + id);
+                result.getUpdatedIds().add(id);
+            } else {
+                result.getConflictedIds().add(id);
+            }
+        }
+    }
+
+    /** The collection as raw documents, for writes that must send exactly what was encoded beforehand. */
+    private com.mongodb.client.MongoCollection<BsonDocument> documentCollection() {
+        return database.getCollection(getCollectionName(), BsonDocument.class);
+    }
+
+    /**
+     * Applies field-level changes to the document with this id, if its stored version is still
+     * {@code expectedVersion}; only the changed fields travel over the wire. {@code version} is
+     * incremented and {@code updatedAt} set in the same server-side update.
+     * <p>
+     * {@code @Encrypted} fields are encrypted with the DAO's {@link PiiEncryptionService} before
+     * they are sent, and their lookup field is set (or unset) alongside, exactly as a full write
+     * would. Lookup fields cannot be written directly, and {@code inc}/{@code push} on an
+     * encrypted field are rejected. As in {@link #update(DbEntity)}, a document without a version
+     * field is matched by {@code expectedVersion == 0}.
+     *
+     * @return the new version of the document
+     * @throws EntityNotFoundException  if no document has this id
+     * @throws VersionConflictException if the stored version differs from {@code expectedVersion}
+     */
+    public final long updateFields(String id, long expectedVersion, PartialUpdate update) {
+        if (update.isEmpty()) {
+            throw new IllegalArgumentException("Partial update of " + dbEntityName + " must change at least one field");
+        }
+        Bson updateDocument = toUpdateDocument(update);
+        try {
+            UpdateResult result = executeMeasuredQuery("updateFields", "id=" + id + ", update=" + update, () ->
+                    mongoCollection.updateOne(versionedFilter(id, expectedVersion), updateDocument));
+            if (result.getMatchedCount() == 0 && expectedVersion == 0) {
+                result = executeMeasuredQuery("updateFieldsLegacyFallback", "id=" + id, () ->
+                        mongoCollection.updateOne(
+                                Filters.and(Filters.eq("_id", id), Filters.exists("version", false)),
+                                updateDocument));
+            }
+            if (result.getMatchedCount() == 0) {
+                throw updateMissException(id, expectedVersion);
+            }
+            logSuccess(id);
+            return expectedVersion + 1;
+        } finally {
+            afterEntityWrite(id);
+        }
+    }
+
+    /**
+     * Same as {@link #updateFields(String, long, PartialUpdate)}, but atomically returns the
+     * document as it is after the update, so no follow-up {@link #findById(String)} is needed.
+     *
+     * @throws EntityNotFoundException  if no document has this id
+     * @throws VersionConflictException if the stored version differs from {@code expectedVersion}
+     * @throws DuplicateKeyException    if the new values violate a unique index
+     */
+    public final T findOneAndUpdate(String id, long expectedVersion, PartialUpdate update) {
+        if (update.isEmpty()) {
+            throw new IllegalArgumentException("Partial update of " + dbEntityName + " must change at least one field");
+        }
+        Bson updateDocument = toUpdateDocument(update);
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+        try {
+            T updated = executeMeasuredQuery("findOneAndUpdate", "id=" + id + ", update=" + update, () ->
+                    entityCollection().findOneAndUpdate(versionedFilter(id, expectedVersion), updateDocument, options));
+            if (updated == null && expectedVersion == 0) {
+                updated = executeMeasuredQuery("findOneAndUpdateLegacyFallback", "id=" + id, () ->
+                        entityCollection().findOneAndUpdate(
+                                Filters.and(Filters.eq("_id", id), Filters.exists("version", false)),
+                                updateDocument, options));
+            }
+            if (updated == null) {
+                throw updateMissException(id, expectedVersion);
+            }
+            logSuccess(id);
+            return updated;
+        } catch (MongoException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                throw duplicateKeyException(id, e);
+            }
+            throw e;
+        } finally {
+            afterEntityWrite(id);
+        }
+    }
+
+    /**
+     * Inserts the entity if no document has its id, otherwise updates it, in one atomic
+     * {@code findOneAndUpdate} with {@code upsert}. {@code createdAt} is written only on insert
+     * ({@code $setOnInsert}), {@code updatedAt} is set and {@code version} incremented server-side;
+     * on success the entity carries the stored {@code createdAt} and new {@code version}.
+     * <p>
+     * The update is versioned like {@link #update(DbEntity)}: an existing document is only
+     * matched if its version equals the entity's (version 0 also matches a document without
+     * one). Only an entity at version 0 can be inserted, and the new document gets version 1; if
+     * a document with its id exists at another version, the insert collides on {@code _id}, which
+     * is reported as a {@link VersionConflictException}. An entity with a version above 0 was
+     * read from a stored document, so it is never re-inserted: if that document is gone or at
+     * another version, that is a {@link VersionConflictException} too.
+     *
+     * @throws VersionConflictException if a document with this id exists at another version, or
+     *                                  the entity has a version but its document no longer exists
+     * @throws DuplicateKeyException    if the entity violates another unique index
+     */
+    public final void upsert(T entity) {
+        String id = entity.getId();
+        if (id == null) {
+            throw new IllegalArgumentException("Cannot upsert " + dbEntityName + " without an id");
+        }
+        Instant now = clock.instant();
+        long expectedVersion = entity.getVersion();
+
+        BsonDocument fields = JacksonBsonConverter.toBsonValue(objectMapper, entity).asDocument();
+        BsonValue createdAt = entity.getCreatedAt() != null
+                ? fields.get("createdAt")
+                : JacksonBsonConverter.toBsonValue(objectMapper, now);
+        fields.remove("_id");
+        fields.remove("version");
+        fields.remove("createdAt");
+        fields.put("updatedAt", JacksonBsonConverter.toBsonValue(objectMapper, now));
+
+        Bson filter = expectedVersion == 0
+                ? Filters.and(Filters.eq("_id", id),
+                Filters.or(Filters.eq("version", 0L), Filters.exists("version", false)))
+                : versionedFilter(id, expectedVersion);
+        Bson updateDocument = new BsonDocument()
+                .append("$set", fields)
+                .append("$setOnInsert", new BsonDocument("createdAt", createdAt))
+                .append("$inc", new BsonDocument("version", new BsonInt64(1)));
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
+                .upsert(expectedVersion == 0)
+                .returnDocument(ReturnDocument.AFTER)
+                .projection(Projections.include("createdAt", "version"));
+
+        try {
+            T stored = executeMeasuredQuery("upsert", "id=" + id + ", version=" + expectedVersion, () ->
+                    entityCollection().findOneAndUpdate(filter, updateDocument, options));
+            if (stored == null) {
+                // only without upsert, i.e. expectedVersion > 0
+                throw new VersionConflictException("Version conflict for " + dbEntityName + " with id: " + id +
+                        (storedVersion(id) == null ? ". The document no longer exists." : ". Possibly modified concurrently.") +
+                        " Expected version: " + expectedVersion);
+            }
+            entity.setCreatedAt(stored.getCreatedAt());
+            entity.setUpdatedAt(now);
+            entity.setVersion(stored.getVersion());
+            logSuccess(id);
+        } catch (MongoException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            Long storedVersion = storedVersion(id);
+            if (storedVersion != null && storedVersion != expectedVersion) {
+                throw new VersionConflictException("Version conflict for " + dbEntityName + " with id: " + id +
+                        ". Possibly modified concurrently. Expected version: " + expectedVersion);
+            }
+            throw duplicateKeyException(id, e);
+        } finally {
+            afterEntityWrite(id);
+        }
+    }
+
+    private DuplicateKeyException duplicateKeyException(String id, MongoException cause) {
+        String message = String.format(
+                "Duplicate key error in collection '%s' while writing document with id '%s': %s",
+                dbEntityName, id, cause.getMessage());
+        logger.warn(message);
+        return new DuplicateKeyException(message, cause);
+    }
+
+    /**
+     * Version of the stored document, {@code 0} for a legacy document without one, or
+     * {@code null} if there is no document with this id. Only used on failure paths.
+     */
+    private Long storedVersion(String id) {
+        T stored = executeMeasuredQuery("storedVersion", "id=" + id, () ->
+                mongoCollection.find(Filters.eq("_id", id))
+                        .projection(Projections.include("version"))
+                        .first());
+        return stored == null ? null : stored.getVersion();
+    }
+
+    private Bson toUpdateDocument(PartialUpdate update) {
+        Map<String, Encrypted> encryptedFields = EncryptedFieldIntrospector.scanEncryptedFields(type);
+        Map<String, String> sourceByLookupField = new HashMap<>();
+        encryptedFields.forEach((field, annotation) -> {
+            if (!annotation.lookupField().isBlank()) {
+                sourceByLookupField.put(annotation.lookupField(), field);
+            }
+        });
+
+        List<Bson> updates = new ArrayList<>();
+        update.getSets().forEach((field, value) -> {
+            requireWritableField(field, sourceByLookupField);
+            Encrypted encrypted = encryptedFields.get(field);
+            if (encrypted == null) {
+                updates.add(Updates.set(field, JacksonBsonConverter.toBsonValue(objectMapper, value)));
+                return;
+            }
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException("@Encrypted field " + dbEntityName + "#" + field + " takes a String value");
+            }
+            String plaintext = (String) value;
+            updates.add(Updates.set(field, plaintext == null
+                    ? BsonNull.VALUE
+                    : new BsonString(encryptionService.encrypt(plaintext, encrypted.context()))));
+            if (!encrypted.lookupField().isBlank()) {
+                // same rule as the lookup serializer: no lookup value for a blank plaintext
+                updates.add(Updates.set(encrypted.lookupField(), plaintext == null || plaintext.isBlank()
+                        ? BsonNull.VALUE
+                        : new BsonString(encryptionService.computeLookup(plaintext, encrypted.context()))));
+            }
+        });
+        update.getIncrements().forEach((field, amount) -> {
+            requireWritableField(field, sourceByLookupField);
+            requireNotEncrypted(field, encryptedFields, "inc");
+            updates.add(Updates.inc(field, amount));
+        });
+        update.getPushes().forEach((field, value) -> {
+            requireWritableField(field, sourceByLookupField);
+            requireNotEncrypted(field, encryptedFields, "push");
+            updates.add(Updates.push(field, JacksonBsonConverter.toBsonValue(objectMapper, value)));
+        });
+        update.getUnsets().forEach(field -> {
+            requireWritableField(field, sourceByLookupField);
+            updates.add(Updates.unset(field));
+            Encrypted encrypted = encryptedFields.get(field);
+            if (encrypted != null && !encrypted.lookupField().isBlank()) {
+                updates.add(Updates.unset(encrypted.lookupField()));
+            }
+        });
+
+        updates.add(Updates.inc("version", 1L));
+        updates.add(Updates.set("updatedAt", JacksonBsonConverter.toBsonValue(objectMapper, clock.instant())));
+        return Updates.combine(updates);
+    }
+
+    private void requireWritableField(String field, Map<String, String> sourceByLookupField) {
+        if (field.equals("_id") || field.equals("version") || field.equals("updatedAt")) {
+            throw new IllegalArgumentException("Field " + field + " of " + dbEntityName + " is maintained by the DAO");
+        }
+        String source = sourceByLookupField.get(field);
+        if (source != null) {
+            throw new IllegalArgumentException("Lookup field " + dbEntityName + "#" + field
+                    + " is derived from @Encrypted field " + source + "; update that field instead");
+        }
+    }
+
+    private void requireNotEncrypted(String field, Map<String, Encrypted> encryptedFields, String operation) {
+        if (encryptedFields.containsKey(field)) {
+            throw new IllegalArgumentException("Cannot " + operation + " @Encrypted field " + dbEntityName + "#" + field);
+        }
+    }
+
+    private UpdateResult tryVersionedUpdate(String id, long version, T entity) {
+        return executeMeasuredQuery("update", "id=" + id + ", version=" + version, () ->
+                entityCollection().replaceOne(versionedFilter(id, version), entity));
+    }
+
+    private static Bson versionedFilter(String id, long version) {
+        return Filters.and(
+                Filters.eq("_id", id),
+                Filters.eq("version", version)
+        );
+    }
+
+    /**
+     * Attempts to update the entity without a version match.
+     * This fallback is used for legacy entities that do not have a version field in the database,
+     * so the filter only matches documents where {@code version} is absent: a versioned document
+     * is never overwritten here. Should be used cautiously, as it may overwrite concurrent changes.
+     */
+    private UpdateResult tryFallbackUpdateForLegacyEntity(String id, T entity) {
+        return executeMeasuredQuery("updateLegacyFallback", "id=" + id, () ->
+                entityCollection().replaceOne(
+                        Filters.and(
+                                Filters.eq("_id", id),
+                                Filters.exists("version", false)
+                        ),
+                        entity
+                ));
+    }
+
+    private void logSuccess(String id) {
+        logger.info(dbEntityName + " updated successfully. " + id);
+    }
+
+    public final Optional<T> findById(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        EntityCache<T> cache = entityCache;
+        if (cache != null) {
+            Optional<T> cached = cache.get(id);
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        long cacheGeneration = cache != null ? cache.generation() : 0;
+
+        Optional<T> result = executeMeasuredQuery("findById", "id=" + id, () -> {
+            Optional<T> entity = Optional.ofNullable(codecCollection != null
+                    ? codecCollection.find(Filters.eq("_id", id)).first()
+                    : mongoCollection.findOneById(id));
+            if (entity.isEmpty()) {
+                logger.info("Entity of type " + dbEntityName + " not found for id: " + id);
+            }
+            return entity;
+        });
+
+        if (cache != null) {
+            result.ifPresent(entity -> cache.put(entity, cacheGeneration));
+        }
+        return result;
+    }
+
+    /**
+     * Reads only the projected fields of the entity; see {@link Projection} for the caveats of
+     * partially populated entities.
+     */
+    public final Optional<T> findById(String id, Projection projection) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return executeMeasuredQuery("findByIdWithProjection", "id=" + id + ", projection=" + projection, () ->
+                Optional.ofNullable(entityCollection().find(Filters.eq("_id", id))
+                        .projection(projection.toBson())
+                        .first()));
+    }
+
+    public T findByIdOrThrow(String id) {
+        return findById(id).orElseThrow(() ->
+                new IllegalArgumentException("Entity of type " + dbEntityName + " not found for id: " + id));
+    }
+
+
+    /**
+     * Entities with the given ids, in the order of {@code ids}; ids without a document are
+     * skipped. See {@link #findByIdsInOrder(List)} to also learn which ids were not found.
+     */
+    public final List<T> findByIds(List<String> ids) {
+        return findByIdsInOrder(ids).getEntities();
+    }
+
+    /**
+     * Same as {@link #findByIdsInOrder(List, int, int)} with {@link #DEFAULT_FIND_BY_IDS_CHUNK_SIZE}
+     * and {@link #DEFAULT_FIND_BY_IDS_PARALLELISM}.
+     */
+    public final FindByIdsResult<T> findByIdsInOrder(List<String> ids) {
+        return findByIdsInOrder(ids, DEFAULT_FIND_BY_IDS_CHUNK_SIZE, DEFAULT_FIND_BY_IDS_PARALLELISM);
+    }
+
+    /**
+     * Loads many entities by id: ids not served by the entity cache are split into {@code $in}
+     * queries of at most {@code chunkSize} ids, at most {@code parallelism} of them at a time on
+     * {@link #virtualThreadExecutor()}.
+     * The result keeps the order of {@code ids} and lists the ids that matched no document.
+     * Use it instead of calling {@link #findById(String)} in a loop.
+     */
+    public final FindByIdsResult<T> findByIdsInOrder(List<String> ids, int chunkSize, int parallelism) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        List<String> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+
+        EntityCache<T> cache = entityCache;
+        Map<String, T> byId = new HashMap<>();
+        List<String> missedIds = new ArrayList<>();
+        for (String id : distinctIds) {
+            Optional<T> cached = cache != null ? cache.get(id) : Optional.empty();
+            cached.ifPresentOrElse(entity -> byId.put(id, entity), () -> missedIds.add(id));
+        }
 
-            if (isDuplicate) {
-                String message = String.format(
-                        "Duplicate key error in collection '%s': document with id '%s' already exists",
-                        dbEntityName,
-                        entity.getId()
-                );
-                logger.warn(message);
-                throw new DuplicateKeyException(message, e);
+        if (!missedIds.isEmpty()) {
+            long cacheGeneration = cache != null ? cache.generation() : 0;
+            List<T> fetched = fetchByIds(missedIds, chunkSize, parallelism);
+            for (T entity : fetched) {
+                byId.put(entity.getId(), entity);
+                if (cache != null) {
+                    cache.put(entity, cacheGeneration);
+                }
             }
-
-            // If it’s not a duplicate, rethrow the original exception.
-            throw e;
         }
-    }
 
-
-    private void verifyExistsAndVersionMatches(T entity) {
-        Optional<T> dbEntityO = findById(entity.getId());
-        if (dbEntityO.isEmpty()) {
-            throw new EntityNotFoundException("No " + dbEntityName + " with id: " + entity.getId());
+        FindByIdsResult<T> result = new FindByIdsResult<>();
+        for (String id : distinctIds) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                result.getFound().put(id, entity);
+            } else {
+                result.getMissingIds().add(id);
+            }
         }
-        if (entity.getVersion() != dbEntityO.get().getVersion()) {
-            throw new VersionConflictException("Version conflict for " + dbEntityName +
-                    ". Possibly modified concurrently.");
+        if (result.hasMissing()) {
+            logger.info("{} of {} {} ids not found", result.getMissingIds().size(), distinctIds.size(), dbEntityName);
+            logger.debug("Missing {} ids: {}", dbEntityName, result.getMissingIds());
         }
+        return result;
     }
 
-    public final void update(T entity) {
-        String id = entity.getId();
-        verifyExistsAndVersionMatches(entity);
+    private List<T> fetchByIds(List<String> ids, int chunkSize, int parallelism) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+        }
+        logger.debug("Find {} by {} ids in {} chunks", dbEntityName, ids.size(), chunks.size());
 
-        Instant now = clock.instant();
-        if (entity.getCreatedAt() == null) {
-            entity.setCreatedAt(now);
+        if (chunks.size() == 1 || parallelism == 1) {
+            List<T> out = new ArrayList<>();
+            chunks.forEach(chunk -> out.addAll(fetchChunk(chunk)));
+            return out;
         }
-        entity.setUpdatedAt(now);
 
-        long oldVersion = entity.getVersion();
-        entity.setVersion(oldVersion + 1);
+        // at most `parallelism` workers on the shared virtual-thread executor, each taking the next
+        // unfetched chunk, so no thread pool is created per call
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<Future<List<T>>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, chunks.size()); i++) {
+            workers.add(CompletableFuture.supplyAsync(() -> {
+                List<T> fetched = new ArrayList<>();
+                for (int chunk = nextChunk.getAndIncrement(); chunk < chunks.size(); chunk = nextChunk.getAndIncrement()) {
+                    fetched.addAll(fetchChunk(chunks.get(chunk)));
+                }
+                return fetched;
+            }, VIRTUAL_THREAD_EXECUTOR));
+        }
+        List<T> out = new ArrayList<>();
+        for (Future<List<T>> worker : workers) {
+            out.addAll(awaitChunk(worker));
+        }
+        return out;
+    }
 
-        UpdateResult result = tryVersionedUpdate(id, oldVersion, entity);
+    private List<T> fetchChunk(List<String> ids) {
+        return executeMeasuredQuery("findByIds", "count=" + ids.size(), () -> {
+            List<T> out = entityCollection().find(Filters.in("_id", ids)).into(new ArrayList<>());
+            return out;
+        });
+    }
 
-        if (result.getModifiedCount() > 0) {
-            logSuccess(id);
-            return;
-        }
+    /** Shared executor starting one virtual thread per task, used for the concurrent reads of every DAO. */
+    static Executor virtualThreadExecutor() {
+        return VIRTUAL_THREAD_EXECUTOR;
+    }
 
-        if (oldVersion > 0) {
-            throw new VersionConflictException("Version conflict for " + dbEntityName + " with id: " + id +
-                    ". Possibly modified concurrently. Expected version: " + oldVersion);
+    private static <R> R awaitChunk(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading entities by ids", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
         }
+    }
 
-        result = tryFallbackUpdateForLegacyEntity(id, entity);
-        if (result.getModifiedCount() == 0) {
-            throw new EntityNotFoundException("No " + dbEntityName + " with id: " + id);
-        }
+    public void forEachEntity(Consumer<T> consumer) {
+        executeMeasuredVoidQuery("forEachEntity", "consumer", () -> {
+            try (MongoCursor<T> cursor = entityCollection().find().iterator()) {
+                while (cursor.hasNext()) {
+                    T entity = cursor.next();
+                    consumer.accept(entity);
+                }
+            }
+        });
+    }
 
-        logger.warn("Fallback used for entity without version: " + id);
-        logSuccess(id);
+    /**
+     * Same as {@link #forEachEntity(Consumer)}, with explicit cursor batch size and timeouts.
+     * Documents are pulled one batch at a time, so memory use does not depend on collection size.
+     */
+    public void forEachEntity(Consumer<T> consumer, CursorOptions options) {
+        executeMeasuredVoidQuery("forEachEntity", "consumer, options=" + options, () -> {
+            try (MongoCursor<T> cursor = options.applyTo(entityCollection().find()).iterator()) {
+                while (cursor.hasNext()) {
+                    consumer.accept(cursor.next());
+                }
+            }
+        });
     }
 
-    private UpdateResult tryVersionedUpdate(String id, long version, T entity) {
-        return mongoCollection.replaceOne(
-                Filters.and(
-                        Filters.eq("_id", id),
-                        Filters.eq("version", version)
-                ),
-                entity
-        );
+    /**
+     * Streams the whole collection through a server cursor instead of materializing a list.
+     * The returned stream holds an open cursor: always close it, e.g. with try-with-resources.
+     */
+    public final Stream<T> stream(CursorOptions options) {
+        return openStream("stream", "options=" + options, options.applyTo(entityCollection().find()));
     }
 
     /**
-     * Attempts to update the entity using only the ID filter, without version check.
-     * This fallback is used for legacy entities that do not have a version field in the database.
-     * Should be used cautiously, as it may overwrite concurrent changes.
+     * Streams entities matching the specification, honoring its filter, sort, collation, limit and
+     * skip exactly like {@link #findBySpecification(LimitSpecification)}. A limit of 0 means no limit.
+     * The returned stream holds an open cursor: always close it, e.g. with try-with-resources.
      */
-    private UpdateResult tryFallbackUpdateForLegacyEntity(String id, T entity) {
-        return mongoCollection.replaceOne(
-                Filters.eq("_id", id),
-                entity
-        );
+    public final Stream<T> streamBySpecification(LimitSpecification specification, CursorOptions options) {
+        return openStream("streamBySpecification", "specification=" + specification + ", options=" + options,
+                options.applyTo(specificationQuery(specification)));
     }
 
-    private void logSuccess(String id) {
-        logger.info(dbEntityName + " updated successfully. " + id);
+    /**
+     * Streams entities matching the Bson filter in the given order.
+     * The returned stream holds an open cursor: always close it, e.g. with try-with-resources.
+     *
+     * @param filter Bson filter for querying. Can be null or Filters.empty().
+     * @param sort   Bson sort, can be null for natural order.
+     */
+    public final Stream<T> streamWithBsonFilter(Bson filter, Bson sort, CursorOptions options) {
+        Bson finalFilter = (filter != null) ? filter : Filters.empty();
+        FindIterable<T> findQuery = entityCollection().find(finalFilter);
+        if (sort != null) {
+            findQuery = findQuery.sort(sort);
+        }
+        return openStream("streamWithBsonFilter", "filter=" + finalFilter + ", sort=" + sort + ", options=" + options,
+                options.applyTo(findQuery));
     }
 
-    public final Optional<T> findById(String id) {
-        if (id == null) {
-            return Optional.empty();
+    /**
+     * Same as {@link #parallelForEach(Consumer, int, CursorOptions)} with default cursor options.
+     */
+    public final void parallelForEach(Consumer<T> consumer, int parallelism) {
+        parallelForEach(consumer, parallelism, CursorOptions.defaults());
+    }
+
+    /**
+     * Parallel counterpart of {@link #forEachEntity(Consumer, CursorOptions)}: the {@code _id}
+     * space is split into {@value #RANGES_PER_THREAD} ranges per thread ({@link #splitIdRanges}),
+     * and {@code parallelism} threads each walk one range cursor at a time, so deserialization and
+     * decryption use several cores. {@code consumer} runs on the cursor threads and must be
+     * thread-safe; there is no ordering between ranges.
+     * <p>
+     * Backpressure is inherent: a cursor fetches its next batch only once the consumer has taken
+     * the previous one, so at most {@code parallelism} batches are in memory.
+     * <p>
+     * Failures are fail-fast: the first exception thrown by the consumer or a cursor stops every
+     * range before its next document, ranges not yet started are skipped, and once all threads
+     * have stopped that first exception is rethrown with any later ones attached as suppressed.
+     */
+    public final void parallelForEach(Consumer<T> consumer, int parallelism, CursorOptions options) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
         }
-        return executeMeasuredQuery("findById", "id=" + id, () -> {
-            Optional<T> entity = Optional.ofNullable(mongoCollection.findOneById(id));
-            if (entity.isEmpty()) {
-                logger.info("Entity of type " + dbEntityName + " not found for id: " + id);
+        if (parallelism == 1) {
+            forEachEntity(consumer, options);
+            return;
+        }
+
+        List<IdRange> ranges = splitIdRanges(parallelism * RANGES_PER_THREAD);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        executeMeasuredVoidQuery("parallelForEach", "parallelism=" + parallelism + ", ranges=" + ranges.size(), () -> {
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ranges.size()))) {
+                for (IdRange range : ranges) {
+                    executor.submit(() -> {
+                        if (failure.get() != null) {
+                            return;
+                        }
+                        try (Stream<T> stream = streamByIdRange(range, options)) {
+                            Iterator<T> cursor = stream.iterator();
+                            while (failure.get() == null && cursor.hasNext()) {
+                                consumer.accept(cursor.next());
+                            }
+                        } catch (Throwable e) {
+                            if (!failure.compareAndSet(null, e)) {
+                                failure.get().addSuppressed(e);
+                            }
+                        }
+                    });
+                }
+            }
+            Throwable first = failure.get();
+            if (first instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (first instanceof Error error) {
+                throw error;
+            }
+            if (first != null) {
+                throw new IllegalStateException(first);
             }
-            return entity;
         });
     }
 
-    public T findByIdOrThrow(String id) {
-        return findById(id).orElseThrow(() ->
-                new IllegalArgumentException("Entity of type " + dbEntityName + " not found for id: " + id));
+    /**
+     * Splits the {@code _id} space into about {@code partitions} ranges of similar document count,
+     * using boundaries taken from a {@code $sample} of ids ({@value #ID_SAMPLES_PER_RANGE} per
+     * range). The ranges are contiguous and together cover every {@code _id}, including ids
+     * inserted afterwards. Small or empty collections may yield fewer ranges.
+     */
+    public final List<IdRange> splitIdRanges(int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        if (partitions == 1) {
+            return List.of(IdRange.all());
+        }
+        int sampleSize = partitions * ID_SAMPLES_PER_RANGE;
+        List<BsonValue> sampledIds = executeMeasuredQuery("splitIdRanges", "partitions=" + partitions, () ->
+                mongoCollection.aggregate(List.of(
+                                Aggregates.sample(sampleSize),
+                                Aggregates.project(Projections.include("_id")),
+                                Aggregates.sort(Sorts.ascending("_id"))), BsonDocument.class)
+                        .map(document -> document.get("_id"))
+                        .into(new ArrayList<>()));
+
+        List<BsonValue> boundaries = new ArrayList<>();
+        for (int i = 1; i < partitions && !sampledIds.isEmpty(); i++) {
+            BsonValue boundary = sampledIds.get(i * sampledIds.size() / partitions);
+            if (boundaries.isEmpty() || !boundaries.getLast().equals(boundary)) {
+                boundaries.add(boundary);
+            }
+        }
+        return IdRange.between(boundaries);
     }
 
+    /**
+     * Streams the entities of one {@code _id} range in ascending {@code _id} order, served by the
+     * {@code _id} index. Must be closed, like {@link #stream(CursorOptions)}.
+     */
+    public final Stream<T> streamByIdRange(IdRange range, CursorOptions options) {
+        return openStream("streamByIdRange", "range=" + range + ", options=" + options,
+                options.applyTo(entityCollection().find(range.toFilter()).sort(Sorts.ascending("_id"))));
+    }
 
-    public final List<T> findByIds(List<String> ids) {
-        logger.info("Find " + dbEntityName + " by ids: " + ids);
-        Bson filter = Filters.in("_id", ids);
-        return executeMeasuredQuery("findByIds", "ids=" + ids, () -> {
-            List<T> out = mongoCollection.find(filter).into(new ArrayList<>());
-            return out;
-        });
+    /**
+     * The {@code _id} of {@code entity} exactly as stored, e.g. to resume an {@link IdRange} after it.
+     * Only the first call encodes the whole entity, to learn whether ids are stored as strings or,
+     * for {@code @ObjectId} ids, as ObjectIds; later calls convert the id alone, so no
+     * {@code @Encrypted} field is re-encrypted per call.
+     */
+    public final BsonValue storedIdOf(T entity) {
+        BsonType idType = storedIdType;
+        if (idType == BsonType.STRING) {
+            return new BsonString(entity.getId());
+        }
+        if (idType == BsonType.OBJECT_ID) {
+            return new BsonObjectId(new ObjectId(entity.getId()));
+        }
+        BsonValue id = toBsonDocument(entity).get("_id");
+        if (id != null && (id.isString() || id.isObjectId())) {
+            storedIdType = id.getBsonType();
+        }
+        return id;
     }
 
-    public void forEachEntity(Consumer<T> consumer) {
-        executeMeasuredVoidQuery("forEachEntity", "consumer", () -> {
-            try (MongoCursor<T> cursor = mongoCollection.find().iterator()) {
-                while (cursor.hasNext()) {
-                    T entity = cursor.next();
-                    consumer.accept(entity);
-                }
-            }
-        });
+    private <R> Stream<R> openStream(String operationName, String details, MongoIterable<R> iterable) {
+        // Only opening the cursor (the first batch) is measured; the rest is paced by the consumer.
+        MongoCursor<R> cursor = executeMeasuredQuery(operationName, details, iterable::iterator);
+        Spliterator<R> spliterator = Spliterators.spliteratorUnknownSize(cursor,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
     }
 
     public List<T> findAll() {
         return executeMeasuredQuery("findAll", "", () -> {
             List<T> result = new ArrayList<>();
-            try (MongoCursor<T> cursor = mongoCollection.find().iterator()) {
+            try (MongoCursor<T> cursor = entityCollection().find().iterator()) {
                 while (cursor.hasNext()) {
                     result.add(cursor.next());
                 }
@@ -299,6 +1514,17 @@ public class CommonDao<T extends DbEntity> {
     public List<T> findWithFiltersAndSort(int limit, int skip,
                                           Map<String, Object> filters,
                                           Map<String, Boolean> sortFields) {
+        return findWithFiltersAndSort(limit, skip, filters, sortFields, ReadOptions.defaults());
+    }
+
+    /**
+     * {@link #findWithFiltersAndSort(int, int, Map, Map)} with the given read preference and read
+     * concern, e.g. {@link ReadOptions#secondaryPreferred(Duration)} to keep admin queries off the primary.
+     */
+    public List<T> findWithFiltersAndSort(int limit, int skip,
+                                          Map<String, Object> filters,
+                                          Map<String, Boolean> sortFields,
+                                          ReadOptions readOptions) {
         if (!dbEntityName.equals("NotificationCampaign")) {
             logger.info("Find {} with limit={}, skip={}, filters={}, sortFields={}",
                     dbEntityName, limit, skip, filters, sortFields);
@@ -334,12 +1560,13 @@ public class CommonDao<T extends DbEntity> {
             sort = Sorts.orderBy(sortList);
         }
 
-        String details = String.format("limit=%d, skip=%d, filters=%s, sortFields=%s", limit, skip, filters, sortFields);
+        String details = String.format("limit=%d, skip=%d, filters=%s, sortFields=%s, readOptions=%s",
+                limit, skip, filters, sortFields, readOptions);
         final Bson filterForQuery = filter;
         final Bson sortForQuery = sort;
         return executeMeasuredQuery("findWithFiltersAndSort", details, () -> {
             // 4. Build query
-            var baseQuery = mongoCollection.find(filterForQuery)
+            var baseQuery = readOptions.applyTo(entityCollection()).find(filterForQuery)
                     .limit(limit)
                     .skip(skip);
             var fetchQuery = sortForQuery != null ? baseQuery.sort(sortForQuery) : baseQuery;
@@ -366,22 +1593,101 @@ public class CommonDao<T extends DbEntity> {
     }
 
     public final List<T> findBySpecification(LimitSpecification specification) {
+        SpecificationResultCache<T> resultCache = specificationCaches.get(specification.getClass());
+        if (resultCache != null) {
+            Optional<List<T>> cached = resultCache.get(specification);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+        long cacheGeneration = resultCache != null ? resultCache.generation() : 0;
+
         if (!specification.getClass().getSimpleName().equals("LabReportByStatusSpecification")) {
             logger.info("Find {} by specification: {}", dbEntityName, specification);
         } else {
             logger.debug("Find {} by specification: {}", dbEntityName, specification);
         }
 
-        Bson filter = specification.filter();
-        Optional<Collation> collationO = specification.collation();
-
         String details = "specification=" + specification;
-        return executeMeasuredQuery("findBySpecification", details, () -> {
-            var findQuery = mongoCollection.find(filter)
-                    .sort(specification.sort())
-                    .limit(specification.getLimit())
-                    .skip(specification.getSkip());
+        List<T> entities = executeExplainableQuery("findBySpecification", details, specification.filter(), specification.sort(), () -> {
+            FindIterable<T> findQuery = specificationQuery(specification);
+
+            List<T> result = new ArrayList<>();
+            try (MongoCursor<T> cursor = findQuery.iterator()) {
+                while (cursor.hasNext()) {
+                    result.add(cursor.next());
+                }
+            }
+
+            return result;
+        }, () -> specificationQuery(specification).explain(ExplainVerbosity.EXECUTION_STATS));
+
+        if (resultCache != null) {
+            resultCache.put(specification, entities, cacheGeneration);
+        }
+        return entities;
+    }
+
+    /**
+     * Keyset (seek) pagination: returns one page of up to {@code specification.getLimit()} entities
+     * plus an opaque token for the next page. Pass {@code null} for the first page. Each page is a
+     * range query continuing after the previous page's last sort key tuple, so no documents are
+     * skipped server-side and deep pages cost the same as the first one.
+     *
+     * @throws IllegalArgumentException if the token is malformed or was issued for different sort keys
+     */
+    public final KeysetPage<T> findPageBySpecification(KeysetSpecification specification, String continuationToken) {
+        logger.debug("Find {} page by specification: {}", dbEntityName, specification);
+        return findKeysetPage("findPageBySpecification", "specification=" + specification,
+                specification.filter(), specification.sortKeys(), specification.getLimit(),
+                specification.collation(), readOptionsOf(specification), continuationToken);
+    }
+
+    /**
+     * Keyset (seek) counterpart of {@link #findWithBsonFilterAndSort}: instead of {@code skip}, the
+     * next page is addressed by the token returned with the previous one ({@code null} for the first
+     * page). {@code _id} is appended to {@code sortFields} as the final tie-breaker.
+     *
+     * @param sortFields ordered map of field names to sort order (true = ascending, false = descending).
+     *                   Can be null or empty, in which case pages are ordered by {@code _id}.
+     */
+    public KeysetPage<T> findPageWithBsonFilterAndSort(int limit, Bson filter,
+                                                       Map<String, Boolean> sortFields,
+                                                       String continuationToken) {
+        Bson finalFilter = (filter != null) ? filter : Filters.empty();
+        String details = String.format("limit=%d, filter=%s, sortFields=%s", limit, finalFilter, sortFields);
+        return findKeysetPage("findPageWithBsonFilterAndSort", details, finalFilter, sortFields, limit,
+                Optional.empty(), ReadOptions.defaults(), continuationToken);
+    }
+
+    private KeysetPage<T> findKeysetPage(String operationName, String details, Bson filter,
+                                         Map<String, Boolean> sortFields, int limit,
+                                         Optional<Collation> collationO, ReadOptions readOptions,
+                                         String continuationToken) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be > 0");
+        }
+
+        Map<String, Boolean> sortKeys = KeysetToken.withIdTieBreaker(sortFields);
+        List<Bson> sortList = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : sortKeys.entrySet()) {
+            sortList.add(entry.getValue()
+                    ? Sorts.ascending(entry.getKey())
+                    : Sorts.descending(entry.getKey()));
+        }
+
+        Bson pageFilter = filter;
+        if (continuationToken != null) {
+            List<BsonValue> lastValues = KeysetToken.decode(continuationToken, sortKeys);
+            pageFilter = Filters.and(filter, KeysetToken.seekFilter(sortKeys, lastValues));
+        }
 
+        final Bson filterForQuery = pageFilter;
+        List<T> items = executeMeasuredQuery(operationName, details, () -> {
+            // One extra document tells whether there is a next page without a second query.
+            var findQuery = readOptions.applyTo(entityCollection()).find(filterForQuery)
+                    .sort(Sorts.orderBy(sortList))
+                    .limit(limit + 1);
             if (collationO.isPresent()) {
                 findQuery = findQuery.collation(collationO.get());
             }
@@ -392,19 +1698,96 @@ public class CommonDao<T extends DbEntity> {
                     result.add(cursor.next());
                 }
             }
-
             return result;
         });
+
+        if (items.size() <= limit) {
+            return new KeysetPage<>(items, null);
+        }
+        List<T> page = new ArrayList<>(items.subList(0, limit));
+        String nextToken = KeysetToken.encode(sortKeys, toBsonDocument(page.getLast()));
+        return new KeysetPage<>(page, nextToken);
+    }
+
+    /**
+     * Encodes the entity exactly as it would be stored, through the collection's Jackson codec.
+     */
+    private BsonDocument toBsonDocument(T entity) {
+        BsonDocument document = new BsonDocument();
+        mongoCollection.getCodecRegistry().get(type)
+                .encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+        return document;
+    }
+
+    /**
+     * Projection-aware {@link #findBySpecification(LimitSpecification)}: only the projected fields
+     * are transferred and deserialized, so {@code @Encrypted} fields outside the projection cost
+     * neither bytes on the wire nor a decryption. The returned entities are partially populated;
+     * see {@link Projection}.
+     */
+    public final List<T> findBySpecification(LimitSpecification specification, Projection projection) {
+        logger.debug("Find {} by specification: {}, projection={}", dbEntityName, specification, projection);
+        String details = "specification=" + specification + ", projection=" + projection;
+        return executeMeasuredQuery("findBySpecificationWithProjection", details, () ->
+                specificationQuery(specification)
+                        .projection(projection.toBson())
+                        .into(new ArrayList<>()));
+    }
+
+    /**
+     * Reads the projected fields of matching documents into a lightweight view class instead of
+     * the entity. The view is deserialized with this DAO's mapper, so it must map the stored
+     * field names; an {@code @Encrypted} field is decrypted only if the view declares it with the
+     * same {@code @Encrypted} context.
+     */
+    public final <V> List<V> findBySpecification(LimitSpecification specification, Projection projection,
+                                                 Class<V> viewClass) {
+        logger.debug("Find {} as {} by specification: {}, projection={}",
+                dbEntityName, viewClass.getSimpleName(), specification, projection);
+        String details = "specification=" + specification + ", projection=" + projection
+                + ", viewClass=" + viewClass.getSimpleName();
+        return executeMeasuredQuery("findBySpecificationAsView", details, () ->
+                applySpecification(readOptionsOf(specification).applyTo(mongoCollection)
+                        .find(specification.filter(), viewClass), specification)
+                        .projection(projection.toBson())
+                        .into(new ArrayList<>()));
+    }
+
+    private FindIterable<T> specificationQuery(LimitSpecification specification) {
+        return applySpecification(readOptionsOf(specification).applyTo(entityCollection())
+                .find(specification.filter()), specification);
+    }
+
+    private static ReadOptions readOptionsOf(LimitSpecification specification) {
+        return specification.readOptions().orElse(ReadOptions.defaults());
+    }
+
+    private static <R> FindIterable<R> applySpecification(FindIterable<R> query, LimitSpecification specification) {
+        FindIterable<R> findQuery = query
+                .sort(specification.sort())
+                .limit(specification.getLimit())
+                .skip(specification.getSkip());
+
+        Optional<Collation> collationO = specification.collation();
+        if (collationO.isPresent()) {
+            findQuery = findQuery.collation(collationO.get());
+        }
+        return findQuery;
     }
 
     public final DeleteResult deleteBySpecification(LimitSpecification specification) {
         Bson filter = specification.filter();
-        return executeMeasuredQuery("deleteBySpecification", "specification=" + specification, () -> {
-            DeleteResult deleteResult = mongoCollection.deleteMany(filter);
-            logger.info("Deleted in " + dbEntityName + " "
-                    + deleteResult.getDeletedCount() + " documents by specification: " + specification);
-            return deleteResult;
-        });
+        try {
+            return executeMeasuredQuery("deleteBySpecification", "specification=" + specification, () -> {
+                DeleteResult deleteResult = mongoCollection.deleteMany(filter);
+                logger.info("Deleted in " + dbEntityName + " "
+                        + deleteResult.getDeletedCount() + " documents by specification: " + specification);
+                return deleteResult;
+            });
+        } finally {
+            // also when the call failed: the server may have applied the delete anyway
+            afterCollectionWrite();
+        }
     }
 
     public final boolean existsById(String id) {
@@ -413,34 +1796,96 @@ public class CommonDao<T extends DbEntity> {
 
     public final long countBySpecification(LimitSpecification specification) {
         Bson filter = specification.filter();
-        return executeMeasuredQuery("countBySpecification", "specification=" + specification, () ->
-                mongoCollection.countDocuments(filter));
+        return cachedCount(filter, readOptionsOf(specification), () -> executeMeasuredQuery("countBySpecification",
+                "specification=" + specification, () ->
+                        readOptionsOf(specification).applyTo(mongoCollection).countDocuments(filter)));
     }
 
-    public boolean deleteById(String id) {
-        return executeMeasuredQuery("deleteById", "id=" + id, () -> {
-            DeleteResult deleteResult = mongoCollection.removeById(id);
-            boolean deleted = deleteResult.getDeletedCount() == 1;
+    /**
+     * Whether any document matches the specification's filter. Stops at the first match
+     * ({@code limit(1)}, {@code _id} only) instead of counting all of them.
+     */
+    public final boolean existsBySpecification(LimitSpecification specification) {
+        Bson filter = specification.filter();
+        return executeMeasuredQuery("existsBySpecification", "specification=" + specification, () ->
+                readOptionsOf(specification).applyTo(mongoCollection).find(filter)
+                        .projection(Projections.include("_id"))
+                        .limit(1)
+                        .first() != null);
+    }
 
-            if (deleted) {
-                logger.info("{} deleted successfully: {}", dbEntityName, id);
-            } else {
-                logger.warn("{} not deleted (possibly not found): {}", dbEntityName, id);
-            }
+    public boolean deleteById(String id) {
+        try {
+            return executeMeasuredQuery("deleteById", "id=" + id, () -> {
+                DeleteResult deleteResult = mongoCollection.removeById(id);
+                boolean deleted = deleteResult.getDeletedCount() == 1;
+
+                if (deleted) {
+                    logger.info("{} deleted successfully: {}", dbEntityName, id);
+                } else {
+                    logger.warn("{} not deleted (possibly not found): {}", dbEntityName, id);
+                }
 
-            return deleted;
-        });
+                return deleted;
+            });
+        } finally {
+            afterEntityWrite(id);
+        }
     }
 
     public void deleteAll() {
-        executeMeasuredVoidQuery("deleteAll", "filter=empty", () -> {
-            DeleteResult deleteResult = mongoCollection.deleteMany(Filters.empty());
-            logger.info("{} deleted successfully: {} documents", dbEntityName, deleteResult.getDeletedCount());
-        });
+        try {
+            executeMeasuredVoidQuery("deleteAll", "filter=empty", () -> {
+                DeleteResult deleteResult = mongoCollection.deleteMany(Filters.empty());
+                logger.info("{} deleted successfully: {} documents", dbEntityName, deleteResult.getDeletedCount());
+            });
+        } finally {
+            afterCollectionWrite();
+        }
     }
 
+    /**
+     * Exact number of documents, counted by the server. See {@link #enableEstimatedUnfilteredCount()}
+     * for the metadata-based fast path and {@link #enableCountCache(int, Duration)} for caching.
+     */
     public final long count() {
-        return executeMeasuredQuery("count", "", mongoCollection::countDocuments);
+        if (estimatedUnfilteredCount) {
+            return estimatedCount();
+        }
+        return cachedCount(Filters.empty(), ReadOptions.defaults(),
+                () -> executeMeasuredQuery("count", "", mongoCollection::countDocuments));
+    }
+
+    /**
+     * Number of documents according to collection metadata: O(1) and no collection scan, but
+     * approximate (see {@link #enableEstimatedUnfilteredCount()}) and never filtered.
+     */
+    public final long estimatedCount() {
+        return executeMeasuredQuery("estimatedCount", "", mongoCollection::estimatedDocumentCount);
+    }
+
+    private long cachedCount(Bson filter, ReadOptions readOptions, Supplier<Long> counter) {
+        BoundedTtlCache<String, Long> cache = countCache;
+        if (cache == null) {
+            return counter.get();
+        }
+        // a count read from a secondary or at another read concern must not be served to primary readers
+        String key = filter.toBsonDocument(BsonDocument.class, mongoCollection.getCodecRegistry()).toJson()
+                + (readOptions.equals(ReadOptions.defaults()) ? "" : " " + readOptions);
+        Long cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = countCacheGeneration.get();
+        long count = counter.get();
+        // a count that raced with a write of this DAO is returned but not cached; the check and
+        // the put hold the cache's lock, like invalidateQueryCaches, so no invalidation falls between
+        synchronized (cache) {
+            if (countCacheGeneration.get() == generation) {
+                cache.put(key, count);
+            }
+        }
+        return count;
     }
 
     /**
@@ -459,6 +1904,16 @@ public class CommonDao<T extends DbEntity> {
     public List<T> findWithBsonFilterAndSort(int limit, int skip,
                                              Bson filter,
                                              Map<String, Boolean> sortFields) {
+        return findWithBsonFilterAndSort(limit, skip, filter, sortFields, ReadOptions.defaults());
+    }
+
+    /**
+     * {@link #findWithBsonFilterAndSort(int, int, Bson, Map)} with the given read preference and read concern.
+     */
+    public List<T> findWithBsonFilterAndSort(int limit, int skip,
+                                             Bson filter,
+                                             Map<String, Boolean> sortFields,
+                                             ReadOptions readOptions) {
         // 1. Validate limit
         if (limit <= 0) {
             throw new IllegalArgumentException("Limit must be > 0");
@@ -479,25 +1934,27 @@ public class CommonDao<T extends DbEntity> {
             sort = Sorts.orderBy(sortList);
         }
 
-        String details = String.format("limit=%d, skip=%d, filter=%s, sortFields=%s", limit, skip, finalFilter, sortFields);
+        String details = String.format("limit=%d, skip=%d, filter=%s, sortFields=%s, readOptions=%s",
+                limit, skip, finalFilter, sortFields, readOptions);
         final Bson sortForQuery = sort;
-        return executeMeasuredQuery("findWithBsonFilterAndSort", details, () -> {
-            // 4. Build query
-            var baseQuery = mongoCollection.find(finalFilter)
+        // 4. Build query
+        Supplier<FindIterable<T>> query = () -> {
+            var baseQuery = readOptions.applyTo(entityCollection()).find(finalFilter)
                     .limit(limit)
                     .skip(skip);
-            var fetchQuery = sortForQuery != null ? baseQuery.sort(sortForQuery) : baseQuery;
-
+            return sortForQuery != null ? baseQuery.sort(sortForQuery) : baseQuery;
+        };
+        return executeExplainableQuery("findWithBsonFilterAndSort", details, finalFilter, sortForQuery, () -> {
             // 5. Fetch results
             List<T> result = new ArrayList<>();
-            try (MongoCursor<T> cursor = fetchQuery.iterator()) {
+            try (MongoCursor<T> cursor = query.get().iterator()) {
                 while (cursor.hasNext()) {
                     result.add(cursor.next());
                 }
             }
 
             return result;
-        });
+        }, () -> query.get().explain(ExplainVerbosity.EXECUTION_STATS));
     }
 
     /**
@@ -509,8 +1966,13 @@ public class CommonDao<T extends DbEntity> {
     public long countWithBsonFilter(Bson filter) {
         Bson finalFilter = (filter != null) ? filter : Filters.empty();
         String details = "filter=" + finalFilter;
-        return executeMeasuredQuery("countWithBsonFilter", details, () ->
-                mongoCollection.countDocuments(finalFilter));
+        // countDocuments runs as this aggregation on the server, so its plan is explained instead
+        return executeExplainableQuery("countWithBsonFilter", details, finalFilter, null, () ->
+                mongoCollection.countDocuments(finalFilter), () ->
+                mongoCollection.aggregate(List.of(
+                                Aggregates.match(finalFilter),
+                                Aggregates.group(1, Accumulators.sum("n", 1))))
+                        .explain(ExplainVerbosity.EXECUTION_STATS));
     }
 
     /**
@@ -531,6 +1993,22 @@ public class CommonDao<T extends DbEntity> {
         });
     }
 
+    /**
+     * Streams the distinct values of a field instead of collecting them into a list.
+     * The returned stream holds an open cursor: always close it, e.g. with try-with-resources.
+     *
+     * @param filter Bson filter for querying. Can be null or Filters.empty().
+     */
+    public final <R> Stream<R> streamDistinct(String fieldName, Bson filter, Class<R> resultClass,
+                                              AggregationOptions options) {
+        Bson finalFilter = (filter != null) ? filter : Filters.empty();
+        String details = String.format("fieldName=%s, filter=%s, resultClass=%s, options=%s",
+                fieldName, finalFilter, resultClass, options);
+        return openStream("streamDistinct", details,
+                options.applyTo(options.getReadOptions().applyTo(mongoCollection)
+                        .distinct(fieldName, finalFilter, resultClass)));
+    }
+
     /**
      * Runs an aggregation pipeline and returns raw documents.
      * Use for custom aggregations that output non-entity documents (e.g. $group).
@@ -538,11 +2016,57 @@ public class CommonDao<T extends DbEntity> {
      * @param pipeline aggregation pipeline stages
      * @return list of result documents
      */
-    public List<org.bson.Document> runAggregation(List<Bson> pipeline) {
-        String details = "pipeline=" + pipeline;
+    public List<Document> runAggregation(List<Bson> pipeline) {
+        return runAggregation(pipeline, ReadOptions.defaults());
+    }
+
+    /**
+     * {@link #runAggregation(List)} with the given read preference and read concern, e.g. to run a
+     * report on a secondary. Pipelines ending in {@code $out} or {@code $merge} write, and need the primary.
+     */
+    public List<Document> runAggregation(List<Bson> pipeline, ReadOptions readOptions) {
+        String details = "pipeline=" + pipeline + ", readOptions=" + readOptions;
         return executeMeasuredQuery("runAggregation", details, () ->
-                database.getCollection(getCollectionName()).aggregate(pipeline)
+                readOptions.applyTo(rawCollection).aggregate(pipeline)
                         .into(new ArrayList<>()));
     }
 
+    /**
+     * Runs an aggregation pipeline and maps each result document to {@code resultClass} with this
+     * DAO's Jackson mapper, so result POJOs get the same Instant, LocalDate and {@code @Encrypted}
+     * handling as entities.
+     */
+    public <R> List<R> runAggregation(List<Bson> pipeline, Class<R> resultClass) {
+        return runAggregation(pipeline, resultClass, ReadOptions.defaults());
+    }
+
+    /** {@link #runAggregation(List, Class)} with the given read preference and read concern. */
+    public <R> List<R> runAggregation(List<Bson> pipeline, Class<R> resultClass, ReadOptions readOptions) {
+        String details = "pipeline=" + pipeline + ", resultClass=" + resultClass + ", readOptions=" + readOptions;
+        return executeMeasuredQuery("runAggregation", details, () ->
+                readOptions.applyTo(mongoCollection).aggregate(pipeline, resultClass)
+                        .into(new ArrayList<>()));
+    }
+
+    /**
+     * Streams the raw result documents of an aggregation pipeline, so large reports (e.g. a
+     * {@code $group} over the whole collection) can be exported without buffering them.
+     * The returned stream holds an open cursor: always close it, e.g. with try-with-resources.
+     */
+    public final Stream<Document> streamAggregation(List<Bson> pipeline, AggregationOptions options) {
+        return openStream("streamAggregation", "pipeline=" + pipeline + ", options=" + options,
+                options.applyTo(options.getReadOptions().applyTo(rawCollection).aggregate(pipeline)));
+    }
+
+    /**
+     * Typed variant of {@link #streamAggregation(List, AggregationOptions)}: results are mapped to
+     * {@code resultClass} with this DAO's Jackson mapper, as in {@link #runAggregation(List, Class)}.
+     */
+    public final <R> Stream<R> streamAggregation(List<Bson> pipeline, Class<R> resultClass,
+                                                 AggregationOptions options) {
+        String details = "pipeline=" + pipeline + ", resultClass=" + resultClass + ", options=" + options;
+        return openStream("streamAggregation", details,
+                options.applyTo(options.getReadOptions().applyTo(mongoCollection).aggregate(pipeline, resultClass)));
+    }
+
 }
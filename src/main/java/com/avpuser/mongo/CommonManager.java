@@ -4,19 +4,22 @@ import com.mongodb.client.result.DeleteResult;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.bson.conversions.Bson;
 
 /**
  * Full entity reads and writes use the configured Jackson mapper and therefore
  * support transparent {@code @Encrypted} field encryption and decryption.
- * Raw MongoDB operations such as aggregation, distinct, BSON filters, and
- * partial updates operate on stored ciphertext and require explicit handling
- * of encrypted and lookup fields.
+ * Partial updates ({@link PartialUpdate}) encrypt {@code @Encrypted} values and
+ * maintain their lookup fields the same way. Raw MongoDB operations such as
+ * aggregation, distinct and BSON filters operate on stored ciphertext and
+ * require explicit handling of encrypted and lookup fields.
  */
 public abstract class CommonManager<T extends DbEntity> {
 
@@ -44,18 +47,58 @@ public abstract class CommonManager<T extends DbEntity> {
         return dao.insert(entity);
     }
 
+    public BulkInsertResult insertAll(Collection<T> entities) {
+        return dao.insertAll(entities);
+    }
+
     public void update(T entity) {
         dao.update(entity);
     }
 
+    public BulkUpdateResult updateAll(Collection<T> entities) {
+        return dao.updateAll(entities);
+    }
+
+    public long updateFields(String id, long expectedVersion, PartialUpdate update) {
+        return dao.updateFields(id, expectedVersion, update);
+    }
+
+    public T findOneAndUpdate(String id, long expectedVersion, PartialUpdate update) {
+        return dao.findOneAndUpdate(id, expectedVersion, update);
+    }
+
+    public void upsert(T entity) {
+        dao.upsert(entity);
+    }
+
     public Optional<T> findById(String id) {
         return dao.findById(id);
     }
 
+    public Optional<T> findById(String id, Projection projection) {
+        return dao.findById(id, projection);
+    }
+
     public void forEachEntity(Consumer<T> consumer) {
         dao.forEachEntity(consumer);
     }
 
+    public void forEachEntity(Consumer<T> consumer, CursorOptions options) {
+        dao.forEachEntity(consumer, options);
+    }
+
+    public void parallelForEach(Consumer<T> consumer, int parallelism) {
+        dao.parallelForEach(consumer, parallelism);
+    }
+
+    public Stream<T> stream(CursorOptions options) {
+        return dao.stream(options);
+    }
+
+    public Stream<T> streamBySpecification(LimitSpecification specification, CursorOptions options) {
+        return dao.streamBySpecification(specification, options);
+    }
+
     public T findByIdOrThrow(String id) {
         return dao.findByIdOrThrow(id);
     }
@@ -64,6 +107,10 @@ public abstract class CommonManager<T extends DbEntity> {
         return dao.findByIds(ids);
     }
 
+    public FindByIdsResult<T> findByIdsInOrder(List<String> ids) {
+        return dao.findByIdsInOrder(ids);
+    }
+
     public List<T> findAll() {
         return dao.findAll();
     }
@@ -72,6 +119,18 @@ public abstract class CommonManager<T extends DbEntity> {
         return dao.findBySpecification(specification);
     }
 
+    public List<T> findBySpecification(LimitSpecification specification, Projection projection) {
+        return dao.findBySpecification(specification, projection);
+    }
+
+    public <V> List<V> findBySpecification(LimitSpecification specification, Projection projection, Class<V> viewClass) {
+        return dao.findBySpecification(specification, projection, viewClass);
+    }
+
+    public KeysetPage<T> findPageBySpecification(KeysetSpecification specification, String continuationToken) {
+        return dao.findPageBySpecification(specification, continuationToken);
+    }
+
     public DeleteResult deleteBySpecification(LimitSpecification specification) {
         return dao.deleteBySpecification(specification);
     }
@@ -97,7 +156,11 @@ public abstract class CommonManager<T extends DbEntity> {
     }
 
     public final boolean existsBySpecification(LimitSpecification specification) {
-        return countBySpecification(specification) > 0;
+        return dao.existsBySpecification(specification);
+    }
+
+    public long estimatedCount() {
+        return dao.estimatedCount();
     }
 
     public final Optional<T> findSingleBySpecification(LimitSpecification specification) {
@@ -108,10 +171,19 @@ public abstract class CommonManager<T extends DbEntity> {
         return dao.findWithFiltersAndSort(limit, skip, filters, sortFields);
     }
 
+    public List<T> findWithFiltersAndSort(int limit, int skip, Map<String, Object> filters, Map<String, Boolean> sortFields,
+                                          ReadOptions readOptions) {
+        return dao.findWithFiltersAndSort(limit, skip, filters, sortFields, readOptions);
+    }
+
     public List<T> findWithBsonFilterAndSort(int limit, int skip, org.bson.conversions.Bson filter, Map<String, Boolean> sortFields) {
         return dao.findWithBsonFilterAndSort(limit, skip, filter, sortFields);
     }
 
+    public KeysetPage<T> findPageWithBsonFilterAndSort(int limit, Bson filter, Map<String, Boolean> sortFields, String continuationToken) {
+        return dao.findPageWithBsonFilterAndSort(limit, filter, sortFields, continuationToken);
+    }
+
     public long countWithBsonFilter(org.bson.conversions.Bson filter) {
         return dao.countWithBsonFilter(filter);
     }
@@ -135,6 +207,15 @@ public abstract class CommonManager<T extends DbEntity> {
         return dao.distinct(fieldName, filter, resultClass);
     }
 
+    /**
+     * Streaming variant of {@link #distinct(String, Bson, Class)}, with the same caveats for
+     * encrypted fields. Must be closed.
+     */
+    public <R> Stream<R> streamDistinct(String fieldName, Bson filter, Class<R> resultClass,
+                                        AggregationOptions options) {
+        return dao.streamDistinct(fieldName, filter, resultClass, options);
+    }
+
     /**
      * Executes a raw MongoDB aggregation pipeline.
      * <p>
@@ -158,4 +239,34 @@ public abstract class CommonManager<T extends DbEntity> {
         return dao.runAggregation(pipeline);
     }
 
+    /**
+     * Runs an aggregation pipeline and maps the results to {@code resultClass} through the
+     * configured Jackson mapper. The caveats of {@link #runAggregation(List)} apply to the stages.
+     */
+    public <R> List<R> runAggregation(List<Bson> pipeline, Class<R> resultClass) {
+        return dao.runAggregation(pipeline, resultClass);
+    }
+
+    /**
+     * {@link #runAggregation(List, Class)} with the given read preference and read concern, e.g. to
+     * run a report on a secondary.
+     */
+    public <R> List<R> runAggregation(List<Bson> pipeline, Class<R> resultClass, ReadOptions readOptions) {
+        return dao.runAggregation(pipeline, resultClass, readOptions);
+    }
+
+    /**
+     * Streaming variant of {@link #runAggregation(List)}. Must be closed.
+     */
+    public Stream<org.bson.Document> streamAggregation(List<Bson> pipeline, AggregationOptions options) {
+        return dao.streamAggregation(pipeline, options);
+    }
+
+    /**
+     * Streaming variant of {@link #runAggregation(List, Class)}. Must be closed.
+     */
+    public <R> Stream<R> streamAggregation(List<Bson> pipeline, Class<R> resultClass, AggregationOptions options) {
+        return dao.streamAggregation(pipeline, resultClass, options);
+    }
+
 }
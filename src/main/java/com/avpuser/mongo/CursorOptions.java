@@ -0,0 +1,76 @@
+package com.avpuser.mongo;
+
+import com.mongodb.client.FindIterable;
+import lombok.Getter;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cursor tuning for the streaming reads of {@link CommonDao}. Immutable; start from
+ * {@link #defaults()} and derive variants with the {@code with...} methods.
+ * <ul>
+ *     <li>{@code batchSize} - documents per {@code getMore} round trip; {@code null} keeps the driver default.</li>
+ *     <li>{@code noCursorTimeout} - keeps the server from closing an idle cursor after 10 minutes.
+ *     Such a cursor must always be closed by the caller.</li>
+ *     <li>{@code maxTime} - server-side time limit for the query; {@code null} means no limit.</li>
+ * </ul>
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class CursorOptions {
+
+    private static final CursorOptions DEFAULTS = new CursorOptions(null, false, null);
+
+    private final Integer batchSize;
+
+    private final boolean noCursorTimeout;
+
+    private final Duration maxTime;
+
+    private CursorOptions(Integer batchSize, boolean noCursorTimeout, Duration maxTime) {
+        if (batchSize != null && batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be > 0");
+        }
+        this.batchSize = batchSize;
+        this.noCursorTimeout = noCursorTimeout;
+        this.maxTime = maxTime;
+    }
+
+    public static CursorOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public static CursorOptions ofBatchSize(int batchSize) {
+        return DEFAULTS.withBatchSize(batchSize);
+    }
+
+    public CursorOptions withBatchSize(int batchSize) {
+        return new CursorOptions(batchSize, noCursorTimeout, maxTime);
+    }
+
+    public CursorOptions withNoCursorTimeout(boolean noCursorTimeout) {
+        return new CursorOptions(batchSize, noCursorTimeout, maxTime);
+    }
+
+    public CursorOptions withMaxTime(Duration maxTime) {
+        return new CursorOptions(batchSize, noCursorTimeout, maxTime);
+    }
+
+    <R> FindIterable<R> applyTo(FindIterable<R> findQuery) {
+        FindIterable<R> result = findQuery;
+        if (batchSize != null) {
+            result = result.batchSize(batchSize);
+        }
+        if (noCursorTimeout) {
+            result = result.noCursorTimeout(true);
+        }
+        if (maxTime != null) {
+            result = result.maxTime(maxTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+package com.avpuser.mongo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of {@link CommonDao#findByIdsInOrder}: the entities found, keyed by id in the order the
+ * ids were requested (duplicates collapsed), and the requested ids that matched no document.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class FindByIdsResult<T extends DbEntity> {
+
+    private final Map<String, T> found = new LinkedHashMap<>();
+
+    private final List<String> missingIds = new ArrayList<>();
+
+    /** Found entities in the order their ids were requested. */
+    public List<T> getEntities() {
+        return new ArrayList<>(found.values());
+    }
+
+    public boolean hasMissing() {
+        return !missingIds.isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package com.avpuser.mongo;
+
+import com.mongodb.client.model.Filters;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A contiguous slice of the {@code _id} space of one collection, as produced by
+ * {@link CommonDao#splitIdRanges(int)}. A {@code null} bound is unbounded. The upper bound is
+ * always exclusive; the lower bound is inclusive, except for ranges resumed after an already
+ * processed id ({@link #resumeAfter(BsonValue)}).
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class IdRange {
+
+    private static final IdRange ALL = new IdRange(null, true, null);
+
+    private final BsonValue lower;
+
+    private final boolean lowerInclusive;
+
+    private final BsonValue upper;
+
+    private IdRange(BsonValue lower, boolean lowerInclusive, BsonValue upper) {
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+    }
+
+    public static IdRange all() {
+        return ALL;
+    }
+
+    public static IdRange of(BsonValue lowerInclusive, BsonValue upperExclusive) {
+        return new IdRange(lowerInclusive, true, upperExclusive);
+    }
+
+    /** Ranges covering the whole {@code _id} space, split at the given ascending boundaries. */
+    static List<IdRange> between(List<BsonValue> boundaries) {
+        List<IdRange> ranges = new ArrayList<>(boundaries.size() + 1);
+        BsonValue lower = null;
+        for (BsonValue boundary : boundaries) {
+            ranges.add(of(lower, boundary));
+            lower = boundary;
+        }
+        ranges.add(of(lower, null));
+        return ranges;
+    }
+
+    /** The rest of this range once every id up to and including {@code lastProcessedId} is done. */
+    public IdRange resumeAfter(BsonValue lastProcessedId) {
+        return new IdRange(lastProcessedId, false, upper);
+    }
+
+    Bson toFilter() {
+        List<Bson> bounds = new ArrayList<>(2);
+        if (lower != null) {
+            bounds.add(lowerInclusive ? Filters.gte("_id", lower) : Filters.gt("_id", lower));
+        }
+        if (upper != null) {
+            bounds.add(Filters.lt("_id", upper));
+        }
+        return switch (bounds.size()) {
+            case 0 -> Filters.empty();
+            case 1 -> bounds.getFirst();
+            default -> Filters.and(bounds);
+        };
+    }
+
+    /** Storable form, e.g. for resume checkpoints; see {@link #fromBsonDocument(BsonDocument)}. */
+    public BsonDocument toBsonDocument() {
+        BsonDocument document = new BsonDocument("lowerInclusive", BsonBoolean.valueOf(lowerInclusive));
+        if (lower != null) {
+            document.append("lower", lower);
+        }
+        if (upper != null) {
+            document.append("upper", upper);
+        }
+        return document;
+    }
+
+    public static IdRange fromBsonDocument(BsonDocument document) {
+        return new IdRange(document.get("lower"),
+                document.getBoolean("lowerInclusive", BsonBoolean.TRUE).getValue(),
+                document.get("upper"));
+    }
+}
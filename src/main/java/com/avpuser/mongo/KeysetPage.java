@@ -0,0 +1,25 @@
+package com.avpuser.mongo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query. {@link #getNextToken()} is an opaque continuation token to
+ * pass to the next call, or {@code null} when this is the last page.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class KeysetPage<T> {
+
+    private final List<T> items;
+
+    private final String nextToken;
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.avpuser.mongo;
+
+import com.mongodb.client.model.Sorts;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Specification for keyset (seek) pagination via {@link CommonDao#findPageBySpecification}.
+ * <p>
+ * Instead of skipping {@code skip} documents, every page continues strictly after the sort key
+ * tuple of the last document of the previous page, so deep pages cost the same as the first one
+ * as long as an index covers {@link #filter()} followed by {@link #sortKeys()}.
+ * {@code _id} is always appended as the final tie-breaker, which makes the order total.
+ * Sort key fields are expected to be present and non-null on every matched document.
+ */
+public abstract class KeysetSpecification extends LimitSpecification {
+
+    public KeysetSpecification(int limit) {
+        super(limit, 0);
+    }
+
+    /**
+     * Sort key tuple in priority order: field name to sort order (true = ascending, false = descending).
+     * Return an ordered map (e.g. {@link java.util.LinkedHashMap}); iteration order defines the tuple.
+     */
+    public abstract Map<String, Boolean> sortKeys();
+
+    @Override
+    public final Bson sort() {
+        List<Bson> sortList = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : KeysetToken.withIdTieBreaker(sortKeys()).entrySet()) {
+            sortList.add(entry.getValue()
+                    ? Sorts.ascending(entry.getKey())
+                    : Sorts.descending(entry.getKey()));
+        }
+        return Sorts.orderBy(sortList);
+    }
+}
@@ -0,0 +1,122 @@
+package com.avpuser.mongo;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes keyset continuation tokens and builds the matching seek filter.
+ * A token carries the sort field names together with the last seen values, so a token issued
+ * for one sort order is rejected instead of silently seeking with another.
+ */
+final class KeysetToken {
+
+    private static final String ID_FIELD = "_id";
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
+
+    private KeysetToken() {
+    }
+
+    static Map<String, Boolean> withIdTieBreaker(Map<String, Boolean> sortKeys) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (sortKeys != null) {
+            result.putAll(sortKeys);
+        }
+        result.putIfAbsent(ID_FIELD, true);
+        return result;
+    }
+
+    static String encode(Map<String, Boolean> sortKeys, BsonDocument lastDocument) {
+        BsonArray fields = new BsonArray();
+        BsonArray values = new BsonArray();
+        for (String field : sortKeys.keySet()) {
+            fields.add(new BsonString(field));
+            values.add(valueAt(lastDocument, field));
+        }
+        BsonDocument token = new BsonDocument("f", fields).append("v", values);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(token.toJson(JSON_SETTINGS).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Values of a token issued by {@link #encode} for the same sort keys.
+     *
+     * @throws IllegalArgumentException if the token is not such a token: not Base64 or JSON, not
+     *                                  of the expected structure, or issued for other sort keys
+     */
+    static List<BsonValue> decode(String token, Map<String, Boolean> sortKeys) {
+        BsonDocument document;
+        try {
+            document = BsonDocument.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed continuation token", e);
+        }
+
+        BsonValue fields = document.get("f");
+        BsonValue values = document.get("v");
+        if (fields == null || !fields.isArray() || values == null || !values.isArray()) {
+            throw new IllegalArgumentException("Malformed continuation token: expected arrays 'f' and 'v'");
+        }
+        List<String> actualFields = new ArrayList<>();
+        for (BsonValue field : fields.asArray()) {
+            if (!field.isString()) {
+                throw new IllegalArgumentException("Malformed continuation token: non-string sort key " + field);
+            }
+            actualFields.add(field.asString().getValue());
+        }
+
+        List<String> expectedFields = new ArrayList<>(sortKeys.keySet());
+        if (!expectedFields.equals(actualFields)) {
+            throw new IllegalArgumentException("Continuation token was issued for sort keys " + actualFields
+                    + ", but the query sorts by " + expectedFields);
+        }
+        if (values.asArray().size() != expectedFields.size()) {
+            throw new IllegalArgumentException("Malformed continuation token: " + values.asArray().size()
+                    + " value(s) for " + expectedFields.size() + " sort key(s)");
+        }
+        return values.asArray();
+    }
+
+    /**
+     * Filter matching documents strictly after {@code lastValues} in the given sort order:
+     * {@code (k0 > v0) OR (k0 = v0 AND k1 > v1) OR ...}, with {@code <} for descending keys.
+     */
+    static BsonDocument seekFilter(Map<String, Boolean> sortKeys, List<BsonValue> lastValues) {
+        List<String> fields = new ArrayList<>(sortKeys.keySet());
+        BsonArray branches = new BsonArray();
+        for (int i = 0; i < fields.size(); i++) {
+            BsonArray conditions = new BsonArray();
+            for (int j = 0; j < i; j++) {
+                conditions.add(new BsonDocument(fields.get(j), new BsonDocument("$eq", lastValues.get(j))));
+            }
+            String operator = sortKeys.get(fields.get(i)) ? "$gt" : "$lt";
+            conditions.add(new BsonDocument(fields.get(i), new BsonDocument(operator, lastValues.get(i))));
+            branches.add(conditions.size() == 1 ? conditions.getFirst() : new BsonDocument("$and", conditions));
+        }
+        return new BsonDocument("$or", branches);
+    }
+
+    private static BsonValue valueAt(BsonDocument document, String path) {
+        BsonValue current = document;
+        for (String part : path.split("\\.")) {
+            if (current == null || !current.isDocument()) {
+                return BsonNull.VALUE;
+            }
+            current = current.asDocument().get(part);
+        }
+        return current != null ? current : BsonNull.VALUE;
+    }
+}
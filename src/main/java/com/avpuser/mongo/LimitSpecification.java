@@ -39,4 +39,9 @@ public abstract class LimitSpecification {
         return Optional.empty();
     }
 
+    /** Read preference and read concern for this query; empty reads with the collection's settings. */
+    public Optional<ReadOptions> readOptions() {
+        return Optional.empty();
+    }
+
 }
\ No newline at end of file
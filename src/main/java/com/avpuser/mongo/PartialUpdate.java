@@ -0,0 +1,68 @@
+package com.avpuser.mongo;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field-level changes for {@link CommonDao#updateFields(String, long, PartialUpdate)}: only the
+ * named fields are sent, instead of the whole reserialized document.
+ * <pre>{@code
+ *     dao.updateFields(order.getId(), order.getVersion(), PartialUpdate.create()
+ *             .set("status", OrderStatus.PAID)
+ *             .inc("paymentAttempts", 1));
+ * }</pre>
+ * Values are converted with the DAO's own object mapper, so they are stored exactly as inside a
+ * full entity write. {@code version} and {@code updatedAt} are maintained by the DAO and may not
+ * be named here; neither may {@code _id}.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class PartialUpdate {
+
+    private final Map<String, Object> sets = new LinkedHashMap<>();
+
+    private final Map<String, Number> increments = new LinkedHashMap<>();
+
+    private final Map<String, Object> pushes = new LinkedHashMap<>();
+
+    private final List<String> unsets = new ArrayList<>();
+
+    private PartialUpdate() {
+    }
+
+    public static PartialUpdate create() {
+        return new PartialUpdate();
+    }
+
+    public PartialUpdate set(String field, Object value) {
+        sets.put(field, value);
+        return this;
+    }
+
+    public PartialUpdate inc(String field, Number amount) {
+        increments.put(field, amount);
+        return this;
+    }
+
+    /** Appends {@code value} to the array {@code field}, creating the array if absent. */
+    public PartialUpdate push(String field, Object value) {
+        pushes.put(field, value);
+        return this;
+    }
+
+    public PartialUpdate unset(String field) {
+        unsets.add(field);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return sets.isEmpty() && increments.isEmpty() && pushes.isEmpty() && unsets.isEmpty();
+    }
+}
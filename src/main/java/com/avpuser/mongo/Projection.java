@@ -0,0 +1,50 @@
+package com.avpuser.mongo;
+
+import com.mongodb.client.model.Projections;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of stored field names to fetch on projection-aware reads of {@link CommonDao}.
+ * {@code _id} is always included. Fields outside the projection are not transferred by the
+ * server and, for {@code @Encrypted} fields, never decrypted.
+ * <p>
+ * An entity read with a projection is only partially populated: never pass it to
+ * {@link CommonDao#update(DbEntity)} or {@link CommonDao#updateAll}, as the full replace would
+ * erase every field that was left out.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class Projection {
+
+    private final Set<String> fields;
+
+    private Projection(Set<String> fields) {
+        this.fields = Collections.unmodifiableSet(fields);
+    }
+
+    public static Projection include(String... fields) {
+        if (fields == null || fields.length == 0) {
+            throw new IllegalArgumentException("Projection must include at least one field");
+        }
+        Set<String> result = new LinkedHashSet<>();
+        result.add("_id");
+        result.addAll(Arrays.asList(fields));
+        return new Projection(result);
+    }
+
+    Bson toBson() {
+        List<String> fieldNames = new ArrayList<>(fields);
+        return Projections.include(fieldNames);
+    }
+}
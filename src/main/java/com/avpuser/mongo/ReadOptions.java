@@ -0,0 +1,72 @@
+package com.avpuser.mongo;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoCollection;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where and with which consistency a read of {@link CommonDao} runs, for moving reports and admin
+ * queries off the primary. Immutable; start from {@link #defaults()} or
+ * {@link #secondaryPreferred(Duration)} and derive variants with the {@code with...} methods.
+ * <ul>
+ *     <li>{@code readPreference} - which replica set members may serve the read; {@code null} keeps
+ *     the collection's setting (by default the primary).</li>
+ *     <li>{@code readConcern} - e.g. {@link ReadConcern#MAJORITY} to read only majority-committed data;
+ *     {@code null} keeps the collection's setting.</li>
+ * </ul>
+ * Reads from a secondary may miss writes made just before, including this DAO's own.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class ReadOptions {
+
+    private static final ReadOptions DEFAULTS = new ReadOptions(null, null);
+
+    private final ReadPreference readPreference;
+
+    private final ReadConcern readConcern;
+
+    private ReadOptions(ReadPreference readPreference, ReadConcern readConcern) {
+        this.readPreference = readPreference;
+        this.readConcern = readConcern;
+    }
+
+    public static ReadOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Secondaries lagging the primary by at most {@code maxStaleness} (the server requires at least
+     * 90 seconds), falling back to the primary when none qualifies.
+     */
+    public static ReadOptions secondaryPreferred(Duration maxStaleness) {
+        return DEFAULTS.withReadPreference(
+                ReadPreference.secondaryPreferred(maxStaleness.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    public ReadOptions withReadPreference(ReadPreference readPreference) {
+        return new ReadOptions(readPreference, readConcern);
+    }
+
+    public ReadOptions withReadConcern(ReadConcern readConcern) {
+        return new ReadOptions(readPreference, readConcern);
+    }
+
+    <C> MongoCollection<C> applyTo(MongoCollection<C> collection) {
+        MongoCollection<C> result = collection;
+        if (readPreference != null) {
+            result = result.withReadPreference(readPreference);
+        }
+        if (readConcern != null) {
+            result = result.withReadConcern(readConcern);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,410 @@
+package com.avpuser.mongo;
+
+import com.avpuser.mongo.cache.JacksonEntityCopier;
+import com.avpuser.mongo.exception.EntityNotFoundException;
+import com.avpuser.mongo.exception.VersionConflictException;
+import com.avpuser.mongo.typeconverter.MongoObjectMapperFactory;
+import com.mongodb.MongoException;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoNodeIsRecoveringException;
+import com.mongodb.MongoNotPrimaryException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Write-behind buffer for entities that are updated many times in quick succession, such as
+ * progress or status fields. Instead of one versioned replace per change, {@link #submit} parks
+ * a copy of the entity by id; a later submit for the same id replaces the parked one, and every
+ * {@code window} all parked entities go out through {@link CommonDao#updateAll}, i.e. one bulk
+ * write per batch with the usual version checks.
+ * <pre>{@code
+ * WriteCoalescer<Job> jobs = new WriteCoalescer<>(jobDao, WriteCoalescerOptions.defaults());
+ * jobs.registerShutdownHook();
+ * job.setProgress(42);
+ * jobs.submit(job);
+ * }</pre>
+ * <p>
+ * {@code submit} takes a deep copy, so the caller may keep modifying its instance; the instance
+ * itself is never touched, its {@code version} included. The version written to the database is
+ * reported through the future {@code submit} returns. An instance that still carries the version
+ * it had when this coalescer last wrote its id is written on top of that write, so a caller that
+ * keeps submitting the same instance does not conflict with its own earlier writes; a write by
+ * anyone else in between is still a conflict. Reads through the DAO do not see parked updates
+ * until they are flushed.
+ * <p>
+ * At most {@code maxPending} distinct ids are parked: beyond that {@code submit} triggers a flush
+ * and waits up to {@code submitTimeout} for room (updates to an already parked id always merge
+ * without waiting). Conflicting and missing entities are not thrown but logged, fail their
+ * futures and are handed to the optional {@code onFlushed} callback with the rest of the
+ * {@link BulkUpdateResult}. If a bulk write fails with a transient error (network, timeout,
+ * primary step-down, or an error labelled retryable), the entities it carried are parked again -
+ * unless a newer one for the same id arrived meanwhile - and retried with the next flush. Any
+ * other failure, e.g. a schema validation error, would fail again on every retry: the batch is
+ * dropped, its futures fail with that exception, and it is handed to the optional
+ * {@code onFailed} callback, so it never blocks the entities behind it.
+ * <p>
+ * {@link #close()} stops the timer and flushes what is left; {@link #registerShutdownHook()} does
+ * the same on JVM shutdown.
+ */
+public class WriteCoalescer<T extends DbEntity> implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(WriteCoalescer.class);
+
+    private static final String RETRYABLE_WRITE_ERROR_LABEL = "RetryableWriteError";
+
+    private final CommonDao<T> dao;
+    private final WriteCoalescerOptions options;
+    private final Consumer<BulkUpdateResult> onFlushed;
+    private final BiConsumer<List<T>, RuntimeException> onFailed;
+    private final UnaryOperator<T> copier;
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // guarded by lock
+    private LinkedHashMap<String, Parked<T>> pending = new LinkedHashMap<>();
+    // guarded by lock: id -> {version the caller submitted, version written for it}, bounded by maxPending
+    private final LinkedHashMap<String, long[]> lastWritten;
+    private boolean closed;
+
+    // one flush at a time, so two writes of the same id never race each other
+    private final Object flushMonitor = new Object();
+
+    private final AtomicLong mergedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicBoolean shutdownHookRegistered = new AtomicBoolean();
+
+    public WriteCoalescer(CommonDao<T> dao, WriteCoalescerOptions options) {
+        this(dao, options, null, null);
+    }
+
+    public WriteCoalescer(CommonDao<T> dao, WriteCoalescerOptions options, Consumer<BulkUpdateResult> onFlushed) {
+        this(dao, options, onFlushed, null);
+    }
+
+    /**
+     * @param onFlushed called after each flush with the combined outcome; may be {@code null}
+     * @param onFailed  dead-letter callback for batches dropped after a non-transient write error,
+     *                  with that error; may be {@code null}
+     */
+    public WriteCoalescer(CommonDao<T> dao, WriteCoalescerOptions options, Consumer<BulkUpdateResult> onFlushed,
+                          BiConsumer<List<T>, RuntimeException> onFailed) {
+        this.dao = dao;
+        this.options = options;
+        this.onFlushed = onFlushed;
+        this.onFailed = onFailed;
+        this.copier = new JacksonEntityCopier<>(MongoObjectMapperFactory.sharedObjectMapper(null), dao.getType());
+        int maxRemembered = options.getMaxPending();
+        this.lastWritten = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                return size() > maxRemembered;
+            }
+        };
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("write-coalescer-" + dao.getCollectionName()).factory());
+        long windowMillis = Math.max(1, options.getWindow().toMillis());
+        scheduler.scheduleWithFixedDelay(this::flushInBackground, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Parks a copy of the entity for the next flush, replacing any entity parked for the same id.
+     * The returned future completes with the entity's new version once a write carrying this
+     * submit (or a later one for the same id that replaced it) succeeded, or exceptionally with
+     * {@link VersionConflictException}, {@link EntityNotFoundException} or the write error if it
+     * was dropped. It completes on the flushing thread; keep callbacks short.
+     *
+     * @throws IllegalStateException if the coalescer is closed, or still full after {@code submitTimeout}
+     */
+    public CompletableFuture<Long> submit(T entity) {
+        String id = entity.getId();
+        if (id == null) {
+            throw new IllegalArgumentException("Entity to coalesce must have an id");
+        }
+        T copy = copier.apply(entity);
+        CompletableFuture<Long> written = new CompletableFuture<>();
+        lock.lock();
+        try {
+            long remainingNanos = options.getSubmitTimeout().toNanos();
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("Write coalescer of " + dao.getCollectionName() + " is closed");
+                }
+                Parked<T> previous = pending.get(id);
+                if (previous != null || pending.size() < options.getMaxPending()) {
+                    Parked<T> parked = new Parked<>(rebase(id, copy), entity.getVersion());
+                    if (previous != null) {
+                        parked.waiters.addAll(previous.waiters);
+                        mergedCount.incrementAndGet();
+                    }
+                    parked.waiters.add(written);
+                    pending.put(id, parked);
+                    return written;
+                }
+                if (remainingNanos <= 0) {
+                    throw new IllegalStateException("Write coalescer of " + dao.getCollectionName() + " is full: "
+                            + pending.size() + " pending updates");
+                }
+                requestFlush();
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room in write coalescer of "
+                    + dao.getCollectionName(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything parked so far, in batches of {@code batchSize}, and returns the combined
+     * outcome. If a bulk write throws a transient error, the entities not yet written are parked
+     * again and the exception is rethrown; a batch failing with any other error is dropped (see
+     * the class comment) and the remaining batches are still written.
+     */
+    public BulkUpdateResult flush() {
+        synchronized (flushMonitor) {
+            BulkUpdateResult result = new BulkUpdateResult();
+            List<Parked<T>> parked = drain();
+            if (parked.isEmpty()) {
+                return result;
+            }
+            int written = 0;
+            while (written < parked.size()) {
+                List<Parked<T>> batch = parked.subList(written, Math.min(written + options.getBatchSize(), parked.size()));
+                List<T> entities = batch.stream().map(entry -> entry.entity).toList();
+                try {
+                    // updateAll leaves the versions of entities it did not write as they were
+                    BulkUpdateResult batchResult = dao.updateAll(entities);
+                    complete(batch, batchResult);
+                    result.addAll(batchResult);
+                } catch (RuntimeException e) {
+                    if (isTransient(e)) {
+                        repark(parked.subList(written, parked.size()));
+                        logger.error("Flush of {} coalesced updates to {} failed; they are kept for the next flush",
+                                parked.size() - written, dao.getCollectionName(), e);
+                        throw e;
+                    }
+                    drop(batch, entities, e);
+                }
+                written += batch.size();
+            }
+            report(result);
+            return result;
+        }
+    }
+
+    /** Number of distinct ids waiting to be written. */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of submits that replaced an already parked entity instead of causing a write of their own. */
+    public long getMergedCount() {
+        return mergedCount.get();
+    }
+
+    /** Number of entities dropped after a non-transient write error. */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /** Closes this coalescer, flushing what is left, when the JVM shuts down. Registers at most once. */
+    public void registerShutdownHook() {
+        if (!shutdownHookRegistered.compareAndSet(false, true)) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                close();
+            } catch (RuntimeException e) {
+                logger.error("Final flush of {} on shutdown failed", dao.getCollectionName(), e);
+            }
+        }, "write-coalescer-shutdown-" + dao.getCollectionName()));
+    }
+
+    /**
+     * Rejects further submits, stops the periodic flush and writes what is left. Safe to call
+     * more than once; a failure of the final flush is thrown.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        scheduler.shutdown();
+        flush();
+    }
+
+    /** Whether retrying the same write later may succeed. */
+    static boolean isTransient(RuntimeException e) {
+        if (e instanceof MongoSocketException || e instanceof MongoTimeoutException
+                || e instanceof MongoExecutionTimeoutException || e instanceof MongoNotPrimaryException
+                || e instanceof MongoNodeIsRecoveringException) {
+            return true;
+        }
+        return e instanceof MongoException mongoException
+                && (mongoException.hasErrorLabel(RETRYABLE_WRITE_ERROR_LABEL)
+                || mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL));
+    }
+
+    // guarded by lock
+    private T rebase(String id, T copy) {
+        long[] written = lastWritten.get(id);
+        if (written != null && copy.getVersion() == written[0]) {
+            copy.setVersion(written[1]);
+        }
+        return copy;
+    }
+
+    private List<Parked<T>> drain() {
+        lock.lock();
+        try {
+            List<Parked<T>> parked = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+            notFull.signalAll();
+            return parked;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void repark(List<Parked<T>> parked) {
+        lock.lock();
+        try {
+            LinkedHashMap<String, Parked<T>> merged = new LinkedHashMap<>();
+            for (Parked<T> entry : parked) {
+                String id = entry.entity.getId();
+                Parked<T> newer = pending.get(id);
+                if (newer == null) {
+                    merged.put(id, entry);
+                } else {
+                    // the newer entity supersedes this one; whoever waited for it waits for the newer write
+                    newer.waiters.addAll(0, entry.waiters);
+                }
+            }
+            merged.putAll(pending);
+            pending = merged;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(List<Parked<T>> batch, BulkUpdateResult result) {
+        Set<String> updatedIds = new HashSet<>(result.getUpdatedIds());
+        Set<String> missingIds = new HashSet<>(result.getMissingIds());
+        lock.lock();
+        try {
+            for (Parked<T> entry : batch) {
+                if (updatedIds.contains(entry.entity.getId())) {
+                    lastWritten.put(entry.entity.getId(), new long[]{entry.submittedVersion, entry.entity.getVersion()});
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Parked<T> entry : batch) {
+            String id = entry.entity.getId();
+            if (updatedIds.contains(id)) {
+                entry.waiters.forEach(waiter -> waiter.complete(entry.entity.getVersion()));
+            } else if (missingIds.contains(id)) {
+                entry.fail(new EntityNotFoundException(dao.getType().getSimpleName(), id));
+            } else {
+                entry.fail(new VersionConflictException("Version conflict for " + dao.getType().getSimpleName()
+                        + " with id: " + id + ". Expected version: " + entry.entity.getVersion()));
+            }
+        }
+    }
+
+    private void drop(List<Parked<T>> batch, List<T> entities, RuntimeException e) {
+        failedCount.addAndGet(batch.size());
+        logger.error("Flush of {} coalesced updates to {} failed with a non-transient error; they are dropped",
+                batch.size(), dao.getCollectionName(), e);
+        batch.forEach(entry -> entry.fail(e));
+        if (onFailed != null) {
+            try {
+                onFailed.accept(entities, e);
+            } catch (RuntimeException callbackFailure) {
+                logger.error("onFailed callback of write coalescer of {} failed", dao.getCollectionName(),
+                        callbackFailure);
+            }
+        }
+    }
+
+    private void report(BulkUpdateResult result) {
+        if (!result.isFullySuccessful()) {
+            logger.warn("Coalesced updates to {} not written: conflicted={}, missing={}", dao.getCollectionName(),
+                    result.getConflictedIds(), result.getMissingIds());
+        }
+        if (onFlushed != null) {
+            try {
+                onFlushed.accept(result);
+            } catch (RuntimeException e) {
+                logger.error("onFlushed callback of write coalescer of {} failed", dao.getCollectionName(), e);
+            }
+        }
+    }
+
+    private void requestFlush() {
+        try {
+            scheduler.execute(this::flushInBackground);
+        } catch (RejectedExecutionException e) {
+            // shutting down: close() flushes
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // already logged by flush(); the entities stay parked for the next window
+        }
+    }
+
+    /** A parked copy, the version its caller submitted it with, and everyone waiting for its write. */
+    private static final class Parked<T extends DbEntity> {
+        private final T entity;
+        private final long submittedVersion;
+        private final List<CompletableFuture<Long>> waiters = new ArrayList<>();
+
+        private Parked(T entity, long submittedVersion) {
+            this.entity = entity;
+            this.submittedVersion = submittedVersion;
+        }
+
+        private void fail(RuntimeException e) {
+            waiters.forEach(waiter -> waiter.completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.avpuser.mongo;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link WriteCoalescer}. Immutable; start from {@link #defaults()} and derive
+ * variants with the {@code with...} methods.
+ * <ul>
+ *     <li>{@code window} - how often pending updates are flushed; updates to the same id submitted
+ *     within one window become a single write. Default 100 ms.</li>
+ *     <li>{@code maxPending} - maximum number of distinct ids waiting to be written. Default 10 000.</li>
+ *     <li>{@code batchSize} - maximum number of entities per {@code bulkWrite}. Default 1 000.</li>
+ *     <li>{@code submitTimeout} - how long {@code submit} waits for room when {@code maxPending}
+ *     is reached before giving up. Default 10 s.</li>
+ * </ul>
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class WriteCoalescerOptions {
+
+    private static final WriteCoalescerOptions DEFAULTS = new WriteCoalescerOptions(
+            Duration.ofMillis(100), 10_000, 1_000, Duration.ofSeconds(10));
+
+    private final Duration window;
+
+    private final int maxPending;
+
+    private final int batchSize;
+
+    private final Duration submitTimeout;
+
+    private WriteCoalescerOptions(Duration window, int maxPending, int batchSize, Duration submitTimeout) {
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be > 0");
+        }
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("Max pending must be > 0");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be > 0");
+        }
+        if (submitTimeout == null || submitTimeout.isNegative()) {
+            throw new IllegalArgumentException("Submit timeout must be >= 0");
+        }
+        this.window = window;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.submitTimeout = submitTimeout;
+    }
+
+    public static WriteCoalescerOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public WriteCoalescerOptions withWindow(Duration window) {
+        return new WriteCoalescerOptions(window, maxPending, batchSize, submitTimeout);
+    }
+
+    public WriteCoalescerOptions withMaxPending(int maxPending) {
+        return new WriteCoalescerOptions(window, maxPending, batchSize, submitTimeout);
+    }
+
+    public WriteCoalescerOptions withBatchSize(int batchSize) {
+        return new WriteCoalescerOptions(window, maxPending, batchSize, submitTimeout);
+    }
+
+    public WriteCoalescerOptions withSubmitTimeout(Duration submitTimeout) {
+        return new WriteCoalescerOptions(window, maxPending, batchSize, submitTimeout);
+    }
+}
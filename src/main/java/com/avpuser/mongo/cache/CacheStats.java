@@ -0,0 +1,28 @@
+package com.avpuser.mongo.cache;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Point-in-time counters of a {@link BoundedTtlCache}. Evictions include both entries pushed out by
+ * the size bound and entries dropped because their TTL expired.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class CacheStats {
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    private final int size;
+
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
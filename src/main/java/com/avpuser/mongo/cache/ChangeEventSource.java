@@ -0,0 +1,22 @@
+package com.avpuser.mongo.cache;
+
+import org.bson.BsonDocument;
+
+import java.util.function.Consumer;
+
+/**
+ * Source of per-collection change events for {@link ChangeStreamCacheInvalidator}.
+ * {@link MongoChangeEventSource} tails real MongoDB change streams; {@link LocalChangeEventSource}
+ * stands in for them in-process.
+ */
+public interface ChangeEventSource {
+
+    /**
+     * Starts delivering events of {@code collectionName} to {@code listener} until the returned
+     * handle is closed.
+     *
+     * @param resumeToken token of the last processed event to resume after, or {@code null} to
+     *                    start from the current point in time
+     */
+    AutoCloseable subscribe(String collectionName, BsonDocument resumeToken, Consumer<EntityChangeEvent> listener);
+}
@@ -0,0 +1,178 @@
+package com.avpuser.mongo.cache;
+
+import com.avpuser.mongo.CommonDao;
+import com.avpuser.mongo.DbEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the in-process caches of several nodes coherent: for every DAO of the registry that has a
+ * cache enabled, tails that collection's change events and invalidates the affected entries, so a
+ * write made by another node is not served from this node's cache.
+ * <p>
+ * The resume token of the last handled event is saved to the {@link ResumeTokenStore} every
+ * {@code saveEveryEvents} events or {@code saveInterval}, whichever comes first (by default
+ * {@value #DEFAULT_SAVE_EVERY_EVENTS} events or {@link #DEFAULT_SAVE_INTERVAL}), right away after
+ * a collection-level event, and on {@link #close()}; {@link #start()} resumes from it. Events
+ * delivered twice after a restart only cause a redundant invalidation. If the stream cannot
+ * resume from the saved token ({@link EntityChangeEvent.Type#RESUME_LOST}), the token is cleared
+ * and every cached entity of that DAO is dropped. With {@code refreshOnUpdate}, updated and
+ * replaced entities are re-read right away instead of being left for the next {@code findById}
+ * to load.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ *     ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos,
+ *             new MongoChangeEventSource(database), new MongoResumeTokenStore(database), false);
+ *     invalidator.start();
+ * }</pre>
+ */
+public class ChangeStreamCacheInvalidator implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ChangeStreamCacheInvalidator.class);
+
+    public static final int DEFAULT_SAVE_EVERY_EVENTS = 100;
+    public static final Duration DEFAULT_SAVE_INTERVAL = Duration.ofSeconds(5);
+
+    private final Map<Class<?>, CommonDao<? extends DbEntity>> allDaos;
+    private final ChangeEventSource eventSource;
+    private final ResumeTokenStore resumeTokenStore;
+    private final boolean refreshOnUpdate;
+    private final int saveEveryEvents;
+    private final long saveIntervalNanos;
+
+    private final List<AutoCloseable> subscriptions = new ArrayList<>();
+    private final Map<String, PendingToken> pendingTokens = new ConcurrentHashMap<>();
+
+    public ChangeStreamCacheInvalidator(Map<Class<?>, CommonDao<? extends DbEntity>> allDaos,
+                                        ChangeEventSource eventSource,
+                                        ResumeTokenStore resumeTokenStore,
+                                        boolean refreshOnUpdate) {
+        this(allDaos, eventSource, resumeTokenStore, refreshOnUpdate, DEFAULT_SAVE_EVERY_EVENTS, DEFAULT_SAVE_INTERVAL);
+    }
+
+    public ChangeStreamCacheInvalidator(Map<Class<?>, CommonDao<? extends DbEntity>> allDaos,
+                                        ChangeEventSource eventSource,
+                                        ResumeTokenStore resumeTokenStore,
+                                        boolean refreshOnUpdate,
+                                        int saveEveryEvents,
+                                        Duration saveInterval) {
+        if (saveEveryEvents <= 0) {
+            throw new IllegalArgumentException("saveEveryEvents must be positive: " + saveEveryEvents);
+        }
+        this.allDaos = allDaos;
+        this.eventSource = eventSource;
+        this.resumeTokenStore = resumeTokenStore;
+        this.refreshOnUpdate = refreshOnUpdate;
+        this.saveEveryEvents = saveEveryEvents;
+        this.saveIntervalNanos = saveInterval.toNanos();
+    }
+
+    /** Subscribes to every DAO collection that currently has a cache enabled. */
+    public synchronized void start() {
+        if (!subscriptions.isEmpty()) {
+            throw new IllegalStateException("Change stream cache invalidator is already started");
+        }
+        for (CommonDao<? extends DbEntity> dao : allDaos.values()) {
+            if (!dao.hasLocalCache()) {
+                continue;
+            }
+            String collectionName = dao.getCollectionName();
+            subscriptions.add(eventSource.subscribe(collectionName,
+                    resumeTokenStore.load(collectionName).orElse(null),
+                    event -> handle(dao, event)));
+            logger.info("Watching {} for cache invalidation", collectionName);
+        }
+    }
+
+    void handle(CommonDao<? extends DbEntity> dao, EntityChangeEvent event) {
+        try {
+            switch (event.getType()) {
+                case INSERT -> {
+                    // Misses are never cached, so an insert cannot make a cached entity stale; cached
+                    // specification results of other nodes pick it up when they expire.
+                }
+                case UPDATE, REPLACE -> {
+                    dao.invalidateCachedEntity(event.getDocumentId());
+                    if (refreshOnUpdate) {
+                        dao.findById(event.getDocumentId());
+                    }
+                }
+                case DELETE -> dao.invalidateCachedEntity(event.getDocumentId());
+                case COLLECTION_CHANGED -> dao.invalidateCachedEntities();
+                case RESUME_LOST -> {
+                    dao.invalidateCachedEntities();
+                    pendingTokens.remove(event.getCollectionName());
+                    resumeTokenStore.clear(event.getCollectionName());
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never leave a possibly stale entry behind because a refresh failed.
+            logger.error("Failed to handle change event {}, dropping all cached {}", event, dao.getCollectionName(), e);
+            dao.invalidateCachedEntities();
+        }
+        if (event.getResumeToken() != null) {
+            saveThrottled(event);
+        }
+    }
+
+    private void saveThrottled(EntityChangeEvent event) {
+        PendingToken pending = pendingTokens.computeIfAbsent(event.getCollectionName(), name -> new PendingToken());
+        synchronized (pending) {
+            pending.token = event.getResumeToken();
+            pending.unsavedEvents++;
+            long now = System.nanoTime();
+            if (event.getType() == EntityChangeEvent.Type.COLLECTION_CHANGED
+                    || pending.unsavedEvents >= saveEveryEvents
+                    || now - pending.savedAtNanos >= saveIntervalNanos) {
+                save(event.getCollectionName(), pending, now);
+            }
+        }
+    }
+
+    // guarded by the monitor of pending
+    private void save(String collectionName, PendingToken pending, long now) {
+        if (pending.unsavedEvents == 0) {
+            return;
+        }
+        try {
+            resumeTokenStore.save(collectionName, pending.token);
+            pending.unsavedEvents = 0;
+            pending.savedAtNanos = now;
+        } catch (RuntimeException e) {
+            // retried with the next event; a restart at worst replays some events
+            logger.warn("Failed to save resume token of {}", collectionName, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (AutoCloseable subscription : subscriptions) {
+            try {
+                subscription.close();
+            } catch (Exception e) {
+                logger.warn("Failed to close change stream subscription", e);
+            }
+        }
+        subscriptions.clear();
+        pendingTokens.forEach((collectionName, pending) -> {
+            synchronized (pending) {
+                save(collectionName, pending, System.nanoTime());
+            }
+        });
+    }
+
+    /** Latest token of a collection and how much has happened since it was last saved. */
+    private static final class PendingToken {
+        private BsonDocument token;
+        private int unsavedEvents;
+        private long savedAtNanos = System.nanoTime();
+    }
+}
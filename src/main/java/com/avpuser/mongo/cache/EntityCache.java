@@ -0,0 +1,82 @@
+package com.avpuser.mongo.cache;
+
+import com.avpuser.mongo.DbEntity;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache of entities by {@code _id}, used by {@link com.avpuser.mongo.CommonDao} in
+ * front of {@code findById}/{@code findByIds}.
+ * <p>
+ * Two rules keep it from serving stale data after a write through the owning DAO:
+ * <ul>
+ *     <li>Every invalidation bumps a generation counter. A reader captures {@link #generation()}
+ *     before going to MongoDB and {@link #put} drops the value if any invalidation happened in the
+ *     meantime, so a slow read can never re-insert what a concurrent write just replaced.</li>
+ *     <li>An entry is never replaced by an entity with a lower {@code version}.</li>
+ * </ul>
+ * Values are copied both on the way in and on the way out, so callers mutating an entity they got
+ * from (or gave to) the cache cannot corrupt it.
+ */
+public class EntityCache<T extends DbEntity> {
+
+    private final BoundedTtlCache<String, T> cache;
+    private final UnaryOperator<T> copier;
+    private final AtomicLong generation = new AtomicLong();
+
+    public EntityCache(int maxSize, Duration ttl, UnaryOperator<T> copier) {
+        this(new BoundedTtlCache<>(maxSize, ttl), copier);
+    }
+
+    public EntityCache(BoundedTtlCache<String, T> cache, UnaryOperator<T> copier) {
+        this.cache = cache;
+        this.copier = copier;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public Optional<T> get(String id) {
+        T cached = cache.get(id);
+        return cached == null ? Optional.empty() : Optional.of(copier.apply(cached));
+    }
+
+    /**
+     * Caches a copy of {@code entity} read from MongoDB, unless the cache was invalidated after
+     * {@code generationAtRead} was taken or a newer version is already cached.
+     */
+    public void put(T entity, long generationAtRead) {
+        if (entity == null || entity.getId() == null) {
+            return;
+        }
+        T copy = copier.apply(entity);
+        synchronized (this) {
+            if (generation.get() != generationAtRead) {
+                return;
+            }
+            T existing = cache.peek(entity.getId());
+            if (existing != null && existing.getVersion() > copy.getVersion()) {
+                return;
+            }
+            cache.put(entity.getId(), copy);
+        }
+    }
+
+    public synchronized void invalidate(String id) {
+        generation.incrementAndGet();
+        cache.remove(id);
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
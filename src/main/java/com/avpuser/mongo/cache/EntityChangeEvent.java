@@ -0,0 +1,41 @@
+package com.avpuser.mongo.cache;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.bson.BsonDocument;
+
+/**
+ * A change to one collection, as delivered by a {@link ChangeEventSource}.
+ * {@code documentId} is {@code null} for collection-level events such as a drop.
+ * {@code resumeToken} is {@code null} for sources that cannot resume (e.g. {@link LocalChangeEventSource}).
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class EntityChangeEvent {
+
+    public enum Type {
+        INSERT, UPDATE, REPLACE, DELETE,
+        /** The collection was dropped, renamed or the stream was invalidated: anything cached may be stale. */
+        COLLECTION_CHANGED,
+        /**
+         * The stream could not resume from its token, e.g. because that point has rolled off the
+         * oplog, and was reopened from the current point in time: events in between are lost,
+         * anything cached may be stale, and a saved token is useless.
+         */
+        RESUME_LOST
+    }
+
+    private final String collectionName;
+
+    private final Type type;
+
+    private final String documentId;
+
+    private final BsonDocument resumeToken;
+
+    public static EntityChangeEvent of(String collectionName, Type type, String documentId) {
+        return new EntityChangeEvent(collectionName, type, documentId, null);
+    }
+}
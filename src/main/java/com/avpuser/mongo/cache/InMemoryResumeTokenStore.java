@@ -0,0 +1,28 @@
+package com.avpuser.mongo.cache;
+
+import org.bson.BsonDocument;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** {@link ResumeTokenStore} that only lives as long as the JVM; nothing survives a restart. */
+public class InMemoryResumeTokenStore implements ResumeTokenStore {
+
+    private final Map<String, BsonDocument> tokens = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<BsonDocument> load(String collectionName) {
+        return Optional.ofNullable(tokens.get(collectionName));
+    }
+
+    @Override
+    public void save(String collectionName, BsonDocument resumeToken) {
+        tokens.put(collectionName, resumeToken);
+    }
+
+    @Override
+    public void clear(String collectionName) {
+        tokens.remove(collectionName);
+    }
+}
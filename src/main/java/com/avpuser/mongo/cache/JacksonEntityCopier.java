@@ -0,0 +1,41 @@
+package com.avpuser.mongo.cache;
+
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Deep-copies an entity by serializing it into a {@link TokenBuffer} and reading it back with the
+ * same mapper - no JSON text and no BSON in between. Use a mapper without the PII encryption
+ * module: the copy then holds the same in-memory plaintext and pays no AES round trip.
+ */
+public class JacksonEntityCopier<T> implements UnaryOperator<T> {
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+
+    public JacksonEntityCopier(ObjectMapper objectMapper, Class<T> type) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+    }
+
+    @Override
+    public T apply(T entity) {
+        if (entity == null) {
+            return null;
+        }
+        try {
+            // No codec on the buffer: values written via writeObject (e.g. the java.util.Date produced
+            // by InstantDateSerializer) stay embedded objects, just as they would in a BSON document.
+            TokenBuffer buffer = new TokenBuffer((ObjectCodec) null, false);
+            objectMapper.writeValue(buffer, entity);
+            return objectMapper.readValue(buffer.asParser(objectMapper), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.avpuser.mongo.cache;
+
+import org.bson.BsonDocument;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process {@link ChangeEventSource}: events passed to {@link #publish} are delivered
+ * synchronously, on the calling thread, to the listeners of that collection. Useful in tests and
+ * for single-node setups without a replica set. Resume tokens are ignored.
+ */
+public class LocalChangeEventSource implements ChangeEventSource {
+
+    private final Map<String, List<Consumer<EntityChangeEvent>>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public AutoCloseable subscribe(String collectionName, BsonDocument resumeToken, Consumer<EntityChangeEvent> listener) {
+        List<Consumer<EntityChangeEvent>> collectionListeners =
+                listeners.computeIfAbsent(collectionName, key -> new CopyOnWriteArrayList<>());
+        collectionListeners.add(listener);
+        return () -> collectionListeners.remove(listener);
+    }
+
+    public void publish(EntityChangeEvent event) {
+        List<Consumer<EntityChangeEvent>> collectionListeners = listeners.get(event.getCollectionName());
+        if (collectionListeners != null) {
+            collectionListeners.forEach(listener -> listener.accept(event));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.avpuser.mongo.cache;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@link ChangeEventSource} backed by MongoDB change streams (requires a replica set or sharded
+ * cluster, MongoDB 4.2+). Each subscription tails one collection on its own daemon thread. When
+ * the stream fails it is reopened after {@link #RETRY_DELAY}, resuming after the last delivered
+ * event.
+ * <p>
+ * Streams are resumed with {@code startAfter}, which also accepts the token of an
+ * {@code invalidate} event: after a drop or rename the stream is reopened right away on the
+ * collection of the same name. If the token can no longer be resumed from (its point has rolled
+ * off the oplog), the stream is reopened from the current point in time and a
+ * {@link EntityChangeEvent.Type#RESUME_LOST} event is delivered once it is open.
+ */
+public class MongoChangeEventSource implements ChangeEventSource {
+
+    private static final Logger logger = LogManager.getLogger(MongoChangeEventSource.class);
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    // ChangeStreamHistoryLost, and ChangeStreamFatalError which older servers report instead
+    private static final Set<Integer> HISTORY_LOST_CODES = Set.of(286, 280);
+
+    private final MongoDatabase database;
+
+    public MongoChangeEventSource(MongoDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public AutoCloseable subscribe(String collectionName, BsonDocument resumeToken, Consumer<EntityChangeEvent> listener) {
+        Subscription subscription = new Subscription(collectionName, resumeToken, listener);
+        Thread thread = new Thread(subscription::run, "change-stream-" + collectionName);
+        thread.setDaemon(true);
+        thread.start();
+        return subscription;
+    }
+
+    private final class Subscription implements AutoCloseable {
+
+        private final String collectionName;
+        private final Consumer<EntityChangeEvent> listener;
+
+        private volatile BsonDocument resumeToken;
+        private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+        private volatile boolean closed;
+
+        private Subscription(String collectionName, BsonDocument resumeToken, Consumer<EntityChangeEvent> listener) {
+            this.collectionName = collectionName;
+            this.resumeToken = resumeToken;
+            this.listener = listener;
+        }
+
+        private void run() {
+            boolean resumeLost = false;
+            while (!closed) {
+                try {
+                    ChangeStreamIterable<Document> stream = database.getCollection(collectionName).watch();
+                    if (resumeToken != null) {
+                        stream = stream.startAfter(resumeToken);
+                    }
+                    cursor = stream.cursor();
+                    logger.info("Change stream opened for collection {}", collectionName);
+                    if (resumeLost) {
+                        // only now: a write after the stream opened is delivered, one before is covered by this
+                        listener.accept(new EntityChangeEvent(collectionName, EntityChangeEvent.Type.RESUME_LOST, null, null));
+                        resumeLost = false;
+                    }
+                    while (!closed && cursor.hasNext()) {
+                        ChangeStreamDocument<Document> change = cursor.next();
+                        listener.accept(toEvent(change));
+                        resumeToken = change.getResumeToken();
+                        if (change.getOperationType() == OperationType.INVALIDATE) {
+                            // the server closes an invalidated stream; reopen after the invalidate event
+                            logger.info("Change stream of collection {} invalidated, reopening", collectionName);
+                            break;
+                        }
+                    }
+                } catch (MongoException | IllegalStateException e) {
+                    if (closed) {
+                        return;
+                    }
+                    if (e instanceof MongoException mongoException && resumeToken != null
+                            && HISTORY_LOST_CODES.contains(mongoException.getCode())) {
+                        logger.warn("Change stream of collection {} cannot resume from its token, "
+                                + "restarting from now; cached entities will be dropped", collectionName, e);
+                        resumeToken = null;
+                        resumeLost = true;
+                        continue;
+                    }
+                    logger.error("Change stream failed for collection {}, retrying in {}", collectionName, RETRY_DELAY, e);
+                    sleepBeforeRetry();
+                } finally {
+                    closeCursor();
+                }
+            }
+        }
+
+        private EntityChangeEvent toEvent(ChangeStreamDocument<Document> change) {
+            OperationType operationType = change.getOperationType();
+            EntityChangeEvent.Type type = switch (operationType) {
+                case INSERT -> EntityChangeEvent.Type.INSERT;
+                case UPDATE -> EntityChangeEvent.Type.UPDATE;
+                case REPLACE -> EntityChangeEvent.Type.REPLACE;
+                case DELETE -> EntityChangeEvent.Type.DELETE;
+                default -> EntityChangeEvent.Type.COLLECTION_CHANGED;
+            };
+            BsonDocument documentKey = change.getDocumentKey();
+            String documentId = documentKey != null ? idToString(documentKey.get("_id")) : null;
+            return new EntityChangeEvent(collectionName, type, documentId, change.getResumeToken());
+        }
+
+        private void sleepBeforeRetry() {
+            try {
+                Thread.sleep(RETRY_DELAY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+        }
+
+        private void closeCursor() {
+            MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+            cursor = null;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (RuntimeException e) {
+                    logger.debug("Failed to close change stream cursor for {}", collectionName, e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            closeCursor();
+        }
+    }
+
+    private static String idToString(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        if (id.isString()) {
+            return id.asString().getValue();
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.avpuser.mongo.cache;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+
+import java.util.Optional;
+
+/**
+ * {@link ResumeTokenStore} keeping one document per watched collection,
+ * {@code {_id: <collectionName>, token: <resumeToken>}}, in a dedicated collection.
+ */
+public class MongoResumeTokenStore implements ResumeTokenStore {
+
+    public static final String DEFAULT_COLLECTION_NAME = "change_stream_resume_token";
+
+    private final MongoCollection<BsonDocument> collection;
+
+    public MongoResumeTokenStore(MongoDatabase database) {
+        this(database, DEFAULT_COLLECTION_NAME);
+    }
+
+    public MongoResumeTokenStore(MongoDatabase database, String collectionName) {
+        this.collection = database.getCollection(collectionName, BsonDocument.class);
+    }
+
+    @Override
+    public Optional<BsonDocument> load(String collectionName) {
+        BsonDocument stored = collection.find(Filters.eq("_id", collectionName)).first();
+        return stored == null || !stored.isDocument("token")
+                ? Optional.empty()
+                : Optional.of(stored.getDocument("token"));
+    }
+
+    @Override
+    public void save(String collectionName, BsonDocument resumeToken) {
+        BsonDocument document = new BsonDocument("_id", new BsonString(collectionName))
+                .append("token", resumeToken);
+        collection.replaceOne(Filters.eq("_id", collectionName), document, new ReplaceOptions().upsert(true));
+    }
+
+    @Override
+    public void clear(String collectionName) {
+        collection.deleteOne(Filters.eq("_id", collectionName));
+    }
+}
@@ -0,0 +1,19 @@
+package com.avpuser.mongo.cache;
+
+import org.bson.BsonDocument;
+
+import java.util.Optional;
+
+/**
+ * Persists the change stream resume token per collection, so {@link ChangeStreamCacheInvalidator}
+ * continues where it stopped after a restart instead of missing the writes made in between.
+ */
+public interface ResumeTokenStore {
+
+    Optional<BsonDocument> load(String collectionName);
+
+    void save(String collectionName, BsonDocument resumeToken);
+
+    /** Forgets the token of this collection, so the next start begins at the current point in time. */
+    void clear(String collectionName);
+}
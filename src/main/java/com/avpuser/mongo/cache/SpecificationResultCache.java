@@ -0,0 +1,72 @@
+package com.avpuser.mongo.cache;
+
+import com.avpuser.mongo.DbEntity;
+import com.avpuser.mongo.LimitSpecification;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache of {@code findBySpecification} results keyed by the specification itself, i.e. by its
+ * Lombok-generated {@code equals}/{@code hashCode}, used by {@link com.avpuser.mongo.CommonDao} for
+ * specifications that are polled with the same parameters.
+ * <p>
+ * Any write may add a document to or remove one from any result, so every invalidation drops the
+ * whole cache and bumps a generation counter; as in {@link EntityCache}, a result read before an
+ * invalidation is not cached. Entities are copied on the way in and on the way out.
+ */
+public class SpecificationResultCache<T extends DbEntity> {
+
+    private final BoundedTtlCache<LimitSpecification, List<T>> cache;
+    private final UnaryOperator<T> copier;
+    private final AtomicLong generation = new AtomicLong();
+
+    public SpecificationResultCache(int maxSize, Duration ttl, UnaryOperator<T> copier) {
+        this(new BoundedTtlCache<>(maxSize, ttl), copier);
+    }
+
+    public SpecificationResultCache(BoundedTtlCache<LimitSpecification, List<T>> cache, UnaryOperator<T> copier) {
+        this.cache = cache;
+        this.copier = copier;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public Optional<List<T>> get(LimitSpecification specification) {
+        List<T> cached = cache.get(specification);
+        return cached == null ? Optional.empty() : Optional.of(copy(cached));
+    }
+
+    /** Caches a copy of {@code result}, unless the cache was invalidated after {@code generationAtRead} was taken. */
+    public void put(LimitSpecification specification, List<T> result, long generationAtRead) {
+        List<T> copy = List.copyOf(copy(result));
+        synchronized (this) {
+            if (generation.get() == generationAtRead) {
+                cache.put(specification, copy);
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private List<T> copy(List<T> entities) {
+        List<T> copies = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            copies.add(copier.apply(entity));
+        }
+        return copies;
+    }
+}
@@ -7,8 +7,8 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
  * Jackson module that installs transparent field-level encryption/decryption for
  * {@link com.avpuser.mongo.encryption.Encrypted}-annotated fields on any entity serialized by the
  * {@link com.fasterxml.jackson.databind.ObjectMapper} it's registered on. Register once per
- * {@code ObjectMapper} instance (e.g.
- * one per {@link com.avpuser.mongo.CommonDao}, as built by
+ * {@code ObjectMapper} instance (e.g. the mapper shared by all {@link com.avpuser.mongo.CommonDao}s
+ * with the same service, as built by
  * {@link com.avpuser.mongo.typeconverter.MongoObjectMapperFactory}).
  */
 public final class PiiEncryptionModule extends SimpleModule {
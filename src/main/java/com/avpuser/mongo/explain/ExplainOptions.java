@@ -0,0 +1,52 @@
+package com.avpuser.mongo.explain;
+
+import lombok.Getter;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When {@link com.avpuser.mongo.CommonDao} re-runs a query with {@code explain}:
+ * <ul>
+ *     <li>{@link #firstRunPerShape()} - once per {@link QueryShape}, on its first execution;</li>
+ *     <li>{@link #slowQueries(double)} - on a random sample of the queries slower than the DAO's
+ *     slow-query threshold; the latest plan of a shape replaces the previous one.</li>
+ * </ul>
+ * Explain executes the query a second time, in the background rather than on the caller's thread;
+ * it still loads the server, so keep the sample rate low on hot paths.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class ExplainOptions {
+
+    public enum Mode {
+        FIRST_RUN_PER_SHAPE, SLOW_QUERIES
+    }
+
+    private final Mode mode;
+
+    private final double sampleRate;
+
+    private ExplainOptions(Mode mode, double sampleRate) {
+        if (sampleRate <= 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be within (0, 1]: " + sampleRate);
+        }
+        this.mode = mode;
+        this.sampleRate = sampleRate;
+    }
+
+    public static ExplainOptions firstRunPerShape() {
+        return new ExplainOptions(Mode.FIRST_RUN_PER_SHAPE, 1.0);
+    }
+
+    public static ExplainOptions slowQueries(double sampleRate) {
+        return new ExplainOptions(Mode.SLOW_QUERIES, sampleRate);
+    }
+
+    /** Whether an execution that took part in the sample should be explained. */
+    public boolean sampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
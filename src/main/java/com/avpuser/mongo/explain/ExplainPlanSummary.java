@@ -0,0 +1,135 @@
+package com.avpuser.mongo.explain;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.bson.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The parts of an {@code explain("executionStats")} result worth keeping: the winning plan, its
+ * stages (root first), how much work it did, and whether it scanned the whole collection or
+ * sorted in memory. Works for both find and aggregate explain output, and for classic and
+ * slot-based ({@code queryPlan}) plan layouts.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class ExplainPlanSummary {
+
+    public enum Trigger {
+        FIRST_RUN, SLOW_QUERY
+    }
+
+    private static final String COLLECTION_SCAN = "COLLSCAN";
+    private static final String IN_MEMORY_SORT = "SORT";
+
+    private final QueryShape shape;
+
+    private final Trigger trigger;
+
+    private final long durationMs;
+
+    private final String winningPlan;
+
+    private final List<String> stages;
+
+    private final List<String> indexNames;
+
+    private final long keysExamined;
+
+    private final long docsExamined;
+
+    private final long returned;
+
+    private final Instant capturedAt;
+
+    public boolean isCollectionScan() {
+        return stages.contains(COLLECTION_SCAN);
+    }
+
+    public boolean isInMemorySort() {
+        return stages.contains(IN_MEMORY_SORT);
+    }
+
+    public boolean hasWarnings() {
+        return isCollectionScan() || isInMemorySort();
+    }
+
+    public static ExplainPlanSummary parse(QueryShape shape, Trigger trigger, long durationMs,
+                                           Document explain, Instant capturedAt) {
+        Document winningPlan = findDocument(explain, "queryPlanner")
+                .map(queryPlanner -> queryPlanner.get("winningPlan", Document.class))
+                .map(plan -> plan.containsKey("queryPlan") ? plan.get("queryPlan", Document.class) : plan)
+                .orElse(new Document());
+
+        List<String> stages = new ArrayList<>();
+        List<String> indexNames = new ArrayList<>();
+        collectStages(winningPlan, stages, indexNames);
+
+        Document executionStats = findDocument(explain, "executionStats").orElse(new Document());
+        return new ExplainPlanSummary(shape, trigger, durationMs, winningPlan.toJson(), stages, indexNames,
+                number(executionStats, "totalKeysExamined"),
+                number(executionStats, "totalDocsExamined"),
+                number(executionStats, "nReturned"),
+                capturedAt);
+    }
+
+    private static void collectStages(Document plan, List<String> stages, List<String> indexNames) {
+        String stage = plan.getString("stage");
+        if (stage != null) {
+            stages.add(stage);
+        }
+        String indexName = plan.getString("indexName");
+        if (indexName != null) {
+            indexNames.add(indexName);
+        }
+        for (String child : List.of("inputStage", "outerStage", "innerStage")) {
+            Object value = plan.get(child);
+            if (value instanceof Document childPlan) {
+                collectStages(childPlan, stages, indexNames);
+            }
+        }
+        Object inputStages = plan.get("inputStages");
+        if (inputStages instanceof List<?> children) {
+            for (Object childPlan : children) {
+                if (childPlan instanceof Document document) {
+                    collectStages(document, stages, indexNames);
+                }
+            }
+        }
+    }
+
+    /** Depth-first search for the first sub-document stored under {@code key}. */
+    private static Optional<Document> findDocument(Object node, String key) {
+        if (node instanceof Document document) {
+            Object direct = document.get(key);
+            if (direct instanceof Document found) {
+                return Optional.of(found);
+            }
+            for (Object value : document.values()) {
+                Optional<Document> found = findDocument(value, key);
+                if (found.isPresent()) {
+                    return found;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                Optional<Document> found = findDocument(value, key);
+                if (found.isPresent()) {
+                    return found;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static long number(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+}
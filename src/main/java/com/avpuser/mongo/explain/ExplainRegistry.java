@@ -0,0 +1,58 @@
+package com.avpuser.mongo.explain;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory store of the latest {@link ExplainPlanSummary} per {@link QueryShape}. One registry
+ * can be shared by all DAOs; {@link #flagged()} then lists every known query shape that ran as a
+ * collection scan or sorted in memory.
+ */
+public class ExplainRegistry {
+
+    private final Map<QueryShape, ExplainPlanSummary> plans = new ConcurrentHashMap<>();
+    private final Set<QueryShape> claimed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Reserves the first explain of {@code shape}: returns {@code true} exactly once per shape,
+     * so concurrent first runs do not explain the same query several times.
+     */
+    public boolean claimFirstRun(QueryShape shape) {
+        return claimed.add(shape);
+    }
+
+    public void record(ExplainPlanSummary summary) {
+        plans.put(summary.getShape(), summary);
+    }
+
+    public Optional<ExplainPlanSummary> get(QueryShape shape) {
+        return Optional.ofNullable(plans.get(shape));
+    }
+
+    /** All captured plans, most recent first. */
+    public List<ExplainPlanSummary> all() {
+        return plans.values().stream()
+                .sorted(Comparator.comparing(ExplainPlanSummary::getCapturedAt).reversed())
+                .toList();
+    }
+
+    /** Captured plans with a COLLSCAN or in-memory SORT stage, most recent first. */
+    public List<ExplainPlanSummary> flagged() {
+        return all().stream().filter(ExplainPlanSummary::hasWarnings).toList();
+    }
+
+    public List<ExplainPlanSummary> forCollection(String collectionName) {
+        return all().stream()
+                .filter(summary -> summary.getShape().getCollectionName().equals(collectionName))
+                .toList();
+    }
+
+    public void clear() {
+        plans.clear();
+        claimed.clear();
+    }
+}
@@ -0,0 +1,64 @@
+package com.avpuser.mongo.explain;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import java.util.Map;
+
+/**
+ * A query with its literal values blanked out: {@code {status: "NEW", age: {$gt: 18}}} and
+ * {@code {status: "DONE", age: {$gt: 65}}} share the shape {@code {status: "?", age: {$gt: "?"}}}.
+ * Field names, operators and sort directions are kept, so two queries of one shape are served by
+ * the same index. Arrays of sub-queries ({@code $and}, {@code $or}, ...) are normalized element by
+ * element; any other array (e.g. the operand of {@code $in}) collapses to one placeholder.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class QueryShape {
+
+    private static final BsonString PLACEHOLDER = new BsonString("?");
+
+    private final String collectionName;
+
+    private final String operation;
+
+    private final String filter;
+
+    private final String sort;
+
+    public static QueryShape of(String collectionName, String operation, BsonDocument filter, BsonDocument sort) {
+        BsonDocument normalizedFilter = filter != null ? normalize(filter) : new BsonDocument();
+        return new QueryShape(collectionName, operation, normalizedFilter.toJson(),
+                sort != null && !sort.isEmpty() ? sort.toJson() : null);
+    }
+
+    static BsonDocument normalize(BsonDocument document) {
+        BsonDocument normalized = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : document.entrySet()) {
+            normalized.put(entry.getKey(), normalizeValue(entry.getValue()));
+        }
+        return normalized;
+    }
+
+    private static BsonValue normalizeValue(BsonValue value) {
+        if (value.isDocument()) {
+            return normalize(value.asDocument());
+        }
+        if (value.isArray() && isArrayOfDocuments(value.asArray())) {
+            BsonArray normalized = new BsonArray();
+            value.asArray().forEach(element -> normalized.add(normalize(element.asDocument())));
+            return normalized;
+        }
+        return PLACEHOLDER;
+    }
+
+    private static boolean isArrayOfDocuments(BsonArray array) {
+        return !array.isEmpty() && array.stream().allMatch(BsonValue::isDocument);
+    }
+}
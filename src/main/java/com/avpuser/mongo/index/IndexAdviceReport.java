@@ -0,0 +1,78 @@
+package com.avpuser.mongo.index;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Output of {@link IndexAdvisor#advise}: how well each sampled specification shape is served,
+ * which indexes are made redundant by a longer index, and which specifications could not be
+ * analysed.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class IndexAdviceReport {
+
+    public enum Coverage {
+        /** An index serves every equality, sort and range field of the shape. */
+        COVERED,
+        /** An index narrows the scan but the query still sorts in memory or filters after fetching. */
+        PARTIAL,
+        /** No index starts with any field of the shape: the query scans the whole collection. */
+        UNCOVERED
+    }
+
+    @Data
+    @ToString
+    @EqualsAndHashCode
+    public static class ShapeFinding {
+
+        private final String specificationClass;
+
+        private final String collectionName;
+
+        private final QueryFields fields;
+
+        private final Coverage coverage;
+
+        /** Key pattern of the best matching index, or {@code null} when none matches. */
+        private final String bestIndex;
+
+        /** Equality, then sort, then range fields; {@code null} when the shape is covered. */
+        private final String suggestedIndex;
+    }
+
+    @Data
+    @ToString
+    @EqualsAndHashCode
+    public static class RedundantIndex {
+
+        private final String collectionName;
+
+        private final String index;
+
+        private final String coveredBy;
+
+        /** Whether the index is declared through {@link IndexMetaGenerator} or only exists in the database. */
+        private final boolean declared;
+    }
+
+    private final List<ShapeFinding> findings = new ArrayList<>();
+
+    private final List<RedundantIndex> redundantIndexes = new ArrayList<>();
+
+    /** Specification classes without {@link SpecificationCollection} or that could not be instantiated. */
+    private final List<String> skippedSpecifications = new ArrayList<>();
+
+    public List<ShapeFinding> getUncoveredShapes() {
+        return findings.stream().filter(finding -> finding.getCoverage() != Coverage.COVERED).toList();
+    }
+
+    public boolean hasProblems() {
+        return !getUncoveredShapes().isEmpty() || !redundantIndexes.isEmpty();
+    }
+}
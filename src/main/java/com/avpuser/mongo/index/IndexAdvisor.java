@@ -0,0 +1,244 @@
+package com.avpuser.mongo.index;
+
+import com.avpuser.mongo.LimitSpecification;
+import com.mongodb.client.MongoDatabase;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Checks that every {@link LimitSpecification} subclass is served by an index, before a missing
+ * index shows up as a production slowdown.
+ * <p>
+ * Each specification class annotated with {@link SpecificationCollection} is instantiated with
+ * placeholder arguments (see {@link SpecificationSampler}); its {@code filter()} and
+ * {@code sort()} are reduced to {@link QueryFields} and matched against the declared
+ * {@link IndexMeta} list and, when a database is given, the live {@code listIndexes} output,
+ * using the equality-sort-range rule. Indexes that are a key prefix of another index of the same
+ * collection, and are not unique/TTL/partial/sparse, are reported as redundant.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ *     IndexAdviceReport report = new IndexAdvisor(database).advise();
+ *     report.getUncoveredShapes().forEach(finding -> logger.warn("Missing index: {}", finding));
+ * }</pre>
+ */
+public class IndexAdvisor {
+
+    private static final Logger logger = LogManager.getLogger(IndexAdvisor.class);
+
+    private static final BsonDocument ID_KEY_PATTERN = new BsonDocument("_id", new BsonInt32(1));
+
+    private final List<IndexMeta> declaredIndexes;
+
+    private final MongoDatabase database;
+
+    /**
+     * @param database source of the live indexes; {@code null} to check the declared indexes only
+     */
+    public IndexAdvisor(List<IndexMeta> declaredIndexes, MongoDatabase database) {
+        this.declaredIndexes = declaredIndexes;
+        this.database = database;
+    }
+
+    public IndexAdvisor(MongoDatabase database) {
+        this(IndexMetaUtil.generateAllIndexMeta(), database);
+    }
+
+    public IndexAdviceReport advise() {
+        return advise(IndexMetaUtil.findClassesExtendingLimitSpecification());
+    }
+
+    public IndexAdviceReport advise(Collection<Class<? extends LimitSpecification>> specificationClasses) {
+        IndexAdviceReport report = new IndexAdviceReport();
+        Map<String, List<CandidateIndex>> indexesByCollection = new LinkedHashMap<>();
+
+        List<Class<? extends LimitSpecification>> sortedClasses = specificationClasses.stream()
+                .sorted(Comparator.comparing(Class::getName))
+                .toList();
+        for (Class<? extends LimitSpecification> specificationClass : sortedClasses) {
+            SpecificationCollection collection = specificationClass.getAnnotation(SpecificationCollection.class);
+            Optional<LimitSpecification> sample = collection != null
+                    ? SpecificationSampler.sample(specificationClass)
+                    : Optional.empty();
+            if (sample.isEmpty()) {
+                report.getSkippedSpecifications().add(specificationClass.getName());
+                continue;
+            }
+
+            QueryFields fields = QueryFields.of(sample.get().filter().toBsonDocument(), sample.get().sort().toBsonDocument());
+            if (fields.isEmpty()) {
+                continue;
+            }
+            List<CandidateIndex> candidates = indexesByCollection.computeIfAbsent(collection.value(), this::loadIndexes);
+            report.getFindings().add(evaluate(specificationClass.getName(), collection.value(), fields, candidates));
+        }
+
+        Set<String> declaredCollections = new TreeSet<>();
+        declaredIndexes.forEach(indexMeta -> declaredCollections.add(indexMeta.getCollectionName()));
+        for (String collectionName : declaredCollections) {
+            List<CandidateIndex> candidates = indexesByCollection.computeIfAbsent(collectionName, this::loadIndexes);
+            report.getRedundantIndexes().addAll(findRedundant(collectionName, candidates));
+        }
+
+        logger.info("Index advice: {} shapes checked, {} not fully covered, {} redundant indexes, {} specifications skipped",
+                report.getFindings().size(), report.getUncoveredShapes().size(),
+                report.getRedundantIndexes().size(), report.getSkippedSpecifications().size());
+        return report;
+    }
+
+    private List<CandidateIndex> loadIndexes(String collectionName) {
+        Map<BsonDocument, CandidateIndex> byKeyPattern = new LinkedHashMap<>();
+        byKeyPattern.put(ID_KEY_PATTERN, new CandidateIndex(ID_KEY_PATTERN, true, false, true));
+
+        for (IndexMeta indexMeta : declaredIndexes) {
+            if (indexMeta.getCollectionName().equals(collectionName)) {
+                BsonDocument keyPattern = IndexDefinitions.normalizeKeyPattern(indexMeta.getIndex().toBsonDocument());
+                boolean behavioural = IndexDefinitions.hasBehaviouralOptions(indexMeta.getIndexOptions().orElse(null));
+                byKeyPattern.merge(keyPattern, new CandidateIndex(keyPattern, behavioural, true, false), CandidateIndex::merge);
+            }
+        }
+
+        if (database != null) {
+            for (Document liveIndex : database.getCollection(collectionName).listIndexes()) {
+                Document key = liveIndex.get("key", Document.class);
+                if (key != null) {
+                    BsonDocument keyPattern = IndexDefinitions.normalizeKeyPattern(key.toBsonDocument());
+                    boolean behavioural = IndexDefinitions.hasBehaviouralOptions(liveIndex);
+                    byKeyPattern.merge(keyPattern, new CandidateIndex(keyPattern, behavioural, false, true), CandidateIndex::merge);
+                }
+            }
+        }
+        return new ArrayList<>(byKeyPattern.values());
+    }
+
+    static IndexAdviceReport.ShapeFinding evaluate(String specificationClass, String collectionName,
+                                                   QueryFields fields, List<CandidateIndex> candidates) {
+        IndexAdviceReport.Coverage best = IndexAdviceReport.Coverage.UNCOVERED;
+        CandidateIndex bestIndex = null;
+        if (fields.getEqualityFields().contains("_id")) {
+            best = IndexAdviceReport.Coverage.COVERED;
+            bestIndex = new CandidateIndex(ID_KEY_PATTERN, true, false, true);
+        }
+        for (CandidateIndex candidate : candidates) {
+            if (best == IndexAdviceReport.Coverage.COVERED) {
+                break;
+            }
+            IndexAdviceReport.Coverage coverage = coverage(fields, IndexDefinitions.keysOf(candidate.keyPattern()));
+            if (coverage.ordinal() < best.ordinal()) {
+                best = coverage;
+                bestIndex = candidate;
+            }
+        }
+        return new IndexAdviceReport.ShapeFinding(specificationClass, collectionName, fields, best,
+                bestIndex != null ? bestIndex.keyPattern().toJson() : null,
+                best == IndexAdviceReport.Coverage.COVERED ? null : suggestIndex(fields).toJson());
+    }
+
+    private static IndexAdviceReport.Coverage coverage(QueryFields fields, Map<String, Integer> keys) {
+        List<Map.Entry<String, Integer>> indexKeys = new ArrayList<>(keys.entrySet());
+        if (indexKeys.isEmpty()) {
+            return IndexAdviceReport.Coverage.UNCOVERED;
+        }
+
+        // E: equality fields must form the index prefix, in any order
+        Set<String> remainingEquality = new HashSet<>(fields.getEqualityFields());
+        int position = 0;
+        while (position < indexKeys.size() && remainingEquality.remove(indexKeys.get(position).getKey())) {
+            position++;
+        }
+        String firstKey = indexKeys.getFirst().getKey();
+        boolean usable = position > 0
+                || fields.getRangeFields().contains(firstKey)
+                || fields.getSortKeys().containsKey(firstKey);
+        if (!usable) {
+            return IndexAdviceReport.Coverage.UNCOVERED;
+        }
+        if (!remainingEquality.isEmpty()) {
+            return IndexAdviceReport.Coverage.PARTIAL;
+        }
+
+        // S: sort keys must follow, all in index direction or all reversed
+        Integer sign = null;
+        for (Map.Entry<String, Integer> sortKey : fields.getSortKeys().entrySet()) {
+            if (fields.getEqualityFields().contains(sortKey.getKey())) {
+                continue;
+            }
+            if (position >= indexKeys.size()
+                    || !indexKeys.get(position).getKey().equals(sortKey.getKey())
+                    || indexKeys.get(position).getValue() == 0) {
+                return IndexAdviceReport.Coverage.PARTIAL;
+            }
+            int keySign = indexKeys.get(position).getValue() * sortKey.getValue();
+            if (sign != null && sign != keySign) {
+                return IndexAdviceReport.Coverage.PARTIAL;
+            }
+            sign = keySign;
+            position++;
+        }
+
+        // R: range fields anywhere in the index, so they are matched on keys rather than documents
+        return keys.keySet().containsAll(fields.getRangeFields())
+                ? IndexAdviceReport.Coverage.COVERED
+                : IndexAdviceReport.Coverage.PARTIAL;
+    }
+
+    private static BsonDocument suggestIndex(QueryFields fields) {
+        BsonDocument keyPattern = new BsonDocument();
+        fields.getEqualityFields().forEach(field -> keyPattern.put(field, new BsonInt32(1)));
+        fields.getSortKeys().forEach((field, direction) -> keyPattern.putIfAbsent(field, new BsonInt32(direction)));
+        fields.getRangeFields().forEach(field -> keyPattern.putIfAbsent(field, new BsonInt32(1)));
+        return keyPattern;
+    }
+
+    static List<IndexAdviceReport.RedundantIndex> findRedundant(String collectionName, List<CandidateIndex> candidates) {
+        List<IndexAdviceReport.RedundantIndex> redundant = new ArrayList<>();
+        for (CandidateIndex index : candidates) {
+            if (index.behavioural() || index.keyPattern().equals(ID_KEY_PATTERN)) {
+                continue;
+            }
+            candidates.stream()
+                    .filter(other -> other != index && isStrictPrefix(index.keyPattern(), other.keyPattern()))
+                    .findFirst()
+                    .ifPresent(longer -> redundant.add(new IndexAdviceReport.RedundantIndex(collectionName,
+                            index.keyPattern().toJson(), longer.keyPattern().toJson(), index.declared())));
+        }
+        return redundant;
+    }
+
+    private static boolean isStrictPrefix(BsonDocument prefix, BsonDocument keyPattern) {
+        if (prefix.size() >= keyPattern.size()) {
+            return false;
+        }
+        List<Map.Entry<String, BsonValue>> longer = new ArrayList<>(keyPattern.entrySet());
+        int position = 0;
+        for (Map.Entry<String, BsonValue> entry : prefix.entrySet()) {
+            if (!longer.get(position++).equals(entry)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    record CandidateIndex(BsonDocument keyPattern, boolean behavioural, boolean declared, boolean live) {
+
+        CandidateIndex merge(CandidateIndex other) {
+            return new CandidateIndex(keyPattern, behavioural || other.behavioural,
+                    declared || other.declared, live || other.live);
+        }
+    }
+}
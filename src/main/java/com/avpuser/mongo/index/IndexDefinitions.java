@@ -0,0 +1,82 @@
+package com.avpuser.mongo.index;
+
+import com.mongodb.client.model.IndexOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/** Helpers shared by {@link IndexAdvisor} and {@link MongoIndexManager} to compare index definitions from {@link IndexMeta} and {@code listIndexes}. */
+final class IndexDefinitions {
+
+    private IndexDefinitions() {
+    }
+
+    /** Index key pattern as field -&gt; direction; non-numeric kinds ({@code "text"}, {@code "hashed"}...) map to 0. */
+    static Map<String, Integer> keysOf(BsonDocument keyPattern) {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        for (Map.Entry<String, BsonValue> entry : keyPattern.entrySet()) {
+            BsonValue value = entry.getValue();
+            keys.put(entry.getKey(), value.isNumber() ? Integer.signum(value.asNumber().intValue()) : 0);
+        }
+        return keys;
+    }
+
+    /** Key pattern with every numeric direction as int32 1/-1, so patterns from different sources compare equal. */
+    static BsonDocument normalizeKeyPattern(BsonDocument keyPattern) {
+        BsonDocument normalized = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : keyPattern.entrySet()) {
+            BsonValue value = entry.getValue();
+            normalized.put(entry.getKey(), value.isNumber() ? new BsonInt32(value.asNumber().doubleValue() < 0 ? -1 : 1) : value);
+        }
+        return normalized;
+    }
+
+    /** Whether the index does more than speed up reads: unique, TTL, partial or sparse. */
+    static boolean hasBehaviouralOptions(IndexOptions options) {
+        return options != null && (options.isUnique()
+                || options.getExpireAfter(TimeUnit.SECONDS) != null
+                || options.getPartialFilterExpression() != null
+                || options.isSparse());
+    }
+
+    static boolean hasBehaviouralOptions(Document liveIndex) {
+        return Boolean.TRUE.equals(liveIndex.get("unique"))
+                || liveIndex.containsKey("expireAfterSeconds")
+                || liveIndex.containsKey("partialFilterExpression")
+                || Boolean.TRUE.equals(liveIndex.get("sparse"));
+    }
+
+    /** Options of {@code declared} that differ from the {@code listIndexes} entry {@code live}; empty when they agree. */
+    static List<String> optionDifferences(IndexOptions declared, Document live) {
+        List<String> differences = new ArrayList<>();
+        compare(differences, "unique", declared.isUnique(), Boolean.TRUE.equals(live.get("unique")));
+        compare(differences, "sparse", declared.isSparse(), Boolean.TRUE.equals(live.get("sparse")));
+        Object liveTtl = live.get("expireAfterSeconds");
+        compare(differences, "expireAfterSeconds", declared.getExpireAfter(TimeUnit.SECONDS),
+                liveTtl instanceof Number number ? number.longValue() : null);
+        Bson declaredPartial = declared.getPartialFilterExpression();
+        Document livePartial = live.get("partialFilterExpression", Document.class);
+        compare(differences, "partialFilterExpression",
+                declaredPartial != null ? declaredPartial.toBsonDocument() : null,
+                livePartial != null ? livePartial.toBsonDocument() : null);
+        if (declared.getName() != null) {
+            compare(differences, "name", declared.getName(), live.getString("name"));
+        }
+        return differences;
+    }
+
+    private static void compare(List<String> differences, String option, Object declared, Object live) {
+        if (!Objects.equals(declared, live)) {
+            differences.add(option + ": declared=" + declared + ", live=" + live);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.avpuser.mongo.index;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * A declared index whose live counterpart (same key pattern, or same name) was created with
+ * different options. Reconciliation never drops or rebuilds such an index; it is only reported.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class IndexDrift {
+
+    private final IndexMeta indexMeta;
+
+    private final String liveIndexName;
+
+    /** One entry per differing option, e.g. {@code unique: declared=true, live=false}. */
+    private final List<String> differences;
+}
@@ -0,0 +1,36 @@
+package com.avpuser.mongo.index;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of comparing the declared {@link IndexMeta} list with {@code listIndexes}, per collection:
+ * what is missing and would be created, what already exists as declared, and what exists with
+ * drifted options. Computed by {@link MongoIndexManager#plan()}, executed by
+ * {@link MongoIndexManager#apply(IndexPlan)}.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class IndexPlan {
+
+    private final Map<String, List<IndexMeta>> missing = new TreeMap<>();
+
+    private final List<IndexDrift> drifted = new ArrayList<>();
+
+    private final List<IndexMeta> unchanged = new ArrayList<>();
+
+    public boolean hasChanges() {
+        return !missing.isEmpty();
+    }
+
+    public int missingCount() {
+        return missing.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,26 @@
+package com.avpuser.mongo.index;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Outcome of {@link MongoIndexManager#apply(IndexPlan)}: the plan, and per collection the created index names or the failure. */
+@Data
+@ToString
+@EqualsAndHashCode
+public class IndexReconciliationReport {
+
+    private final IndexPlan plan;
+
+    private final Map<String, List<String>> created = new TreeMap<>();
+
+    private final Map<String, String> failures = new TreeMap<>();
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
@@ -1,29 +1,46 @@
 package com.avpuser.mongo.index;
 
+import com.mongodb.MongoException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexModel;
 import com.mongodb.client.model.IndexOptions;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 public class MongoIndexManager {
 
     private static final Logger logger = LogManager.getLogger(MongoIndexManager.class);
 
+    private static final int RECONCILE_PARALLELISM = 4;
+
     private final MongoDatabase database;
 
     private final List<IndexMeta> indexMetaList;
 
     public MongoIndexManager(MongoDatabase database) {
+        this(database, IndexMetaUtil.generateAllIndexMeta());
+    }
+
+    public MongoIndexManager(MongoDatabase database, List<IndexMeta> indexMetaList) {
         this.database = database;
-        this.indexMetaList = IndexMetaUtil.generateAllIndexMeta();
+        this.indexMetaList = indexMetaList;
     }
 
     public Map<IndexMeta, String> createIndexes() {
@@ -60,5 +77,125 @@ public class MongoIndexManager {
         collection.dropIndex(indexName);
     }
 
+    /**
+     * Startup-friendly alternative to {@link #createIndexes()}: creates only the declared indexes
+     * that do not exist yet. When nothing changed this costs one {@code listIndexes} per collection.
+     */
+    public IndexReconciliationReport reconcile() {
+        return apply(plan());
+    }
+
+    /**
+     * Compares the declared indexes with {@code listIndexes} of each collection, reading the
+     * collections in parallel. A declared index matches a live one by key pattern; options that
+     * differ (unique, sparse, TTL, partial filter, explicit name) are reported as {@link IndexDrift}.
+     * A declared index whose explicit name is taken by a different key pattern is drift as well,
+     * since creating it would fail. Nothing is modified.
+     * <p>
+     * Text indexes are listed by the server under internal keys ({@code _fts}/{@code _ftsx}), so
+     * they always show up as missing; re-creating an identical one is a server-side no-op.
+     */
+    public IndexPlan plan() {
+        Map<String, List<IndexMeta>> declaredByCollection = new TreeMap<>();
+        for (IndexMeta indexMeta : indexMetaList) {
+            declaredByCollection.computeIfAbsent(indexMeta.getCollectionName(), name -> new ArrayList<>()).add(indexMeta);
+        }
+
+        Map<String, List<Document>> liveByCollection = runPerCollection(declaredByCollection.keySet(), collectionName ->
+                database.getCollection(collectionName).listIndexes().into(new ArrayList<>()));
+
+        IndexPlan plan = new IndexPlan();
+        declaredByCollection.forEach((collectionName, declared) ->
+                planCollection(declared, liveByCollection.get(collectionName), plan));
+        logger.info("Index plan: {} missing, {} unchanged, {} drifted",
+                plan.missingCount(), plan.getUnchanged().size(), plan.getDrifted().size());
+        plan.getDrifted().forEach(drift -> logger.warn("Index drift in {}: {} {}",
+                drift.getIndexMeta().getCollectionName(), drift.getLiveIndexName(), drift.getDifferences()));
+        return plan;
+    }
+
+    /** Creates the missing indexes of {@code plan} with one {@code createIndexes} call per collection, collections in parallel. */
+    public IndexReconciliationReport apply(IndexPlan plan) {
+        IndexReconciliationReport report = new IndexReconciliationReport(plan);
+        Map<String, List<IndexMeta>> missing = plan.getMissing();
+        Map<String, Object> outcomes = runPerCollection(missing.keySet(), collectionName -> {
+            List<IndexModel> models = missing.get(collectionName).stream()
+                    .map(indexMeta -> new IndexModel(indexMeta.getIndex(), indexMeta.getIndexOptions().orElseGet(IndexOptions::new)))
+                    .toList();
+            try {
+                return database.getCollection(collectionName).createIndexes(models);
+            } catch (MongoException e) {
+                logger.error("Failed to create indexes in {}", collectionName, e);
+                return e.getMessage();
+            }
+        });
+        outcomes.forEach((collectionName, outcome) -> {
+            if (outcome instanceof List<?> names) {
+                List<String> created = names.stream().map(String::valueOf).toList();
+                report.getCreated().put(collectionName, created);
+                logger.info("Created indexes in {}: {}", collectionName, created);
+            } else {
+                report.getFailures().put(collectionName, String.valueOf(outcome));
+            }
+        });
+        return report;
+    }
+
+    private void planCollection(List<IndexMeta> declared, List<Document> liveIndexes, IndexPlan plan) {
+        for (IndexMeta indexMeta : declared) {
+            BsonDocument keyPattern = IndexDefinitions.normalizeKeyPattern(indexMeta.getIndex().toBsonDocument());
+            IndexOptions options = indexMeta.getIndexOptions().orElseGet(IndexOptions::new);
+
+            Optional<Document> sameKeys = liveIndexes.stream()
+                    .filter(live -> live.get("key", Document.class) != null
+                            && IndexDefinitions.normalizeKeyPattern(live.get("key", Document.class).toBsonDocument()).equals(keyPattern))
+                    .findFirst();
+            if (sameKeys.isPresent()) {
+                List<String> differences = IndexDefinitions.optionDifferences(options, sameKeys.get());
+                if (differences.isEmpty()) {
+                    plan.getUnchanged().add(indexMeta);
+                } else {
+                    plan.getDrifted().add(new IndexDrift(indexMeta, sameKeys.get().getString("name"), differences));
+                }
+                continue;
+            }
+
+            Optional<Document> sameName = options.getName() == null ? Optional.empty() : liveIndexes.stream()
+                    .filter(live -> options.getName().equals(live.getString("name")))
+                    .findFirst();
+            if (sameName.isPresent()) {
+                plan.getDrifted().add(new IndexDrift(indexMeta, options.getName(), List.of(
+                        "key: declared=" + keyPattern.toJson() + ", live=" + sameName.get().get("key", Document.class).toJson())));
+            } else {
+                plan.getMissing().computeIfAbsent(indexMeta.getCollectionName(), name -> new ArrayList<>()).add(indexMeta);
+            }
+        }
+    }
+
+    private <R> Map<String, R> runPerCollection(Collection<String> collectionNames, Function<String, R> task) {
+        Map<String, R> results = new TreeMap<>();
+        if (collectionNames.isEmpty()) {
+            return results;
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(RECONCILE_PARALLELISM, collectionNames.size()))) {
+            Map<String, Future<R>> futures = new TreeMap<>();
+            for (String collectionName : collectionNames) {
+                futures.put(collectionName, executor.submit(() -> task.apply(collectionName)));
+            }
+            for (Map.Entry<String, Future<R>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reconciling indexes", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
 
 }
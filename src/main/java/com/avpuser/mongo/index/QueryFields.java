@@ -0,0 +1,86 @@
+package com.avpuser.mongo.index;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fields of one query shape, split the way the equality-sort-range rule looks at them:
+ * fields compared for equality ({@code {a: 1}}, {@code $eq}, {@code $in}), fields matched any other
+ * way (ranges, {@code $exists}, {@code $regex}, branches of {@code $or}, ...), and the sort keys
+ * with their directions.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class QueryFields {
+
+    private final Set<String> equalityFields = new LinkedHashSet<>();
+
+    private final Set<String> rangeFields = new LinkedHashSet<>();
+
+    private final Map<String, Integer> sortKeys = new LinkedHashMap<>();
+
+    public static QueryFields of(BsonDocument filter, BsonDocument sort) {
+        QueryFields fields = new QueryFields();
+        if (filter != null) {
+            fields.collect(filter, false);
+        }
+        if (sort != null) {
+            for (Map.Entry<String, BsonValue> entry : sort.entrySet()) {
+                BsonValue direction = entry.getValue();
+                fields.sortKeys.put(entry.getKey(), direction.isNumber() && direction.asNumber().intValue() < 0 ? -1 : 1);
+            }
+        }
+        fields.rangeFields.removeAll(fields.equalityFields);
+        return fields;
+    }
+
+    public boolean isEmpty() {
+        return equalityFields.isEmpty() && rangeFields.isEmpty() && sortKeys.isEmpty();
+    }
+
+    private void collect(BsonDocument filter, boolean insideAlternative) {
+        for (Map.Entry<String, BsonValue> entry : filter.entrySet()) {
+            String key = entry.getKey();
+            BsonValue value = entry.getValue();
+            if (key.equals("$and")) {
+                collectBranches(value, insideAlternative);
+            } else if (key.equals("$or") || key.equals("$nor")) {
+                collectBranches(value, true);
+            } else if (key.startsWith("$")) {
+                // $expr, $text, $where: nothing an ordinary index key can serve
+            } else if (!insideAlternative && isEquality(value)) {
+                equalityFields.add(key);
+            } else {
+                rangeFields.add(key);
+            }
+        }
+    }
+
+    private void collectBranches(BsonValue branches, boolean insideAlternative) {
+        if (branches.isArray()) {
+            for (BsonValue branch : branches.asArray()) {
+                if (branch.isDocument()) {
+                    collect(branch.asDocument(), insideAlternative);
+                }
+            }
+        }
+    }
+
+    private static boolean isEquality(BsonValue value) {
+        if (!value.isDocument()) {
+            return true;
+        }
+        BsonDocument condition = value.asDocument();
+        boolean operatorDocument = !condition.isEmpty() && condition.keySet().stream().allMatch(key -> key.startsWith("$"));
+        return !operatorDocument || condition.keySet().stream().allMatch(key -> key.equals("$eq") || key.equals("$in"));
+    }
+}
@@ -0,0 +1,17 @@
+package com.avpuser.mongo.index;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names the collection a {@link com.avpuser.mongo.LimitSpecification} subclass is run against,
+ * so {@link IndexAdvisor} knows which indexes have to serve it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SpecificationCollection {
+
+    String value();
+}
@@ -0,0 +1,103 @@
+package com.avpuser.mongo.index;
+
+import com.avpuser.mongo.LimitSpecification;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Instantiates a {@link LimitSpecification} subclass with placeholder arguments, just to read the
+ * shape of its {@code filter()} and {@code sort()}. Constructors are tried from the fewest
+ * parameters up; a class none of them accepts placeholders for is reported as not sampled.
+ */
+final class SpecificationSampler {
+
+    private static final String SAMPLE_STRING = "sample";
+
+    private SpecificationSampler() {
+    }
+
+    static Optional<LimitSpecification> sample(Class<? extends LimitSpecification> specificationClass) {
+        if (Modifier.isAbstract(specificationClass.getModifiers())) {
+            return Optional.empty();
+        }
+        List<Constructor<?>> constructors = Arrays.stream(specificationClass.getDeclaredConstructors())
+                .sorted(Comparator.comparingInt(Constructor::getParameterCount))
+                .toList();
+        for (Constructor<?> constructor : constructors) {
+            try {
+                constructor.setAccessible(true);
+                Object[] arguments = Arrays.stream(constructor.getParameterTypes())
+                        .map(SpecificationSampler::sampleValue)
+                        .toArray();
+                LimitSpecification specification = (LimitSpecification) constructor.newInstance(arguments);
+                // a constructor may accept placeholders and still fail once the filter is built
+                specification.filter().toBsonDocument();
+                specification.sort().toBsonDocument();
+                return Optional.of(specification);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // try the next constructor
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Object sampleValue(Class<?> type) {
+        if (type == String.class) {
+            return SAMPLE_STRING;
+        }
+        if (type == int.class || type == Integer.class) {
+            return 1;
+        }
+        if (type == long.class || type == Long.class) {
+            return 1L;
+        }
+        if (type == double.class || type == Double.class) {
+            return 1.0;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return false;
+        }
+        if (type == Instant.class) {
+            return Instant.EPOCH;
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.EPOCH;
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.of(LocalDate.EPOCH, LocalTime.MIDNIGHT);
+        }
+        if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return constants.length > 0 ? constants[0] : null;
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (Set.class.isAssignableFrom(type)) {
+            return Set.of(SAMPLE_STRING);
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return List.of(SAMPLE_STRING);
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return Map.of();
+        }
+        if (type.isPrimitive()) {
+            // byte, short, char, float
+            return type == char.class ? 'a' : type == float.class ? 1.0f : type == short.class ? (short) 1 : (byte) 1;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.avpuser.mongo.metrics;
+
+/**
+ * Receives one call per measured {@link com.avpuser.mongo.CommonDao} operation.
+ * Implementations must be thread-safe and cheap: they run on the calling thread of every query.
+ * {@link InMemoryDaoMetrics} keeps histograms in-process; a Micrometer-backed sink is a few lines,
+ * e.g. {@code Timer.builder("mongo.dao").tags("entity", entityName, "operation", operationName)}.
+ */
+@FunctionalInterface
+public interface DaoMetricsSink {
+
+    DaoMetricsSink NOOP = (entityName, operationName, durationNanos, resultCount, failed) -> {
+    };
+
+    /**
+     * @param resultCount number of documents returned, written or deleted; 0 where that is not
+     *                    known, e.g. for streaming reads
+     * @param failed      whether the operation threw
+     */
+    void record(String entityName, String operationName, long durationNanos, long resultCount, boolean failed);
+}
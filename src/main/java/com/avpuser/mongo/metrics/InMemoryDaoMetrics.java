@@ -0,0 +1,63 @@
+package com.avpuser.mongo.metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in {@link DaoMetricsSink}: one {@link LatencyHistogram} plus error and result counters per
+ * entity+operation, readable at any time via {@link #snapshot()}. Share one instance between DAOs
+ * to see all of them in one place.
+ */
+public class InMemoryDaoMetrics implements DaoMetricsSink {
+
+    private final Map<Key, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String entityName, String operationName, long durationNanos, long resultCount, boolean failed) {
+        OperationMetrics operation = metrics.computeIfAbsent(new Key(entityName, operationName), key -> new OperationMetrics());
+        operation.histogram.record(durationNanos / 1_000L);
+        operation.resultCount.add(resultCount);
+        if (failed) {
+            operation.errorCount.increment();
+        }
+    }
+
+    public Optional<OperationStats> get(String entityName, String operationName) {
+        Key key = new Key(entityName, operationName);
+        return Optional.ofNullable(metrics.get(key)).map(operation -> operation.toStats(key));
+    }
+
+    /** Stats of every operation recorded so far, sorted by entity and operation name. */
+    public List<OperationStats> snapshot() {
+        return metrics.entrySet().stream()
+                .map(entry -> entry.getValue().toStats(entry.getKey()))
+                .sorted(Comparator.comparing(OperationStats::getEntityName)
+                        .thenComparing(OperationStats::getOperationName))
+                .toList();
+    }
+
+    public void reset() {
+        metrics.clear();
+    }
+
+    private record Key(String entityName, String operationName) {
+    }
+
+    private static final class OperationMetrics {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errorCount = new LongAdder();
+        private final LongAdder resultCount = new LongAdder();
+
+        private OperationStats toStats(Key key) {
+            return new OperationStats(key.entityName(), key.operationName(),
+                    histogram.count(), errorCount.sum(), resultCount.sum(), histogram.meanMicros(),
+                    histogram.percentileMicros(50), histogram.percentileMicros(95),
+                    histogram.percentileMicros(99), histogram.maxMicros());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.avpuser.mongo.metrics;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/** Point-in-time aggregate of one entity+operation pair, as collected by {@link InMemoryDaoMetrics}. */
+@Data
+@ToString
+@EqualsAndHashCode
+public class OperationStats {
+
+    private final String entityName;
+
+    private final String operationName;
+
+    private final long count;
+
+    private final long errorCount;
+
+    private final long resultCount;
+
+    private final double meanMicros;
+
+    private final long p50Micros;
+
+    private final long p95Micros;
+
+    private final long p99Micros;
+
+    private final long maxMicros;
+}
@@ -0,0 +1,72 @@
+package com.avpuser.mongo.typeconverter;
+
+import com.avpuser.mongo.BulkUpdateResult;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of rewriting one collection in {@link MongoEntityFixer#rewriteAllData}: how many
+ * documents were written, conflicted or missing, plus the first {@value #MAX_REPORTED_IDS}
+ * conflicted and missing ids for follow-up. Written ids are only counted, so the report stays
+ * small however large the collection is. Safe to update from several range threads.
+ */
+@ToString
+@EqualsAndHashCode
+public class CollectionFixResult {
+
+    public static final int MAX_REPORTED_IDS = 1_000;
+
+    private long updatedCount;
+
+    private long conflictedCount;
+
+    private long missingCount;
+
+    private final List<String> conflictedIds = new ArrayList<>();
+
+    private final List<String> missingIds = new ArrayList<>();
+
+    synchronized void add(BulkUpdateResult result) {
+        updatedCount += result.getUpdatedIds().size();
+        conflictedCount += result.getConflictedIds().size();
+        missingCount += result.getMissingIds().size();
+        addCapped(conflictedIds, result.getConflictedIds());
+        addCapped(missingIds, result.getMissingIds());
+    }
+
+    public synchronized long getUpdatedCount() {
+        return updatedCount;
+    }
+
+    public synchronized long getConflictedCount() {
+        return conflictedCount;
+    }
+
+    public synchronized long getMissingCount() {
+        return missingCount;
+    }
+
+    /** The first {@value #MAX_REPORTED_IDS} conflicted ids; see {@link #getConflictedCount()} for all. */
+    public synchronized List<String> getConflictedIds() {
+        return List.copyOf(conflictedIds);
+    }
+
+    /** The first {@value #MAX_REPORTED_IDS} missing ids; see {@link #getMissingCount()} for all. */
+    public synchronized List<String> getMissingIds() {
+        return List.copyOf(missingIds);
+    }
+
+    public synchronized boolean isFullySuccessful() {
+        return conflictedCount == 0 && missingCount == 0;
+    }
+
+    private static void addCapped(List<String> target, List<String> ids) {
+        int room = MAX_REPORTED_IDS - target.size();
+        if (room > 0) {
+            target.addAll(ids.subList(0, Math.min(room, ids.size())));
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.avpuser.mongo.typeconverter;
+
+import com.avpuser.mongo.encryption.Encrypted;
+import com.avpuser.mongo.encryption.EncryptedFieldIntrospector;
+import com.avpuser.mongo.encryption.PiiEncryptionService;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedConstructor;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.bson.BsonReader;
+import org.bson.BsonSerializationException;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.types.ObjectId;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Codec} that writes an entity's properties straight to a {@link BsonWriter} and reads them
+ * straight from a {@link BsonReader}, without going through MongoJack's Jackson-to-BSON bridge.
+ * <p>
+ * The property model (names, order, accessors, inclusion, ignored properties) is taken once from
+ * the Jackson mapper the entity is otherwise written with, so the stored document is the same.
+ * String, boolean, int, long, double, {@link Instant} (as a BSON date, like
+ * {@link InstantDateSerializer}), {@link LocalDate} (as an int64 epoch day, like
+ * {@link LocalDateEpochDaySerializer}) and MongoJack {@code @ObjectId} strings are handled
+ * directly; {@code @Encrypted} fields are encrypted and decrypted with the
+ * {@link PiiEncryptionService} and their lookup fields computed, as the Jackson module does. Any
+ * other property type (nested objects, collections, enums, maps) is converted with the mapper
+ * itself through {@link JacksonBsonConverter}, as are stored values in an unexpected BSON type.
+ * <p>
+ * Entities that Jackson maps in ways this codec does not reproduce - creators, any-getters or
+ * any-setters, unwrapped or custom-(de)serialized properties, {@code @JsonFormat} or
+ * non-default inclusion filters - are rejected by {@link #create} with a
+ * {@link CodecConfigurationException}.
+ */
+public final class EntityCodec<T> implements Codec<T> {
+
+    private static final BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+
+    private enum Kind { STRING, OBJECT_ID, BOOLEAN, INT, LONG, DOUBLE, INSTANT, LOCAL_DATE, ENCRYPTED, LOOKUP, JACKSON }
+
+    private final Class<T> type;
+    private final ObjectMapper mapper;
+    private final PiiEncryptionService encryptionService;
+    private final Constructor<T> constructor;
+    private final List<WriteProperty> writeProperties;
+    private final Map<String, ReadProperty> readProperties;
+    private final Set<String> ignoredProperties;
+    private final boolean failOnUnknownProperties;
+
+    private EntityCodec(Class<T> type, ObjectMapper mapper, PiiEncryptionService encryptionService,
+                        Constructor<T> constructor, List<WriteProperty> writeProperties,
+                        Map<String, ReadProperty> readProperties, Set<String> ignoredProperties,
+                        boolean failOnUnknownProperties) {
+        this.type = type;
+        this.mapper = mapper;
+        this.encryptionService = encryptionService;
+        this.constructor = constructor;
+        this.writeProperties = writeProperties;
+        this.readProperties = readProperties;
+        this.ignoredProperties = ignoredProperties;
+        this.failOnUnknownProperties = failOnUnknownProperties;
+    }
+
+    /**
+     * @param encryptionService required if {@code type} declares {@code @Encrypted} fields
+     * @throws CodecConfigurationException if Jackson maps {@code type} in a way this codec cannot reproduce
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityCodec<T> create(Class<T> type, ObjectMapper mapper, PiiEncryptionService encryptionService) {
+        Map<String, Encrypted> encryptedFields = EncryptedFieldIntrospector.scanEncryptedFields(type);
+        if (!encryptedFields.isEmpty() && encryptionService == null) {
+            throw new CodecConfigurationException(type.getName() + " declares @Encrypted fields but no PiiEncryptionService was given");
+        }
+        Map<String, String> sourceByLookupField = new HashMap<>();
+        encryptedFields.forEach((field, annotation) -> {
+            if (!annotation.lookupField().isBlank()) {
+                sourceByLookupField.put(annotation.lookupField(), field);
+            }
+        });
+
+        JavaType javaType = mapper.constructType(type);
+        SerializationConfig serializationConfig = mapper.getSerializationConfig();
+        DeserializationConfig deserializationConfig = mapper.getDeserializationConfig();
+        AnnotationIntrospector introspector = serializationConfig.getAnnotationIntrospector();
+        BeanDescription serialization = serializationConfig.introspect(javaType);
+        BeanDescription deserialization = deserializationConfig.introspect(javaType);
+
+        if (serialization.findAnyGetter() != null || serialization.findJsonValueAccessor() != null
+                || deserialization.findAnySetterAccessor() != null) {
+            throw unsupported(type, "any-getter, any-setter or @JsonValue");
+        }
+        if (introspector.findTypeResolver(serializationConfig, serialization.getClassInfo(), javaType) != null) {
+            throw unsupported(type, "polymorphic type information");
+        }
+        for (AnnotatedConstructor creator : deserialization.getConstructors()) {
+            if (introspector.findCreatorAnnotation(deserializationConfig, creator) != null) {
+                throw unsupported(type, "@JsonCreator constructor");
+            }
+        }
+        for (AnnotatedMethod creator : deserialization.getFactoryMethods()) {
+            if (introspector.findCreatorAnnotation(deserializationConfig, creator) != null) {
+                throw unsupported(type, "@JsonCreator factory method");
+            }
+        }
+        AnnotatedConstructor defaultConstructor = deserialization.findDefaultConstructor();
+        if (defaultConstructor == null) {
+            throw unsupported(type, "no default constructor");
+        }
+        Constructor<T> constructor = (Constructor<T>) defaultConstructor.getAnnotated();
+        constructor.setAccessible(true);
+
+        JsonInclude.Value classInclusion = serialization.findPropertyInclusion(
+                serializationConfig.getDefaultPropertyInclusion(type));
+        List<WriteProperty> writeProperties = new ArrayList<>();
+        for (BeanPropertyDefinition property : serialization.findProperties()) {
+            AnnotatedMember accessor = property.getAccessor();
+            if (accessor == null || !property.couldSerialize()) {
+                continue;
+            }
+            requireDefaultMapping(type, property, accessor, introspector, serializationConfig);
+            accessor.fixAccess(true);
+            JsonInclude.Include inclusion = classInclusion.withOverrides(property.findInclusion()).getValueInclusion();
+            if (inclusion == JsonInclude.Include.NON_DEFAULT || inclusion == JsonInclude.Include.CUSTOM) {
+                throw unsupported(type, "@JsonInclude(" + inclusion + ") on " + property.getName());
+            }
+            Encrypted encrypted = encryptedFields.get(property.getName());
+            String lookupSource = sourceByLookupField.get(property.getName());
+            Kind kind;
+            Field sourceField = null;
+            String context = null;
+            if (encrypted != null) {
+                kind = Kind.ENCRYPTED;
+                context = encrypted.context();
+            } else if (lookupSource != null) {
+                kind = Kind.LOOKUP;
+                context = encryptedFields.get(lookupSource).context();
+                sourceField = EncryptedFieldIntrospector.findField(type, lookupSource);
+            } else {
+                kind = kindOf(accessor);
+            }
+            writeProperties.add(new WriteProperty(property.getName(), kind, accessor, accessor.getType(),
+                    inclusion, context, sourceField, mapper, encryptionService));
+        }
+
+        Map<String, ReadProperty> readProperties = new HashMap<>();
+        for (BeanPropertyDefinition property : deserialization.findProperties()) {
+            AnnotatedMember mutator = property.getSetter() != null ? property.getSetter() : property.getField();
+            if (mutator == null) {
+                continue;
+            }
+            requireDefaultMapping(type, property, mutator, introspector, deserializationConfig);
+            mutator.fixAccess(true);
+            JavaType propertyType = mutator instanceof AnnotatedMethod setter ? setter.getParameterType(0) : mutator.getType();
+            Encrypted encrypted = encryptedFields.get(property.getName());
+            Kind kind = encrypted != null ? Kind.ENCRYPTED : kindOf(mutator, propertyType);
+            ReadProperty readProperty = new ReadProperty(kind, mutator, propertyType,
+                    encrypted != null ? encrypted.context() : null, mapper, encryptionService);
+            readProperties.put(property.getName(), readProperty);
+            for (var alias : property.findAliases()) {
+                readProperties.put(alias.getSimpleName(), readProperty);
+            }
+        }
+
+        boolean ignoreUnknown = introspector.findPropertyIgnoralByName(deserializationConfig, deserialization.getClassInfo())
+                .getIgnoreUnknown();
+        return new EntityCodec<>(type, mapper, encryptionService, constructor, List.copyOf(writeProperties),
+                Map.copyOf(readProperties), Set.copyOf(deserialization.getIgnoredPropertyNames()),
+                !ignoreUnknown && mapper.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+    }
+
+    private static void requireDefaultMapping(Class<?> type, BeanPropertyDefinition property, AnnotatedMember member,
+                                              AnnotationIntrospector introspector,
+                                              MapperConfig<?> config) {
+        if (introspector.findUnwrappingNameTransformer(member) != null) {
+            throw unsupported(type, "@JsonUnwrapped on " + property.getName());
+        }
+        if (isObjectIdString(member)) {
+            return;
+        }
+        if (introspector.findSerializer(member) != null || introspector.findDeserializer(member) != null
+                || introspector.findContentSerializer(member) != null || introspector.findContentDeserializer(member) != null
+                || introspector.findKeySerializer(member) != null || introspector.findKeyDeserializer(member) != null) {
+            throw unsupported(type, "custom (de)serializer on " + property.getName());
+        }
+        JsonFormat.Value format = introspector.findFormat(member);
+        if (format != null && !format.equals(JsonFormat.Value.empty())) {
+            throw unsupported(type, "@JsonFormat on " + property.getName());
+        }
+        if (introspector.findPropertyTypeResolver(config, member, member.getType()) != null) {
+            throw unsupported(type, "polymorphic type information on " + property.getName());
+        }
+    }
+
+    private static boolean isObjectIdString(AnnotatedMember member) {
+        return member.hasAnnotation(org.mongojack.ObjectId.class) && member.getRawType() == String.class;
+    }
+
+    private static Kind kindOf(AnnotatedMember member) {
+        return kindOf(member, member.getType());
+    }
+
+    private static Kind kindOf(AnnotatedMember member, JavaType propertyType) {
+        Class<?> raw = propertyType.getRawClass();
+        if (raw == String.class) {
+            return member.hasAnnotation(org.mongojack.ObjectId.class) ? Kind.OBJECT_ID : Kind.STRING;
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            return Kind.BOOLEAN;
+        }
+        if (raw == int.class || raw == Integer.class) {
+            return Kind.INT;
+        }
+        if (raw == long.class || raw == Long.class) {
+            return Kind.LONG;
+        }
+        if (raw == double.class || raw == Double.class) {
+            return Kind.DOUBLE;
+        }
+        if (raw == Instant.class) {
+            return Kind.INSTANT;
+        }
+        if (raw == LocalDate.class) {
+            return Kind.LOCAL_DATE;
+        }
+        return Kind.JACKSON;
+    }
+
+    private static CodecConfigurationException unsupported(Class<?> type, String reason) {
+        return new CodecConfigurationException("Direct codec not supported for " + type.getName() + ": " + reason);
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return type;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T entity, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        for (WriteProperty property : writeProperties) {
+            property.write(writer, entity, encoderContext);
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        T entity = newInstance();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            ReadProperty property = readProperties.get(name);
+            if (property != null) {
+                property.read(reader, entity, decoderContext);
+            } else if (!failOnUnknownProperties || ignoredProperties.contains(name)) {
+                reader.skipValue();
+            } else {
+                throw new BsonSerializationException("Unrecognized field \"" + name + "\" for " + type.getName());
+            }
+        }
+        reader.readEndDocument();
+        return entity;
+    }
+
+    private T newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot instantiate " + type.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Constructor of " + type.getName() + " failed", e.getCause());
+        }
+    }
+
+    private static final class WriteProperty {
+
+        private final String name;
+        private final Kind kind;
+        private final AnnotatedMember accessor;
+        private final JavaType javaType;
+        private final JsonInclude.Include inclusion;
+        private final String context;
+        private final Field lookupSourceField;
+        private final ObjectMapper mapper;
+        private final PiiEncryptionService encryptionService;
+
+        WriteProperty(String name, Kind kind, AnnotatedMember accessor, JavaType javaType,
+                      JsonInclude.Include inclusion, String context, Field lookupSourceField,
+                      ObjectMapper mapper, PiiEncryptionService encryptionService) {
+            this.name = name;
+            this.kind = kind;
+            this.accessor = accessor;
+            this.javaType = javaType;
+            this.inclusion = inclusion;
+            this.context = context;
+            this.lookupSourceField = lookupSourceField;
+            this.mapper = mapper;
+            this.encryptionService = encryptionService;
+        }
+
+        void write(BsonWriter writer, Object entity, EncoderContext encoderContext) {
+            if (kind == Kind.LOOKUP) {
+                // like LookupIndexBeanPropertyWriter: always written, derived from the source plaintext
+                String plaintext = (String) get(lookupSourceField, entity);
+                writer.writeName(name);
+                if (plaintext == null || plaintext.isBlank()) {
+                    writer.writeNull();
+                } else {
+                    writer.writeString(encryptionService.computeLookup(plaintext, context));
+                }
+                return;
+            }
+            Object value = accessor.getValue(entity);
+            if (value == null) {
+                if (inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS) {
+                    writer.writeNull(name);
+                }
+                return;
+            }
+            if (inclusion == JsonInclude.Include.NON_EMPTY && isEmpty(value)) {
+                return;
+            }
+            writer.writeName(name);
+            switch (kind) {
+                case STRING -> writer.writeString((String) value);
+                case OBJECT_ID -> writer.writeObjectId(new ObjectId((String) value));
+                case BOOLEAN -> writer.writeBoolean((Boolean) value);
+                case INT -> writer.writeInt32((Integer) value);
+                case LONG -> writer.writeInt64((Long) value);
+                case DOUBLE -> writer.writeDouble((Double) value);
+                // millisecond precision, as java.util.Date in InstantDateSerializer
+                case INSTANT -> writer.writeDateTime(((Instant) value).toEpochMilli());
+                case LOCAL_DATE -> writer.writeInt64(((LocalDate) value).toEpochDay());
+                case ENCRYPTED -> writer.writeString(encryptionService.encrypt((String) value, context));
+                default -> BSON_VALUE_CODEC.encode(writer, JacksonBsonConverter.toBsonValue(mapper, value, javaType),
+                        encoderContext);
+            }
+        }
+
+        private boolean isEmpty(Object value) {
+            return value instanceof String string && string.isEmpty()
+                    || value instanceof Collection<?> collection && collection.isEmpty()
+                    || value instanceof Map<?, ?> map && map.isEmpty()
+                    || value.getClass().isArray() && java.lang.reflect.Array.getLength(value) == 0;
+        }
+
+        private Object get(Field field, Object entity) {
+            try {
+                return field.get(entity);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read " + field.getDeclaringClass().getName() + "#"
+                        + field.getName(), e);
+            }
+        }
+    }
+
+    private static final class ReadProperty {
+
+        private final Kind kind;
+        private final AnnotatedMember mutator;
+        private final JavaType javaType;
+        private final String context;
+        private final ObjectMapper mapper;
+        private final PiiEncryptionService encryptionService;
+
+        ReadProperty(Kind kind, AnnotatedMember mutator, JavaType javaType, String context,
+                     ObjectMapper mapper, PiiEncryptionService encryptionService) {
+            this.kind = kind;
+            this.mutator = mutator;
+            this.javaType = javaType;
+            this.context = context;
+            this.mapper = mapper;
+            this.encryptionService = encryptionService;
+        }
+
+        void read(BsonReader reader, Object entity, DecoderContext decoderContext) {
+            BsonType bsonType = reader.getCurrentBsonType();
+            if (bsonType == BsonType.NULL) {
+                reader.readNull();
+                if (!javaType.isPrimitive()) {
+                    set(entity, null);
+                }
+                return;
+            }
+            Object value = switch (kind) {
+                case STRING -> bsonType == BsonType.STRING ? reader.readString() : fallback(reader, decoderContext);
+                case OBJECT_ID -> bsonType == BsonType.OBJECT_ID ? reader.readObjectId().toHexString()
+                        : fallback(reader, decoderContext);
+                case BOOLEAN -> bsonType == BsonType.BOOLEAN ? reader.readBoolean() : fallback(reader, decoderContext);
+                case INT -> bsonType == BsonType.INT32 ? reader.readInt32() : fallback(reader, decoderContext);
+                case LONG -> switch (bsonType) {
+                    case INT64 -> reader.readInt64();
+                    case INT32 -> (long) reader.readInt32();
+                    default -> fallback(reader, decoderContext);
+                };
+                case DOUBLE -> switch (bsonType) {
+                    case DOUBLE -> reader.readDouble();
+                    case INT32 -> (double) reader.readInt32();
+                    case INT64 -> (double) reader.readInt64();
+                    default -> fallback(reader, decoderContext);
+                };
+                case INSTANT -> bsonType == BsonType.DATE_TIME ? Instant.ofEpochMilli(reader.readDateTime())
+                        : fallback(reader, decoderContext);
+                case LOCAL_DATE -> switch (bsonType) {
+                    case INT64 -> LocalDate.ofEpochDay(reader.readInt64());
+                    case INT32 -> LocalDate.ofEpochDay(reader.readInt32());
+                    default -> fallback(reader, decoderContext);
+                };
+                case ENCRYPTED -> {
+                    String raw = bsonType == BsonType.STRING ? reader.readString() : fallbackString(reader, decoderContext);
+                    yield raw == null ? null : encryptionService.decrypt(raw, context);
+                }
+                default -> fallback(reader, decoderContext);
+            };
+            set(entity, value);
+        }
+
+        /** Values of an unexpected BSON type are read exactly as the Jackson mapper would read them. */
+        private Object fallback(BsonReader reader, DecoderContext decoderContext) {
+            BsonValue value = BSON_VALUE_CODEC.decode(reader, decoderContext);
+            return JacksonBsonConverter.fromBsonValue(mapper, value, javaType);
+        }
+
+        private String fallbackString(BsonReader reader, DecoderContext decoderContext) {
+            BsonValue value = BSON_VALUE_CODEC.decode(reader, decoderContext);
+            return JacksonBsonConverter.fromBsonValue(mapper, value, mapper.constructType(String.class));
+        }
+
+        private void set(Object entity, Object value) {
+            mutator.setValue(entity, value);
+        }
+    }
+}
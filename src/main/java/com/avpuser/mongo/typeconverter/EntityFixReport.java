@@ -0,0 +1,31 @@
+package com.avpuser.mongo.typeconverter;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Outcome of {@link MongoEntityFixer#rewriteAllData}: per collection the write counts, the
+ * failure that stopped it (its checkpoint is kept, so a rerun resumes), or that it was skipped
+ * because a previous run already completed it.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class EntityFixReport {
+
+    private final Map<String, CollectionFixResult> results = new ConcurrentHashMap<>();
+
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+    private final List<String> skipped = new CopyOnWriteArrayList<>();
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
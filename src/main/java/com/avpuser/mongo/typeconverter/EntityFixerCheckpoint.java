@@ -0,0 +1,45 @@
+package com.avpuser.mongo.typeconverter;
+
+import com.avpuser.mongo.IdRange;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of one collection's rewrite: the {@code _id} ranges still to do, each already narrowed
+ * to start after its last written document. No pending range means the collection is done.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+public class EntityFixerCheckpoint {
+
+    private final String collectionName;
+
+    private final List<IdRange> pendingRanges;
+
+    public boolean isCompleted() {
+        return pendingRanges.isEmpty();
+    }
+
+    public BsonDocument toBsonDocument() {
+        BsonArray ranges = new BsonArray();
+        pendingRanges.forEach(range -> ranges.add(range.toBsonDocument()));
+        return new BsonDocument("_id", new BsonString(collectionName)).append("pendingRanges", ranges);
+    }
+
+    public static EntityFixerCheckpoint fromBsonDocument(BsonDocument document) {
+        List<IdRange> ranges = new ArrayList<>();
+        for (BsonValue range : document.getArray("pendingRanges")) {
+            ranges.add(IdRange.fromBsonDocument(range.asDocument()));
+        }
+        return new EntityFixerCheckpoint(document.getString("_id").getValue(), ranges);
+    }
+}
@@ -0,0 +1,16 @@
+package com.avpuser.mongo.typeconverter;
+
+import java.util.Optional;
+
+/**
+ * Persists {@link EntityFixerCheckpoint}s, so an interrupted {@link MongoEntityFixer#rewriteAllData}
+ * continues where it stopped instead of rewriting everything again.
+ */
+public interface EntityFixerCheckpointStore {
+
+    Optional<EntityFixerCheckpoint> load(String collectionName);
+
+    void save(EntityFixerCheckpoint checkpoint);
+
+    void delete(String collectionName);
+}
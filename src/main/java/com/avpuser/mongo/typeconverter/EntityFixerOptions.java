@@ -0,0 +1,65 @@
+package com.avpuser.mongo.typeconverter;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Tuning of {@link MongoEntityFixer#rewriteAllData(EntityFixerOptions)}. Immutable; start from
+ * {@link #defaults()} and derive variants with the {@code with...} methods.
+ * <ul>
+ *     <li>{@code collectionParallelism} - collections rewritten at the same time.</li>
+ *     <li>{@code partitionsPerCollection} - {@code _id} ranges of one collection rewritten at the same time.</li>
+ *     <li>{@code batchSize} - documents per cursor batch and per bulk replace; bounds memory to
+ *     about {@code collectionParallelism * partitionsPerCollection * batchSize} entities.</li>
+ *     <li>{@code maxDocumentsPerSecond} - write rate over all collections; 0 means unlimited.</li>
+ * </ul>
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class EntityFixerOptions {
+
+    private static final EntityFixerOptions DEFAULTS = new EntityFixerOptions(2, 4, 500, 0);
+
+    private final int collectionParallelism;
+
+    private final int partitionsPerCollection;
+
+    private final int batchSize;
+
+    private final int maxDocumentsPerSecond;
+
+    private EntityFixerOptions(int collectionParallelism, int partitionsPerCollection, int batchSize, int maxDocumentsPerSecond) {
+        if (collectionParallelism <= 0 || partitionsPerCollection <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Parallelism, partitions and batch size must be > 0");
+        }
+        if (maxDocumentsPerSecond < 0) {
+            throw new IllegalArgumentException("maxDocumentsPerSecond must be >= 0");
+        }
+        this.collectionParallelism = collectionParallelism;
+        this.partitionsPerCollection = partitionsPerCollection;
+        this.batchSize = batchSize;
+        this.maxDocumentsPerSecond = maxDocumentsPerSecond;
+    }
+
+    public static EntityFixerOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public EntityFixerOptions withCollectionParallelism(int collectionParallelism) {
+        return new EntityFixerOptions(collectionParallelism, partitionsPerCollection, batchSize, maxDocumentsPerSecond);
+    }
+
+    public EntityFixerOptions withPartitionsPerCollection(int partitionsPerCollection) {
+        return new EntityFixerOptions(collectionParallelism, partitionsPerCollection, batchSize, maxDocumentsPerSecond);
+    }
+
+    public EntityFixerOptions withBatchSize(int batchSize) {
+        return new EntityFixerOptions(collectionParallelism, partitionsPerCollection, batchSize, maxDocumentsPerSecond);
+    }
+
+    public EntityFixerOptions withMaxDocumentsPerSecond(int maxDocumentsPerSecond) {
+        return new EntityFixerOptions(collectionParallelism, partitionsPerCollection, batchSize, maxDocumentsPerSecond);
+    }
+}
@@ -0,0 +1,26 @@
+package com.avpuser.mongo.typeconverter;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** {@link EntityFixerCheckpointStore} that only lives as long as the JVM. */
+public class InMemoryEntityFixerCheckpointStore implements EntityFixerCheckpointStore {
+
+    private final Map<String, EntityFixerCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<EntityFixerCheckpoint> load(String collectionName) {
+        return Optional.ofNullable(checkpoints.get(collectionName));
+    }
+
+    @Override
+    public void save(EntityFixerCheckpoint checkpoint) {
+        checkpoints.put(checkpoint.getCollectionName(), checkpoint);
+    }
+
+    @Override
+    public void delete(String collectionName) {
+        checkpoints.remove(collectionName);
+    }
+}
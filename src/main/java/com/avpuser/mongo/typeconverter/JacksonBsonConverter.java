@@ -0,0 +1,176 @@
+package com.avpuser.mongo.typeconverter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Converts a single value to the {@link BsonValue} it would be stored as inside an entity written
+ * with {@code objectMapper}, so values used outside a whole-document write (e.g. in a
+ * {@code $set}) honour the same converters: Instant as Date, LocalDate as epochDay, and so on.
+ * <p>
+ * Like {@link com.avpuser.mongo.cache.JacksonEntityCopier}, the value is written to a
+ * {@link TokenBuffer} without a codec, so objects our serializers hand to
+ * {@code writeObject} (such as {@link Date}) stay embedded objects instead of being re-serialized
+ * as JSON text.
+ */
+public final class JacksonBsonConverter {
+
+    private JacksonBsonConverter() {
+    }
+
+    public static BsonValue toBsonValue(ObjectMapper objectMapper, Object value) {
+        if (value == null) {
+            return BsonNull.VALUE;
+        }
+        return toBsonValue(objectMapper.writer(), value);
+    }
+
+    /** Like {@link #toBsonValue(ObjectMapper, Object)}, serializing {@code value} as the declared {@code type}. */
+    public static BsonValue toBsonValue(ObjectMapper objectMapper, Object value, JavaType type) {
+        if (value == null) {
+            return BsonNull.VALUE;
+        }
+        return toBsonValue(objectMapper.writerFor(type), value);
+    }
+
+    private static BsonValue toBsonValue(ObjectWriter writer, Object value) {
+        try (TokenBuffer buffer = new TokenBuffer((ObjectCodec) null, false)) {
+            writer.writeValue(buffer, value);
+            try (JsonParser parser = buffer.asParser()) {
+                parser.nextToken();
+                return read(parser);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to convert " + value.getClass().getName() + " to BSON", e);
+        }
+    }
+
+    /**
+     * The reverse of {@link #toBsonValue}: reads {@code value} as {@code type} the way
+     * {@code objectMapper} reads it out of a stored document, with dates, ObjectIds and binaries
+     * presented as embedded objects as MongoJack does.
+     */
+    public static <R> R fromBsonValue(ObjectMapper objectMapper, BsonValue value, JavaType type) {
+        try (TokenBuffer buffer = new TokenBuffer((ObjectCodec) null, false)) {
+            write(buffer, value);
+            try (JsonParser parser = buffer.asParser()) {
+                return objectMapper.readerFor(type).readValue(parser);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to convert BSON " + value.getBsonType() + " to " + type, e);
+        }
+    }
+
+    private static BsonValue read(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        return switch (token) {
+            case START_OBJECT -> {
+                BsonDocument document = new BsonDocument();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    document.put(name, read(parser));
+                }
+                yield document;
+            }
+            case START_ARRAY -> {
+                BsonArray array = new BsonArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    array.add(read(parser));
+                }
+                yield array;
+            }
+            case VALUE_STRING -> new BsonString(parser.getText());
+            case VALUE_NUMBER_INT -> switch (parser.getNumberType()) {
+                case INT -> new BsonInt32(parser.getIntValue());
+                case LONG -> new BsonInt64(parser.getLongValue());
+                default -> new BsonDecimal128(new Decimal128(new BigDecimal(parser.getBigIntegerValue())));
+            };
+            case VALUE_NUMBER_FLOAT -> parser.getNumberType() == JsonParser.NumberType.BIG_DECIMAL
+                    ? new BsonDecimal128(new Decimal128(parser.getDecimalValue()))
+                    : new BsonDouble(parser.getDoubleValue());
+            case VALUE_TRUE -> BsonBoolean.TRUE;
+            case VALUE_FALSE -> BsonBoolean.FALSE;
+            case VALUE_NULL -> BsonNull.VALUE;
+            case VALUE_EMBEDDED_OBJECT -> embedded(parser.getEmbeddedObject());
+            default -> throw new IllegalStateException("Unexpected token " + token);
+        };
+    }
+
+    private static void write(JsonGenerator generator, BsonValue value) throws IOException {
+        switch (value.getBsonType()) {
+            case DOCUMENT -> {
+                generator.writeStartObject();
+                for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                    generator.writeFieldName(entry.getKey());
+                    write(generator, entry.getValue());
+                }
+                generator.writeEndObject();
+            }
+            case ARRAY -> {
+                generator.writeStartArray();
+                for (BsonValue element : value.asArray()) {
+                    write(generator, element);
+                }
+                generator.writeEndArray();
+            }
+            case STRING -> generator.writeString(value.asString().getValue());
+            case INT32 -> generator.writeNumber(value.asInt32().getValue());
+            case INT64 -> generator.writeNumber(value.asInt64().getValue());
+            case DOUBLE -> generator.writeNumber(value.asDouble().getValue());
+            case DECIMAL128 -> generator.writeNumber(value.asDecimal128().getValue().bigDecimalValue());
+            case BOOLEAN -> generator.writeBoolean(value.asBoolean().getValue());
+            case NULL, UNDEFINED -> generator.writeNull();
+            case DATE_TIME -> generator.writeEmbeddedObject(new Date(value.asDateTime().getValue()));
+            case OBJECT_ID -> generator.writeEmbeddedObject(value.asObjectId().getValue());
+            case BINARY -> generator.writeBinary(value.asBinary().getData());
+            default -> generator.writeEmbeddedObject(value);
+        }
+    }
+
+    private static BsonValue embedded(Object value) {
+        if (value == null) {
+            return BsonNull.VALUE;
+        }
+        if (value instanceof Date date) {
+            return new BsonDateTime(date.getTime());
+        }
+        if (value instanceof ObjectId objectId) {
+            return new BsonObjectId(objectId);
+        }
+        if (value instanceof byte[] bytes) {
+            return new BsonBinary(bytes);
+        }
+        if (value instanceof BsonValue bsonValue) {
+            return bsonValue;
+        }
+        throw new IllegalArgumentException("Unsupported embedded value of type " + value.getClass().getName());
+    }
+}
@@ -1,12 +1,24 @@
 package com.avpuser.mongo.typeconverter;
 
+import com.avpuser.mongo.BulkUpdateResult;
 import com.avpuser.mongo.CommonDao;
+import com.avpuser.mongo.CursorOptions;
 import com.avpuser.mongo.DbEntity;
+import com.avpuser.mongo.IdRange;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 /**
  * Scans all MongoDB entities managed by {@link CommonDao} and rewrites them
@@ -17,16 +29,21 @@ import java.util.Map;
  * or after introducing new type converters.</p>
  *
  * <p>For each entity type, this service loads all existing documents from MongoDB,
- * then calls {@link CommonDao#update(DbEntity)} to reserialize and persist the normalized version.</p>
+ * then calls {@link CommonDao#updateAll(java.util.Collection)} to reserialize and persist the normalized version.</p>
  *
  * <p>Can be safely executed in development or staging environments to fix old documents.
  * Should be used with caution in production environments due to potential high load
  * and impact on data consistency.</p>
+ *
+ * <p>For large collections use {@link #rewriteAllData(EntityFixerOptions)} instead: it streams
+ * each collection by {@code _id} ranges with bounded memory, rewrites collections and ranges in
+ * parallel with versioned bulk replaces, respects a write rate limit and saves a resume
+ * checkpoint per collection after every batch.</p>
  * <p>
  * Example usage:
  * <pre>{@code
- *     MongoEntityFixer fixer = new MongoEntityFixer(allDaos);
- *     fixer.fixAll();
+ *     MongoEntityFixer fixer = new MongoEntityFixer(allDaos, new MongoEntityFixerCheckpointStore(database));
+ *     EntityFixReport report = fixer.rewriteAllData(EntityFixerOptions.defaults().withMaxDocumentsPerSecond(2000));
  * }</pre>
  *
  * @see com.avpuser.mongo.CommonDao
@@ -35,37 +52,52 @@ public class MongoEntityFixer {
 
     private static final Logger logger = LogManager.getLogger(MongoEntityFixer.class);
 
+    private static final int BATCH_SIZE = 500;
+
     private final Map<Class<?>, CommonDao<? extends DbEntity>> allDaos;
 
+    private final EntityFixerCheckpointStore checkpointStore;
+
     public MongoEntityFixer(Map<Class<?>, CommonDao<? extends DbEntity>> allDaos) {
+        this(allDaos, new InMemoryEntityFixerCheckpointStore());
+    }
+
+    public MongoEntityFixer(Map<Class<?>, CommonDao<? extends DbEntity>> allDaos,
+                            EntityFixerCheckpointStore checkpointStore) {
         this.allDaos = allDaos;
+        this.checkpointStore = checkpointStore;
     }
 
     /**
      * Iterates through all DAOs and re-saves each entity to ensure that newly registered
      * serializers/deserializers are applied, fixing outdated stored formats.
+     * Entities are written back with {@link CommonDao#updateAll} in batches of {@value #BATCH_SIZE}.
      */
     public void fixAllData() {
         for (Map.Entry<Class<?>, CommonDao<? extends DbEntity>> entry : allDaos.entrySet()) {
             Class<?> entityClass = entry.getKey();
-            CommonDao<? extends DbEntity> dao = entry.getValue();
+            // Мы знаем, что dao и entity совместимы по типу, так что подавляем ворнинг
+            @SuppressWarnings("unchecked")
+            CommonDao<DbEntity> dao = (CommonDao<DbEntity>) entry.getValue();
 
             logger.info("Fixing data for entity: {}", entityClass.getSimpleName());
 
-            List<? extends DbEntity> allEntities = dao.findAll();
+            List<DbEntity> allEntities = dao.findAll();
             int total = allEntities.size();
             int fixed = 0;
 
-            for (DbEntity entity : allEntities) {
+            for (int from = 0; from < total; from += BATCH_SIZE) {
+                List<DbEntity> batch = allEntities.subList(from, Math.min(from + BATCH_SIZE, total));
                 try {
-                    // Мы знаем, что dao и entity совместимы по типу, так что подавляем ворнинг
-                    @SuppressWarnings("unchecked")
-                    CommonDao<DbEntity> castedDao = (CommonDao<DbEntity>) dao;
-                    castedDao.update(entity);
-
-                    fixed++;
+                    BulkUpdateResult result = dao.updateAll(batch);
+                    fixed += result.getUpdatedIds().size();
+                    if (!result.isFullySuccessful()) {
+                        logger.error("Failed to fix some entities of type {}: conflicted={}, missing={}",
+                                entityClass.getSimpleName(), result.getConflictedIds(), result.getMissingIds());
+                    }
                 } catch (Exception e) {
-                    logger.error("Failed to fix entity of type {} with id {}: {}", entityClass.getSimpleName(), entity.getId(), e.getMessage(), e);
+                    logger.error("Failed to fix batch of {} entities of type {}: {}",
+                            batch.size(), entityClass.getSimpleName(), e.getMessage(), e);
                 }
             }
 
@@ -73,4 +105,146 @@ public class MongoEntityFixer {
         }
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Re-saves every entity of every DAO like {@link #fixAllData()}, but without loading whole
+     * collections: each collection is split into {@code _id} ranges ({@link CommonDao#splitIdRanges}),
+     * and every range is streamed in {@code _id} order and written back with
+     * {@link CommonDao#updateAll} one batch at a time. A document changed concurrently by the
+     * application is reported as a conflict, never overwritten.
+     * <p>
+     * After each batch the remaining ranges of the collection are saved to the checkpoint store;
+     * a rerun after a crash or failure resumes from there. Collections whose checkpoint is already
+     * complete are skipped until {@link #resetCheckpoints()} is called.
+     */
+    public EntityFixReport rewriteAllData(EntityFixerOptions options) {
+        EntityFixReport report = new EntityFixReport();
+        RateLimiter rateLimiter = options.getMaxDocumentsPerSecond() > 0
+                ? new RateLimiter(options.getMaxDocumentsPerSecond())
+                : null;
+        int threads = Math.min(options.getCollectionParallelism(), Math.max(1, allDaos.size()));
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (CommonDao<? extends DbEntity> dao : allDaos.values()) {
+                @SuppressWarnings("unchecked")
+                CommonDao<DbEntity> entityDao = (CommonDao<DbEntity>) dao;
+                executor.submit(() -> rewriteCollection(entityDao, options, rateLimiter, report));
+            }
+        }
+        logger.info("Rewrite finished: {} collections rewritten, {} skipped, {} failed",
+                report.getResults().size() - report.getFailures().size(), report.getSkipped().size(), report.getFailures().size());
+        return report;
+    }
+
+    /** Forgets all checkpoints, so the next {@link #rewriteAllData} starts every collection from scratch. */
+    public void resetCheckpoints() {
+        allDaos.values().forEach(dao -> checkpointStore.delete(dao.getCollectionName()));
+    }
+
+    private void rewriteCollection(CommonDao<DbEntity> dao, EntityFixerOptions options,
+                                   RateLimiter rateLimiter, EntityFixReport report) {
+        String collectionName = dao.getCollectionName();
+        try {
+            Optional<EntityFixerCheckpoint> checkpoint = checkpointStore.load(collectionName);
+            if (checkpoint.isPresent() && checkpoint.get().isCompleted()) {
+                logger.info("Skipping {}: already rewritten", collectionName);
+                report.getSkipped().add(collectionName);
+                return;
+            }
+            List<IdRange> ranges = checkpoint.isPresent()
+                    ? checkpoint.get().getPendingRanges()
+                    : dao.splitIdRanges(options.getPartitionsPerCollection());
+            logger.info("Rewriting {} in {} ranges{}", collectionName, ranges.size(), checkpoint.isPresent() ? " (resumed)" : "");
+
+            RangeProgress progress = new RangeProgress(collectionName, ranges);
+            CollectionFixResult total = new CollectionFixResult();
+            report.getResults().put(collectionName, total);
+            String failure = null;
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.getPartitionsPerCollection(), ranges.size()))) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < ranges.size(); i++) {
+                    int rangeIndex = i;
+                    futures.add(executor.submit(() -> {
+                        rewriteRange(dao, rangeIndex, ranges.get(rangeIndex), progress, total, options, rateLimiter);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        logger.error("Failed to rewrite a range of {}", collectionName, e.getCause());
+                        failure = failure != null ? failure : String.valueOf(e.getCause().getMessage());
+                    }
+                }
+            }
+
+            if (failure != null) {
+                report.getFailures().put(collectionName, failure);
+            }
+            logger.info("Finished {}: updated={}, conflicted={}, missing={}", collectionName,
+                    total.getUpdatedCount(), total.getConflictedCount(), total.getMissingCount());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.getFailures().put(collectionName, "interrupted");
+        } catch (RuntimeException e) {
+            logger.error("Failed to rewrite {}", collectionName, e);
+            report.getFailures().put(collectionName, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void rewriteRange(CommonDao<DbEntity> dao, int rangeIndex, IdRange range, RangeProgress progress,
+                              CollectionFixResult total, EntityFixerOptions options, RateLimiter rateLimiter)
+            throws InterruptedException {
+        int batchSize = options.getBatchSize();
+        try (Stream<DbEntity> stream = dao.streamByIdRange(range, CursorOptions.ofBatchSize(batchSize))) {
+            Iterator<DbEntity> cursor = stream.iterator();
+            List<DbEntity> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == batchSize || !cursor.hasNext()) {
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire(batch.size());
+                    }
+                    BulkUpdateResult result = dao.updateAll(batch);
+                    total.add(result);
+                    if (!result.isFullySuccessful()) {
+                        logger.warn("Entities of {} changed while rewriting: conflicted={}, missing={}",
+                                dao.getCollectionName(), result.getConflictedIds(), result.getMissingIds());
+                    }
+                    progress.advance(rangeIndex, range.resumeAfter(dao.storedIdOf(batch.getLast())));
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        progress.complete(rangeIndex);
+    }
+
+    /** Remaining ranges of one collection, saved as its checkpoint on every change. */
+    private final class RangeProgress {
+
+        private final String collectionName;
+        private final Map<Integer, IdRange> pending = new TreeMap<>();
+
+        private RangeProgress(String collectionName, List<IdRange> ranges) {
+            this.collectionName = collectionName;
+            for (int i = 0; i < ranges.size(); i++) {
+                pending.put(i, ranges.get(i));
+            }
+            save();
+        }
+
+        private synchronized void advance(int rangeIndex, IdRange remaining) {
+            pending.put(rangeIndex, remaining);
+            save();
+        }
+
+        private synchronized void complete(int rangeIndex) {
+            pending.remove(rangeIndex);
+            save();
+        }
+
+        private void save() {
+            checkpointStore.save(new EntityFixerCheckpoint(collectionName, List.copyOf(pending.values())));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.avpuser.mongo.typeconverter;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDocument;
+
+import java.util.Optional;
+
+/** {@link EntityFixerCheckpointStore} keeping one document per collection in a dedicated collection. */
+public class MongoEntityFixerCheckpointStore implements EntityFixerCheckpointStore {
+
+    public static final String DEFAULT_COLLECTION_NAME = "entity_fixer_checkpoint";
+
+    private final MongoCollection<BsonDocument> collection;
+
+    public MongoEntityFixerCheckpointStore(MongoDatabase database) {
+        this(database, DEFAULT_COLLECTION_NAME);
+    }
+
+    public MongoEntityFixerCheckpointStore(MongoDatabase database, String collectionName) {
+        this.collection = database.getCollection(collectionName, BsonDocument.class);
+    }
+
+    @Override
+    public Optional<EntityFixerCheckpoint> load(String collectionName) {
+        return Optional.ofNullable(collection.find(Filters.eq("_id", collectionName)).first())
+                .map(EntityFixerCheckpoint::fromBsonDocument);
+    }
+
+    @Override
+    public void save(EntityFixerCheckpoint checkpoint) {
+        collection.replaceOne(Filters.eq("_id", checkpoint.getCollectionName()), checkpoint.toBsonDocument(),
+                new ReplaceOptions().upsert(true));
+    }
+
+    @Override
+    public void delete(String collectionName) {
+        collection.deleteOne(Filters.eq("_id", collectionName));
+    }
+}
@@ -1,26 +1,122 @@
 package com.avpuser.mongo.typeconverter;
 
+import com.avpuser.mongo.DbEntity;
 import com.avpuser.mongo.encryption.PiiEncryptionService;
 import com.avpuser.mongo.encryption.jackson.PiiEncryptionModule;
+import com.avpuser.utils.ReflectionsUtils;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.mongojack.internal.MongoAnnotationIntrospector;
 
+import java.lang.reflect.Modifier;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class MongoObjectMapperFactory {
 
+    private static final Logger logger = LogManager.getLogger(MongoObjectMapperFactory.class);
+
+    private static final Object SHARED_LOCK = new Object();
+    private static volatile ObjectMapper sharedPlainMapper;
+    // keyed by instance: one service is one key configuration. Entries are never removed, and
+    // weak keys would not help since each mapper holds its service; see sharedObjectMapper.
+    private static final Map<PiiEncryptionService, ObjectMapper> sharedEncryptingMappers = new ConcurrentHashMap<>();
+    private static volatile boolean bytecodeAccessors;
+
     /** Without field-level PII encryption. Use {@link #createObjectMapper(PiiEncryptionService)} for entities with {@code @Encrypted} fields. */
     public static ObjectMapper createObjectMapper() {
         return createObjectMapper(null);
     }
 
     public static ObjectMapper createObjectMapper(PiiEncryptionService encryptionService) {
+        return createObjectMapper(encryptionService, false);
+    }
+
+    /**
+     * Mapper shared by every caller with the same {@code encryptionService} (or none), so the
+     * serializers and deserializers Jackson builds per type are built once per process instead of
+     * once per DAO. Must not be reconfigured by callers.
+     * <p>
+     * The shared mapper of an encryption service, and with it the service, is kept for the
+     * lifetime of the process. Pass long-lived services (one per key configuration, created at
+     * startup); for a short-lived one, e.g. per tenant request, use
+     * {@link #createObjectMapper(PiiEncryptionService)} instead. Encrypting mappers never use
+     * Blackbird accessors, whether or not {@link #enableBytecodeAccessors()} was called.
+     */
+    public static ObjectMapper sharedObjectMapper(PiiEncryptionService encryptionService) {
+        if (encryptionService != null) {
+            return sharedEncryptingMappers.computeIfAbsent(encryptionService,
+                    service -> createObjectMapper(service, false));
+        }
+        ObjectMapper mapper = sharedPlainMapper;
+        if (mapper == null) {
+            synchronized (SHARED_LOCK) {
+                mapper = sharedPlainMapper;
+                if (mapper == null) {
+                    mapper = createObjectMapper(null, bytecodeAccessors);
+                    sharedPlainMapper = mapper;
+                }
+            }
+        }
+        return mapper;
+    }
+
+    /**
+     * Makes the shared mapper without encryption use Blackbird's bytecode-generated property
+     * accessors instead of reflection. Call once at startup, before the first DAO is created.
+     * Mappers with a {@link PiiEncryptionService} never use them, so DAOs of entities with
+     * {@code @Encrypted} fields keep reflection: the encryption module replaces property writers,
+     * and an optimized accessor must not bypass those.
+     *
+     * @throws IllegalStateException if the shared mapper without encryption was already built,
+     *                               so the call would silently have no effect
+     */
+    public static void enableBytecodeAccessors() {
+        synchronized (SHARED_LOCK) {
+            if (sharedPlainMapper != null) {
+                throw new IllegalStateException("Bytecode accessors must be enabled before the shared ObjectMapper " +
+                        "is first used, i.e. before the first DAO is created");
+            }
+            bytecodeAccessors = true;
+        }
+    }
+
+    /**
+     * Builds and caches the serializer and deserializer of each type now, e.g. at startup, instead
+     * of on the first read or write. Nothing is reported here: a type Jackson cannot handle
+     * fails, as before, when it is actually used.
+     */
+    public static void warmUp(ObjectMapper mapper, Collection<? extends Class<?>> types) {
+        for (Class<?> type : types) {
+            // with EAGER_SERIALIZER_FETCH / EAGER_DESERIALIZER_FETCH (the defaults) these construct
+            // the root (de)serializers into the mapper's caches, swallowing construction errors
+            mapper.writerFor(type);
+            mapper.readerFor(type);
+        }
+        logger.debug("Jackson warm-up done for {} type(s)", types.size());
+    }
+
+    /** {@link #warmUp} for every concrete {@link DbEntity} subtype on the classpath. */
+    public static void warmUpAllEntities(ObjectMapper mapper) {
+        List<Class<?>> entityTypes = ReflectionsUtils.getSubTypesOf(DbEntity.class).stream()
+                .filter(type -> !Modifier.isAbstract(type.getModifiers()))
+                .collect(Collectors.toList());
+        warmUp(mapper, entityTypes);
+    }
+
+    private static ObjectMapper createObjectMapper(PiiEncryptionService encryptionService, boolean bytecodeAccessors) {
         ObjectMapper mapper = new ObjectMapper();
 
         // Let RuntimeExceptions raised by custom (de)serializers - notably the PII decryption
@@ -57,6 +153,10 @@ public class MongoObjectMapperFactory {
                 AnnotationIntrospectorPair.pair(mongoIntrospector, mapper.getSerializationConfig().getAnnotationIntrospector())
         );
 
+        if (bytecodeAccessors && encryptionService == null) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+
         return mapper;
     }
 }
\ No newline at end of file
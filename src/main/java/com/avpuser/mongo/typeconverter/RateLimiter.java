@@ -0,0 +1,33 @@
+package com.avpuser.mongo.typeconverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Smooth rate limiter shared by all writer threads: each caller reserves its permits and sleeps
+ * until its slot, so the long-run rate never exceeds {@code permitsPerSecond}.
+ */
+final class RateLimiter {
+
+    private final double nanosPerPermit;
+
+    private long nextFreeNanos = System.nanoTime();
+
+    RateLimiter(int permitsPerSecond) {
+        this.nanosPerPermit = 1_000_000_000.0 / permitsPerSecond;
+    }
+
+    void acquire(int permits) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextFreeNanos < now) {
+                nextFreeNanos = now;
+            }
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += (long) (permits * nanosPerPermit);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.avpuser.mongo;
+
+import com.avpuser.mongo.exception.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncCommonDaoTest {
+
+    static class Item extends DbEntity {
+
+        private final String id;
+
+        Item(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+
+    private CommonDao<Item> dao;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        dao = mock(CommonDao.class);
+    }
+
+    @Test
+    void findById_RunsOnGivenExecutor() throws Exception {
+        // Arrange
+        Item item = new Item("id1");
+        when(dao.findById("id1")).thenReturn(Optional.of(item));
+        AtomicInteger submitted = new AtomicInteger();
+        Executor executor = task -> {
+            submitted.incrementAndGet();
+            task.run();
+        };
+        AsyncCommonDao<Item> async = new AsyncCommonDao<>(dao, executor);
+
+        // Act
+        Optional<Item> result = async.findById("id1").get();
+
+        // Assert
+        assertSame(item, result.orElseThrow());
+        assertEquals(1, submitted.get());
+    }
+
+    @Test
+    void findByIdOrThrow_CompletesExceptionallyWithDaoException() {
+        // Arrange
+        when(dao.findByIdOrThrow("missing")).thenThrow(new EntityNotFoundException("No Item with id: missing"));
+        AsyncCommonDao<Item> async = new AsyncCommonDao<>(dao);
+
+        // Act
+        CompletableFuture<Item> future = async.findByIdOrThrow("missing");
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(EntityNotFoundException.class, exception.getCause());
+    }
+
+    @Test
+    void defaultExecutor_UsesVirtualThreads() throws Exception {
+        // Arrange
+        AsyncCommonDao<Item> async = new AsyncCommonDao<>(dao);
+
+        // Act
+        boolean virtual = async.call(ignored -> Thread.currentThread().isVirtual()).get();
+
+        // Assert
+        assertTrue(virtual);
+    }
+}
@@ -1,35 +1,79 @@
 package com.avpuser.mongo;
 
 import com.avpuser.test.MockTest;
+import com.avpuser.mongo.cache.CacheStats;
 import com.avpuser.mongo.exception.DuplicateKeyException;
 import com.avpuser.mongo.exception.EntityNotFoundException;
 import com.avpuser.mongo.exception.VersionConflictException;
+import com.avpuser.mongo.explain.ExplainOptions;
+import com.avpuser.mongo.explain.ExplainRegistry;
+import com.avpuser.mongo.metrics.InMemoryDaoMetrics;
+import com.avpuser.mongo.metrics.OperationStats;
+import com.avpuser.mongo.typeconverter.MongoObjectMapperFactory;
+import com.mongodb.ExplainVerbosity;
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
 import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mongojack.Id;
+import org.mongojack.JacksonCodecRegistry;
 import org.mongojack.JacksonMongoCollection;
 import org.mongojack.MongoCollection;
 
 import java.lang.reflect.Field;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -52,6 +96,9 @@ class CommonDaoTest {
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private com.mongodb.client.MongoCollection<TestEntity> nativeCollection;
 
+    @Mock
+    private com.mongodb.client.MongoCollection<Document> rawCollection;
+
     @BeforeEach
     void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
@@ -61,6 +108,7 @@ class CommonDaoTest {
 
         // Мокируем вызов database.getCollection(...) → возвращаем nativeCollection
         when(database.getCollection(anyString(), eq(TestEntity.class))).thenReturn(nativeCollection);
+        when(database.getCollection(anyString())).thenReturn(rawCollection);
 
         // Строим dao — теперь getCollection(...) не вернёт null
         dao = new CommonDao<>(database, TestEntity.class, fixedClock);
@@ -110,6 +158,30 @@ class CommonDaoTest {
         verify(mongoCollection).insert(entity);
     }
 
+    @Test
+    void insertAndUpdate_AreReportedToMetricsSink() {
+        // Arrange
+        InMemoryDaoMetrics metrics = new InMemoryDaoMetrics();
+        dao.enableMetrics(metrics);
+        TestEntity entity = new TestEntity("test-id", "Test Name");
+        UpdateResult updateResult = mock(UpdateResult.class);
+        when(updateResult.wasAcknowledged()).thenReturn(true);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+        when(mongoCollection.replaceOne(any(Bson.class), eq(entity))).thenReturn(updateResult);
+
+        // Act
+        dao.insert(entity);
+        dao.update(entity);
+
+        // Assert
+        OperationStats insertStats = metrics.get("TestEntity", "insert").orElseThrow();
+        assertEquals(1, insertStats.getCount());
+        assertEquals(0, insertStats.getErrorCount());
+        OperationStats updateStats = metrics.get("TestEntity", "update").orElseThrow();
+        assertEquals(1, updateStats.getCount());
+        assertEquals(1, updateStats.getResultCount());
+    }
+
     @Test
     void testInsert_DuplicateKeyException() {
         // Arrange
@@ -146,6 +218,114 @@ class CommonDaoTest {
         assertSame(bulkWriteException, exception.getCause());
     }
 
+    @Test
+    void testInsert_DuplicateKeyIsRecordedAsFailedOperation() {
+        // Arrange
+        InMemoryDaoMetrics metrics = new InMemoryDaoMetrics();
+        dao.enableMetrics(metrics);
+        TestEntity entity = new TestEntity("duplicate-id", "Test Name");
+        BulkWriteError duplicateError = mock(BulkWriteError.class);
+        when(duplicateError.getCode()).thenReturn(11000);
+        MongoBulkWriteException bulkWriteException = mock(MongoBulkWriteException.class);
+        when(bulkWriteException.getWriteErrors()).thenReturn(List.of(duplicateError));
+        doThrow(bulkWriteException).when(mongoCollection).insert(entity);
+
+        // Act
+        assertThrows(DuplicateKeyException.class, () -> dao.insert(entity));
+
+        // Assert
+        OperationStats insertStats = metrics.get("TestEntity", "insert").orElseThrow();
+        assertEquals(1, insertStats.getCount());
+        assertEquals(1, insertStats.getErrorCount());
+    }
+
+    @Test
+    void testInsertAll_SplitsIntoBatchesAndStampsTimestamps() {
+        // Arrange
+        List<TestEntity> entities = List.of(
+                new TestEntity("id1", "Name1"),
+                new TestEntity("id2", "Name2"),
+                new TestEntity("id3", "Name3"));
+
+        // Act
+        BulkInsertResult result = dao.insertAll(entities, 2, false);
+
+        // Assert
+        assertEquals(List.of("id1", "id2", "id3"), result.getInsertedIds());
+        assertFalse(result.hasDuplicates());
+        entities.forEach(entity -> {
+            assertEquals(testTime, entity.getCreatedAt());
+            assertEquals(testTime, entity.getUpdatedAt());
+        });
+        verify(mongoCollection, times(2)).insertMany(any(List.class), any(InsertManyOptions.class));
+    }
+
+    @Test
+    void testInsertAll_Unordered_ReportsDuplicatesPerDocument() {
+        // Arrange
+        List<TestEntity> entities = List.of(
+                new TestEntity("id1", "Name1"),
+                new TestEntity("dup", "Name2"),
+                new TestEntity("id3", "Name3"));
+
+        BulkWriteError duplicateError = mock(BulkWriteError.class);
+        when(duplicateError.getCode()).thenReturn(11000);
+        when(duplicateError.getIndex()).thenReturn(1);
+
+        MongoBulkWriteException bulkWriteException = mock(MongoBulkWriteException.class);
+        when(bulkWriteException.getWriteErrors()).thenReturn(List.of(duplicateError));
+        doThrow(bulkWriteException).when(mongoCollection).insertMany(any(List.class), any(InsertManyOptions.class));
+
+        // Act
+        BulkInsertResult result = dao.insertAll(entities, 10, false);
+
+        // Assert
+        assertEquals(List.of("id1", "id3"), result.getInsertedIds());
+        assertEquals(List.of("dup"), result.getDuplicateIds());
+        verify(mongoCollection, times(1)).insertMany(any(List.class), any(InsertManyOptions.class));
+    }
+
+    @Test
+    void testInsertAll_Ordered_ResubmitsRemainderAfterDuplicate() {
+        // Arrange
+        TestEntity first = new TestEntity("id1", "Name1");
+        TestEntity duplicate = new TestEntity("dup", "Name2");
+        TestEntity last = new TestEntity("id3", "Name3");
+
+        BulkWriteError duplicateError = mock(BulkWriteError.class);
+        when(duplicateError.getCode()).thenReturn(11000);
+        when(duplicateError.getIndex()).thenReturn(1);
+
+        MongoBulkWriteException bulkWriteException = mock(MongoBulkWriteException.class);
+        when(bulkWriteException.getWriteErrors()).thenReturn(List.of(duplicateError));
+        doThrow(bulkWriteException).doReturn(null)
+                .when(mongoCollection).insertMany(any(List.class), any(InsertManyOptions.class));
+
+        // Act
+        BulkInsertResult result = dao.insertAll(List.of(first, duplicate, last), 10, true);
+
+        // Assert
+        assertEquals(List.of("id1", "id3"), result.getInsertedIds());
+        assertEquals(List.of("dup"), result.getDuplicateIds());
+        verify(mongoCollection).insertMany(eq(List.of(last)), any(InsertManyOptions.class));
+    }
+
+    @Test
+    void testInsertAll_NonDuplicateErrorIsRethrown() {
+        // Arrange
+        BulkWriteError otherError = mock(BulkWriteError.class);
+        when(otherError.getCode()).thenReturn(121); // document validation failure
+        when(otherError.getIndex()).thenReturn(0);
+
+        MongoBulkWriteException bulkWriteException = mock(MongoBulkWriteException.class);
+        when(bulkWriteException.getWriteErrors()).thenReturn(List.of(otherError));
+        doThrow(bulkWriteException).when(mongoCollection).insertMany(any(List.class), any(InsertManyOptions.class));
+
+        // Act & Assert
+        assertThrows(MongoBulkWriteException.class,
+                () -> dao.insertAll(List.of(new TestEntity("id1", "Name1"))));
+    }
+
     @Test
     void testUpdate_Success() {
         // Arrange
@@ -155,7 +335,6 @@ class CommonDaoTest {
 
         UpdateResult updateResult = mock(UpdateResult.class);
         when(updateResult.getModifiedCount()).thenReturn(1L);
-        when(mongoCollection.findOneById("test-id")).thenReturn(entity);
         when(mongoCollection.replaceOne(any(), eq(entity))).thenReturn(updateResult);
 
         // Act
@@ -165,18 +344,29 @@ class CommonDaoTest {
         assertEquals(6, entity.getVersion()); // Версия увеличилась
         assertEquals(testTime, entity.getUpdatedAt()); // Время обновления установлено
         verify(mongoCollection).replaceOne(any(), eq(entity));
+        // Один round trip: документ заранее не читается
+        verify(mongoCollection, never()).findOneById(any());
+        verify(mongoCollection, never()).find(any(Bson.class));
     }
 
     @Test
     void testUpdate_EntityNotFound() {
         // Arrange
         TestEntity entity = new TestEntity("non-existent-id", "Test Name");
-        when(mongoCollection.findOneById("non-existent-id")).thenReturn(null);
+        entity.setVersion(2);
+
+        UpdateResult updateResult = mock(UpdateResult.class);
+        when(updateResult.getModifiedCount()).thenReturn(0L);
+        when(mongoCollection.replaceOne(any(), eq(entity))).thenReturn(updateResult);
+        FindIterable<TestEntity> probe = mockIdProbe(null);
 
         // Act & Assert
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
                 () -> dao.update(entity));
         assertTrue(exception.getMessage().contains("non-existent-id"));
+        assertEquals(2, entity.getVersion()); // версия не изменилась
+        verify(probe).projection(any(Bson.class));
+        verify(mongoCollection, never()).findOneById(any());
     }
 
     @Test
@@ -187,14 +377,317 @@ class CommonDaoTest {
 
         UpdateResult updateResult = mock(UpdateResult.class);
         when(updateResult.getModifiedCount()).thenReturn(0L); // Не обновлено
-        when(mongoCollection.findOneById("test-id")).thenReturn(entity);
         when(mongoCollection.replaceOne(any(), eq(entity))).thenReturn(updateResult);
+        mockIdProbe(new TestEntity("test-id", null));
 
         // Act & Assert
         VersionConflictException exception = assertThrows(VersionConflictException.class,
                 () -> dao.update(entity));
         assertTrue(exception.getMessage().contains("Version conflict"));
         assertTrue(exception.getMessage().contains("test-id"));
+        assertEquals(5, entity.getVersion());
+        verify(mongoCollection, times(1)).replaceOne(any(), eq(entity)); // без fallback для version > 0
+    }
+
+    @Test
+    void updateFields_SendsOnlyChangedFieldsAndBumpsVersion() {
+        // Arrange
+        UpdateResult updateResult = mock(UpdateResult.class);
+        when(updateResult.getMatchedCount()).thenReturn(1L);
+        when(mongoCollection.updateOne(any(Bson.class), any(Bson.class))).thenReturn(updateResult);
+
+        // Act
+        long newVersion = dao.updateFields("test-id", 5, PartialUpdate.create()
+                .set("name", "Renamed")
+                .unset("obsolete"));
+
+        // Assert
+        assertEquals(6, newVersion);
+        ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<Bson> update = ArgumentCaptor.forClass(Bson.class);
+        verify(mongoCollection).updateOne(filter.capture(), update.capture());
+        verify(mongoCollection, never()).replaceOne(any(), any(TestEntity.class));
+
+        BsonDocument filterDocument = filter.getValue().toBsonDocument();
+        assertEquals("test-id", filterDocument.getArray("$and").get(0).asDocument().getString("_id").getValue());
+        assertEquals(5L, filterDocument.getArray("$and").get(1).asDocument().getNumber("version").longValue());
+
+        BsonDocument updateDocument = update.getValue().toBsonDocument();
+        BsonDocument set = updateDocument.getDocument("$set");
+        assertEquals("Renamed", set.getString("name").getValue());
+        assertEquals(testTime.toEpochMilli(), set.getDateTime("updatedAt").getValue());
+        assertEquals(1L, updateDocument.getDocument("$inc").getNumber("version").longValue());
+        assertTrue(updateDocument.getDocument("$unset").containsKey("obsolete"));
+    }
+
+    @Test
+    void updateFields_RejectsFieldsMaintainedByDao() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> dao.updateFields("test-id", 1, PartialUpdate.create().set("version", 7L)));
+        assertThrows(IllegalArgumentException.class,
+                () -> dao.updateFields("test-id", 1, PartialUpdate.create()));
+        verify(mongoCollection, never()).updateOne(any(Bson.class), any(Bson.class));
+    }
+
+    @Test
+    void upsert_SetsCreatedAtOnInsertOnlyAndTakesStoredVersion() {
+        // Arrange
+        TestEntity entity = new TestEntity("test-id", "Name");
+        TestEntity stored = new TestEntity("test-id", null);
+        stored.setCreatedAt(testTime);
+        stored.setVersion(1);
+        when(mongoCollection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(stored);
+
+        // Act
+        dao.upsert(entity);
+
+        // Assert
+        assertEquals(1, entity.getVersion());
+        assertEquals(testTime, entity.getCreatedAt());
+        assertEquals(testTime, entity.getUpdatedAt());
+
+        ArgumentCaptor<Bson> update = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<FindOneAndUpdateOptions> options = ArgumentCaptor.forClass(FindOneAndUpdateOptions.class);
+        verify(mongoCollection).findOneAndUpdate(any(Bson.class), update.capture(), options.capture());
+        assertTrue(options.getValue().isUpsert());
+
+        BsonDocument updateDocument = update.getValue().toBsonDocument();
+        BsonDocument set = updateDocument.getDocument("$set");
+        assertEquals("Name", set.getString("name").getValue());
+        assertEquals(testTime.toEpochMilli(), set.getDateTime("updatedAt").getValue());
+        assertFalse(set.containsKey("createdAt"));
+        assertFalse(set.containsKey("version"));
+        assertEquals(testTime.toEpochMilli(),
+                updateDocument.getDocument("$setOnInsert").getDateTime("createdAt").getValue());
+        assertEquals(1L, updateDocument.getDocument("$inc").getNumber("version").longValue());
+        // Один round trip: существование заранее не проверяется
+        verify(mongoCollection, never()).find(any(Bson.class));
+    }
+
+    @Test
+    void upsert_StaleVersion_ThrowsVersionConflict() {
+        // Arrange
+        TestEntity entity = new TestEntity("test-id", "Name");
+        entity.setVersion(3);
+        BsonDocument response = new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(11000))
+                .append("errmsg", new BsonString("E11000 duplicate key error index: _id_"));
+        when(mongoCollection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenThrow(new MongoCommandException(response, new ServerAddress()));
+        TestEntity current = new TestEntity("test-id", null);
+        current.setVersion(4);
+        mockIdProbe(current);
+
+        // Act & Assert
+        assertThrows(VersionConflictException.class, () -> dao.upsert(entity));
+        assertEquals(3, entity.getVersion());
+    }
+
+    @Test
+    void upsert_VersionedEntityWithoutDocument_ThrowsVersionConflictInsteadOfInserting() {
+        // Arrange
+        TestEntity entity = new TestEntity("test-id", "Name");
+        entity.setVersion(3);
+        when(mongoCollection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(null);
+        mockIdProbe(null);
+
+        // Act & Assert
+        VersionConflictException exception = assertThrows(VersionConflictException.class, () -> dao.upsert(entity));
+        assertTrue(exception.getMessage().contains("no longer exists"), exception.getMessage());
+        assertEquals(3, entity.getVersion());
+        ArgumentCaptor<FindOneAndUpdateOptions> options = ArgumentCaptor.forClass(FindOneAndUpdateOptions.class);
+        verify(mongoCollection).findOneAndUpdate(any(Bson.class), any(Bson.class), options.capture());
+        assertFalse(options.getValue().isUpsert());
+    }
+
+    @Test
+    void findOneAndUpdate_ReturnsDocumentAfterUpdate() {
+        // Arrange
+        TestEntity updated = new TestEntity("test-id", "Renamed");
+        updated.setVersion(3);
+        when(mongoCollection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(updated);
+
+        // Act
+        TestEntity result = dao.findOneAndUpdate("test-id", 2, PartialUpdate.create().set("name", "Renamed"));
+
+        // Assert
+        assertSame(updated, result);
+        ArgumentCaptor<FindOneAndUpdateOptions> options = ArgumentCaptor.forClass(FindOneAndUpdateOptions.class);
+        verify(mongoCollection).findOneAndUpdate(any(Bson.class), any(Bson.class), options.capture());
+        assertEquals(ReturnDocument.AFTER, options.getValue().getReturnDocument());
+        assertFalse(options.getValue().isUpsert());
+    }
+
+    @SuppressWarnings("unchecked")
+    private FindIterable<TestEntity> mockIdProbe(TestEntity found) {
+        FindIterable<TestEntity> findIterable = mock(FindIterable.class);
+        when(mongoCollection.find(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.projection(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.first()).thenReturn(found);
+        return findIterable;
+    }
+
+    @Test
+    void testUpdateAll_AllMatched() {
+        // Arrange
+        TestEntity first = new TestEntity("id1", "Name1");
+        first.setVersion(2);
+        TestEntity second = new TestEntity("id2", "Name2");
+        second.setVersion(7);
+
+        com.mongodb.client.MongoCollection<BsonDocument> documents = mockDocumentCollection();
+        BulkWriteResult bulkResult = mock(BulkWriteResult.class);
+        when(bulkResult.getMatchedCount()).thenReturn(2);
+        when(documents.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenReturn(bulkResult);
+
+        // Act
+        BulkUpdateResult result = dao.updateAll(List.of(first, second));
+
+        // Assert
+        assertTrue(result.isFullySuccessful());
+        assertEquals(List.of("id1", "id2"), result.getUpdatedIds());
+        assertEquals(3, first.getVersion());
+        assertEquals(8, second.getVersion());
+        assertEquals(testTime, first.getUpdatedAt());
+        verify(documents, never()).find(any(Bson.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateAll_ReportsConflictsAndMissing() {
+        // Arrange
+        TestEntity updated = new TestEntity("id1", "Name1");
+        updated.setVersion(1);
+        TestEntity conflicted = new TestEntity("id2", "Name2");
+        conflicted.setVersion(4);
+        TestEntity missing = new TestEntity("id3", "Name3");
+        missing.setVersion(2);
+
+        com.mongodb.client.MongoCollection<BsonDocument> documents = mockDocumentCollection();
+        List<BsonDocument> written = new ArrayList<>();
+        BulkWriteResult bulkResult = mock(BulkWriteResult.class);
+        when(bulkResult.getMatchedCount()).thenReturn(1);
+        when(documents.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenAnswer(inv -> {
+            List<ReplaceOneModel<BsonDocument>> models = inv.getArgument(0);
+            written.add(models.getFirst().getReplacement());
+            return bulkResult;
+        });
+
+        BsonDocument storedConflicted = new BsonDocument("_id", new BsonString("id2"))
+                .append("version", new BsonInt64(9));
+        mockStoredDocuments(documents, () -> List.of(written.getFirst(), storedConflicted));
+
+        // Act
+        BulkUpdateResult result = dao.updateAll(List.of(updated, conflicted, missing));
+
+        // Assert
+        assertEquals(List.of("id1"), result.getUpdatedIds());
+        assertEquals(List.of("id2"), result.getConflictedIds());
+        assertEquals(List.of("id3"), result.getMissingIds());
+        assertEquals(2, updated.getVersion());
+        assertEquals(4, conflicted.getVersion()); // версия откатывается для неудачных
+        assertEquals(2, missing.getVersion());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateAll_ConcurrentWriterWithSameVersionAndTimestampIsConflict() {
+        // Arrange: another writer moved id1 from version 1 to 2 in the same millisecond
+        TestEntity entity = new TestEntity("id1", "Mine");
+        entity.setVersion(1);
+
+        com.mongodb.client.MongoCollection<BsonDocument> documents = mockDocumentCollection();
+        BulkWriteResult bulkResult = mock(BulkWriteResult.class);
+        when(bulkResult.getMatchedCount()).thenReturn(0);
+        when(documents.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenReturn(bulkResult);
+
+        TestEntity theirs = new TestEntity("id1", "Theirs");
+        theirs.setVersion(2);
+        theirs.setCreatedAt(testTime);
+        theirs.setUpdatedAt(testTime);
+        BsonDocument stored = toDocument(theirs);
+        mockStoredDocuments(documents, () -> List.of(stored));
+
+        // Act
+        BulkUpdateResult result = dao.updateAll(List.of(entity));
+
+        // Assert
+        assertEquals(List.of("id1"), result.getConflictedIds());
+        assertTrue(result.getUpdatedIds().isEmpty());
+        assertEquals(1, entity.getVersion());
+    }
+
+    @Test
+    void testUpdateAll_RestoresVersionsWhenBulkWriteThrows() {
+        // Arrange
+        TestEntity entity = new TestEntity("id1", "Name1");
+        entity.setVersion(5);
+        Instant oldUpdatedAt = testTime.minusSeconds(60);
+        entity.setUpdatedAt(oldUpdatedAt);
+
+        com.mongodb.client.MongoCollection<BsonDocument> documents = mockDocumentCollection();
+        when(documents.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenThrow(new MongoSocketReadException("connection reset", new ServerAddress()));
+
+        // Act & Assert
+        assertThrows(MongoSocketReadException.class, () -> dao.updateAll(List.of(entity)));
+        assertEquals(5, entity.getVersion());
+        assertEquals(oldUpdatedAt, entity.getUpdatedAt());
+    }
+
+    @Test
+    void testUpdateAll_RejectsDuplicateIdsBeforeWriting() {
+        // Arrange
+        TestEntity first = new TestEntity("id1", "Name1");
+        first.setVersion(2);
+        TestEntity again = new TestEntity("id1", "Name1 again");
+        again.setVersion(2);
+        com.mongodb.client.MongoCollection<BsonDocument> documents = mockDocumentCollection();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> dao.updateAll(List.of(first, again)));
+        assertEquals(2, first.getVersion());
+        assertEquals(2, again.getVersion());
+        verify(documents, never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private com.mongodb.client.MongoCollection<BsonDocument> mockDocumentCollection() {
+        when(mongoCollection.getCodecRegistry()).thenReturn(testCodecRegistry());
+        com.mongodb.client.MongoCollection<BsonDocument> documents = mock(com.mongodb.client.MongoCollection.class);
+        when(database.getCollection(anyString(), eq(BsonDocument.class))).thenReturn(documents);
+        return documents;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockStoredDocuments(com.mongodb.client.MongoCollection<BsonDocument> documents,
+                                     java.util.function.Supplier<List<BsonDocument>> stored) {
+        FindIterable<BsonDocument> findIterable = mock(FindIterable.class);
+        when(documents.find(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.iterator()).thenAnswer(inv -> {
+            Iterator<BsonDocument> iterator = stored.get().iterator();
+            MongoCursor<BsonDocument> cursor = mock(MongoCursor.class);
+            when(cursor.hasNext()).thenAnswer(ignored -> iterator.hasNext());
+            when(cursor.next()).thenAnswer(ignored -> iterator.next());
+            doCallRealMethod().when(cursor).forEachRemaining(any());
+            return cursor;
+        });
+    }
+
+    private static CodecRegistry testCodecRegistry() {
+        return new JacksonCodecRegistry(MongoObjectMapperFactory.createObjectMapper(),
+                MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.STANDARD);
+    }
+
+    private static BsonDocument toDocument(TestEntity entity) {
+        BsonDocument document = new BsonDocument();
+        testCodecRegistry().get(TestEntity.class)
+                .encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+        return document;
     }
 
     @Test
@@ -233,6 +726,51 @@ class CommonDaoTest {
         verify(mongoCollection, never()).findOneById(any());
     }
 
+    @Test
+    void testFindById_EntityCache_ServesCopiesAndInvalidatesOnUpdate() {
+        // Arrange
+        dao.enableEntityCache(100, java.time.Duration.ofMinutes(5));
+        TestEntity entity = new TestEntity("test-id", "Cached");
+        entity.setVersion(1);
+        when(mongoCollection.findOneById("test-id")).thenReturn(entity);
+
+        // Act
+        TestEntity first = dao.findById("test-id").orElseThrow();
+        first.setName("mutated by caller");
+        TestEntity second = dao.findById("test-id").orElseThrow();
+
+        // Assert
+        assertEquals("Cached", second.getName());
+        verify(mongoCollection, times(1)).findOneById("test-id");
+        assertEquals(1, dao.getEntityCacheStats().orElseThrow().getHits());
+
+        // Update invalidates the cached entry
+        UpdateResult updateResult = mock(UpdateResult.class);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+        when(mongoCollection.replaceOne(any(), eq(second))).thenReturn(updateResult);
+        dao.update(second);
+
+        dao.findById("test-id");
+        verify(mongoCollection, times(2)).findOneById("test-id");
+    }
+
+    @Test
+    void testDeleteById_EntityCache_InvalidatesWhenDeleteThrows() {
+        // Arrange
+        dao.enableEntityCache(100, java.time.Duration.ofMinutes(5));
+        when(mongoCollection.findOneById("test-id")).thenReturn(new TestEntity("test-id", "Cached"));
+        dao.findById("test-id");
+        when(mongoCollection.removeById("test-id"))
+                .thenThrow(new MongoSocketReadException("timed out after the delete was sent", new ServerAddress()));
+
+        // Act
+        assertThrows(MongoSocketReadException.class, () -> dao.deleteById("test-id"));
+        dao.findById("test-id");
+
+        // Assert: the delete may have been applied, so the entity is read again
+        verify(mongoCollection, times(2)).findOneById("test-id");
+    }
+
     @Test
     void testFindByIdOrThrow_Found() {
         // Arrange
@@ -344,6 +882,28 @@ class CommonDaoTest {
         verify(mongoCollection).find(any(Bson.class));
     }
 
+    @Test
+    void findByIdsInOrder_ChunksQueriesAndKeepsInputOrder() {
+        // Arrange
+        TestEntity entity1 = new TestEntity("id1", "Name1");
+        TestEntity entity2 = new TestEntity("id2", "Name2");
+        TestEntity entity3 = new TestEntity("id3", "Name3");
+
+        FindIterable<TestEntity> firstChunk = mock(FindIterable.class);
+        FindIterable<TestEntity> secondChunk = mock(FindIterable.class);
+        when(mongoCollection.find(any(Bson.class))).thenReturn(firstChunk, secondChunk);
+        when(firstChunk.into(any(List.class))).thenReturn(new ArrayList<>(List.of(entity2, entity1)));
+        when(secondChunk.into(any(List.class))).thenReturn(new ArrayList<>(List.of(entity3)));
+
+        // Act
+        FindByIdsResult<TestEntity> result = dao.findByIdsInOrder(List.of("id3", "id1", "missing", "id2", "id1"), 2, 1);
+
+        // Assert
+        assertEquals(List.of(entity3, entity1, entity2), result.getEntities());
+        assertEquals(List.of("missing"), result.getMissingIds());
+        verify(mongoCollection, times(2)).find(any(Bson.class));
+    }
+
     @Test
     void testFindAll() {
         // Arrange
@@ -372,6 +932,8 @@ class CommonDaoTest {
 
         when(cursor.hasNext()).thenAnswer(inv -> iterator.hasNext());
         when(cursor.next()).thenAnswer(inv -> iterator.next());
+        // streams over the cursor drain it through the default Iterator.forEachRemaining
+        doCallRealMethod().when(cursor).forEachRemaining(any());
         doNothing().when(cursor).close();
 
         return cursor;
@@ -429,6 +991,79 @@ class CommonDaoTest {
         verify(cursor).close();
     }
 
+    @Test
+    void findBySpecification_ExplainRunsAfterCallerReturns() throws Exception {
+        // Arrange
+        ExplainRegistry registry = new ExplainRegistry();
+        dao.enableExplainCapture(ExplainOptions.firstRunPerShape(), registry);
+        when(mongoCollection.getCodecRegistry()).thenReturn(MongoClientSettings.getDefaultCodecRegistry());
+        LimitSpecification specification = mock(LimitSpecification.class);
+        Bson filter = Filters.eq("name", "Name1");
+        when(specification.filter()).thenReturn(filter);
+        when(specification.collation()).thenReturn(Optional.empty());
+
+        FindIterable<TestEntity> findIterable = mock(FindIterable.class);
+        MongoCursor<TestEntity> cursor = mockCursorFor(new TestEntity("id1", "Name1"));
+        when(mongoCollection.find(filter)).thenReturn(findIterable);
+        when(findIterable.sort(any())).thenReturn(findIterable);
+        when(findIterable.limit(anyInt())).thenReturn(findIterable);
+        when(findIterable.skip(anyInt())).thenReturn(findIterable);
+        when(findIterable.iterator()).thenReturn(cursor);
+        CountDownLatch explainReleased = new CountDownLatch(1);
+        when(findIterable.explain(ExplainVerbosity.EXECUTION_STATS)).thenAnswer(inv -> {
+            explainReleased.await(5, TimeUnit.SECONDS);
+            return Document.parse("{queryPlanner: {winningPlan: {stage: 'COLLSCAN'}}}");
+        });
+
+        // Act
+        List<TestEntity> result = dao.findBySpecification(specification);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertTrue(registry.all().isEmpty());
+        explainReleased.countDown();
+        verify(findIterable, timeout(5000)).explain(ExplainVerbosity.EXECUTION_STATS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.all().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("COLLSCAN"), registry.all().getFirst().getStages());
+    }
+
+    @Test
+    void testFindBySpecification_WithProjection() {
+        // Arrange
+        LimitSpecification specification = mock(LimitSpecification.class);
+        Bson filter = mock(Bson.class);
+        Bson sort = mock(Bson.class);
+        when(specification.filter()).thenReturn(filter);
+        when(specification.sort()).thenReturn(sort);
+        when(specification.getLimit()).thenReturn(10);
+        when(specification.getSkip()).thenReturn(0);
+        when(specification.collation()).thenReturn(Optional.empty());
+
+        TestEntity partial = new TestEntity("id1", "Name1");
+        FindIterable<TestEntity> findIterable = mock(FindIterable.class);
+        when(mongoCollection.find(filter)).thenReturn(findIterable);
+        when(findIterable.sort(sort)).thenReturn(findIterable);
+        when(findIterable.limit(10)).thenReturn(findIterable);
+        when(findIterable.skip(0)).thenReturn(findIterable);
+        when(findIterable.projection(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.into(any(List.class))).thenAnswer(inv -> {
+            List<TestEntity> target = inv.getArgument(0);
+            target.add(partial);
+            return target;
+        });
+
+        // Act
+        List<TestEntity> result = dao.findBySpecification(specification, Projection.include("name"));
+
+        // Assert
+        assertEquals(List.of(partial), result);
+        verify(findIterable).projection(argThat(bson ->
+                bson.toBsonDocument().equals(org.bson.BsonDocument.parse("{\"_id\": 1, \"name\": 1}"))));
+    }
+
     @Test
     void testFindSingleBySpecification_Found() {
         // Arrange
@@ -584,6 +1219,192 @@ class CommonDaoTest {
         verify(cursor).close();
     }
 
+    @Test
+    void testForEachEntity_WithCursorOptions() {
+        // Arrange
+        TestEntity entity1 = new TestEntity("id1", "Name1");
+        MongoCursor<TestEntity> cursor = mockCursorFor(entity1);
+
+        FindIterable<TestEntity> findIterable = mock(FindIterable.class);
+        when(mongoCollection.find()).thenReturn(findIterable);
+        when(findIterable.batchSize(250)).thenReturn(findIterable);
+        when(findIterable.noCursorTimeout(true)).thenReturn(findIterable);
+        when(findIterable.iterator()).thenReturn(cursor);
+
+        AtomicInteger counter = new AtomicInteger(0);
+
+        // Act
+        dao.forEachEntity(entity -> counter.incrementAndGet(),
+                CursorOptions.ofBatchSize(250).withNoCursorTimeout(true));
+
+        // Assert
+        assertEquals(1, counter.get());
+        verify(findIterable).batchSize(250);
+        verify(findIterable).noCursorTimeout(true);
+        verify(cursor).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamAggregation_AppliesOptionsAndClosesCursor() {
+        // Arrange
+        List<Bson> pipeline = List.of(Aggregates.match(Filters.eq("name", "Name1")));
+        MongoCursor<TestEntity> cursor = mockCursorFor(new TestEntity("id1", "Name1"));
+        AggregateIterable<TestEntity> aggregation = mock(AggregateIterable.class);
+        when(mongoCollection.aggregate(pipeline, TestEntity.class)).thenReturn(aggregation);
+        when(aggregation.batchSize(100)).thenReturn(aggregation);
+        when(aggregation.allowDiskUse(true)).thenReturn(aggregation);
+        when(aggregation.maxTime(5000L, TimeUnit.MILLISECONDS)).thenReturn(aggregation);
+        when(aggregation.iterator()).thenReturn(cursor);
+        AggregationOptions options = AggregationOptions.defaults()
+                .withBatchSize(100)
+                .withAllowDiskUse(true)
+                .withMaxTime(Duration.ofSeconds(5));
+
+        // Act
+        List<String> names;
+        try (Stream<TestEntity> results = dao.streamAggregation(pipeline, TestEntity.class, options)) {
+            names = results.map(TestEntity::getName).collect(Collectors.toList());
+        }
+
+        // Assert
+        assertEquals(List.of("Name1"), names);
+        verify(aggregation).batchSize(100);
+        verify(aggregation).allowDiskUse(true);
+        verify(aggregation).maxTime(5000L, TimeUnit.MILLISECONDS);
+        verify(cursor, atLeastOnce()).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void runAggregation_ReusesCachedRawCollection() {
+        // Arrange
+        List<Bson> pipeline = List.of(Aggregates.group("$name", Accumulators.sum("count", 1)));
+        AggregateIterable<Document> aggregation = mock(AggregateIterable.class);
+        when(rawCollection.aggregate(pipeline)).thenReturn(aggregation);
+        when(aggregation.into(any())).thenAnswer(inv -> {
+            List<Document> target = inv.getArgument(0);
+            target.add(new Document("_id", "Name1").append("count", 2));
+            return target;
+        });
+
+        // Act
+        dao.runAggregation(pipeline);
+        List<Document> result = dao.runAggregation(pipeline);
+
+        // Assert
+        assertEquals(2, result.getFirst().getInteger("count"));
+        // Коллекция получена один раз в конструкторе, а не на каждый вызов
+        verify(database, times(1)).getCollection(anyString());
+    }
+
+    @Test
+    void parallelForEach_VisitsEveryIdRange() {
+        // Arrange
+        mockSampledIds(new BsonString("id2"), new BsonString("id3"));
+        // stubbed up front: the ranges are read on worker threads, where stubbing is not safe
+        FindIterable<TestEntity> firstRange = findIterableOf(new TestEntity("id1", "Name"));
+        FindIterable<TestEntity> secondRange = findIterableOf(new TestEntity("id2", "Name"));
+        FindIterable<TestEntity> thirdRange = findIterableOf(new TestEntity("id3", "Name"));
+        when(mongoCollection.find(any(Bson.class))).thenReturn(firstRange, secondRange, thirdRange);
+        Set<String> visited = ConcurrentHashMap.newKeySet();
+
+        // Act
+        dao.parallelForEach(entity -> visited.add(entity.getId()), 2);
+
+        // Assert: boundaries id2 and id3 give three ranges
+        assertEquals(Set.of("id1", "id2", "id3"), visited);
+        verify(mongoCollection, times(3)).find(any(Bson.class));
+    }
+
+    @Test
+    void parallelForEach_RethrowsFirstConsumerFailure() {
+        // Arrange
+        mockSampledIds(new BsonString("id2"));
+        FindIterable<TestEntity> firstRange = findIterableOf(new TestEntity("id1", "Name"));
+        FindIterable<TestEntity> secondRange = findIterableOf(new TestEntity("id2", "Name"));
+        when(mongoCollection.find(any(Bson.class))).thenReturn(firstRange, secondRange);
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> dao.parallelForEach(entity -> {
+                    throw new IllegalStateException("consumer failed");
+                }, 2));
+        assertEquals("consumer failed", exception.getMessage());
+    }
+
+    @Test
+    void storedIdOf_EncodesOnlyTheFirstEntity() {
+        // Arrange
+        when(mongoCollection.getCodecRegistry()).thenReturn(testCodecRegistry());
+
+        // Act
+        BsonValue first = dao.storedIdOf(new TestEntity("id1", "Name1"));
+        BsonValue second = dao.storedIdOf(new TestEntity("id2", "Name2"));
+
+        // Assert: the id type is learned once, later ids are converted without encoding the entity
+        assertEquals(new BsonString("id1"), first);
+        assertEquals(new BsonString("id2"), second);
+        verify(mongoCollection, times(1)).getCodecRegistry();
+    }
+
+    @SuppressWarnings("unchecked")
+    private FindIterable<TestEntity> findIterableOf(TestEntity... entities) {
+        MongoCursor<TestEntity> cursor = mockCursorFor(entities);
+        FindIterable<TestEntity> findIterable = mock(FindIterable.class);
+        when(findIterable.sort(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.iterator()).thenReturn(cursor);
+        return findIterable;
+    }
+
+    private void mockSampledIds(BsonValue... ids) {
+        AggregateIterable<BsonDocument> aggregateIterable = mock(AggregateIterable.class);
+        MongoIterable<BsonValue> sampledIds = mock(MongoIterable.class);
+        when(mongoCollection.aggregate(anyList(), eq(BsonDocument.class))).thenReturn(aggregateIterable);
+        when(aggregateIterable.map(any())).thenReturn((MongoIterable) sampledIds);
+        when(sampledIds.into(any())).thenAnswer(inv -> {
+            List<BsonValue> target = inv.getArgument(0);
+            target.addAll(List.of(ids));
+            return target;
+        });
+    }
+
+    @Test
+    void testStreamBySpecification_ClosesCursorWithStream() {
+        // Arrange
+        LimitSpecification specification = mock(LimitSpecification.class);
+        Bson filter = mock(Bson.class);
+        Bson sort = mock(Bson.class);
+        when(specification.filter()).thenReturn(filter);
+        when(specification.sort()).thenReturn(sort);
+        when(specification.getLimit()).thenReturn(0);
+        when(specification.getSkip()).thenReturn(0);
+        when(specification.collation()).thenReturn(Optional.empty());
+
+        TestEntity entity1 = new TestEntity("id1", "Name1");
+        TestEntity entity2 = new TestEntity("id2", "Name2");
+        MongoCursor<TestEntity> cursor = mockCursorFor(entity1, entity2);
+
+        FindIterable<TestEntity> findIterable = mock(FindIterable.class);
+        when(mongoCollection.find(filter)).thenReturn(findIterable);
+        when(findIterable.sort(sort)).thenReturn(findIterable);
+        when(findIterable.limit(0)).thenReturn(findIterable);
+        when(findIterable.skip(0)).thenReturn(findIterable);
+        when(findIterable.batchSize(100)).thenReturn(findIterable);
+        when(findIterable.iterator()).thenReturn(cursor);
+
+        // Act
+        List<String> ids;
+        try (Stream<TestEntity> stream = dao.streamBySpecification(specification, CursorOptions.ofBatchSize(100))) {
+            ids = stream.map(TestEntity::getId).collect(Collectors.toList());
+        }
+
+        // Assert
+        assertEquals(List.of("id1", "id2"), ids);
+        verify(findIterable).batchSize(100);
+        verify(cursor, atLeastOnce()).close();
+    }
+
     @Test
     void testUpdate_WithNullCreatedAt() {
         // Arrange
@@ -593,7 +1414,6 @@ class CommonDaoTest {
 
         UpdateResult updateResult = mock(UpdateResult.class);
         when(updateResult.getModifiedCount()).thenReturn(1L);
-        when(mongoCollection.findOneById("test-id")).thenReturn(entity);
         when(mongoCollection.replaceOne(any(), eq(entity))).thenReturn(updateResult);
 
         // Act
@@ -621,17 +1441,15 @@ class CommonDaoTest {
         UpdateResult fallbackResult = mock(UpdateResult.class);
         when(fallbackResult.getModifiedCount()).thenReturn(1L); // fallback успешен
 
-        when(mongoCollection.findOneById("test-id")).thenReturn(entity);
-
         // Первый replaceOne — должен содержать "version" в фильтре
         when(mongoCollection.replaceOne(
-                argThat(bson -> bson != null && bson.toBsonDocument().toJson().contains("version")),
+                argThat(bson -> bson != null && !bson.toBsonDocument().toJson().contains("$exists")),
                 eq(entity))
         ).thenReturn(versionedResult);
 
-        // Fallback — без условия по version
+        // Fallback — только для документов без поля version
         when(mongoCollection.replaceOne(
-                argThat(bson -> bson != null && !bson.toBsonDocument().toJson().contains("version")),
+                argThat(bson -> bson != null && bson.toBsonDocument().toJson().contains("$exists")),
                 eq(entity))
         ).thenReturn(fallbackResult);
 
@@ -660,18 +1478,18 @@ class CommonDaoTest {
         UpdateResult fallbackResult = mock(UpdateResult.class);
         when(fallbackResult.getModifiedCount()).thenReturn(0L); // fallback тоже не сработал
 
-        when(mongoCollection.findOneById("test-id")).thenReturn(entity);
-
         when(mongoCollection.replaceOne(
-                argThat(bson -> bson != null && bson.toBsonDocument().toJson().contains("version")),
+                argThat(bson -> bson != null && !bson.toBsonDocument().toJson().contains("$exists")),
                 eq(entity))
         ).thenReturn(versionedResult);
 
         when(mongoCollection.replaceOne(
-                argThat(bson -> bson != null && !bson.toBsonDocument().toJson().contains("version")),
+                argThat(bson -> bson != null && bson.toBsonDocument().toJson().contains("$exists")),
                 eq(entity))
         ).thenReturn(fallbackResult);
 
+        mockIdProbe(null);
+
         // Act & Assert
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () -> dao.update(entity));
         assertTrue(exception.getMessage().contains("test-id"));
@@ -695,9 +1513,196 @@ class CommonDaoTest {
         verify(mongoCollection).countDocuments(filter);
     }
 
+    @Test
+    void countBySpecification_CountCacheServesRepeatsUntilWrite() {
+        // Arrange
+        dao.enableCountCache(10, Duration.ofMinutes(1));
+        when(mongoCollection.getCodecRegistry()).thenReturn(MongoClientSettings.getDefaultCodecRegistry());
+        LimitSpecification specification = mock(LimitSpecification.class);
+        Bson filter = Filters.eq("name", "Name1");
+        when(specification.filter()).thenReturn(filter);
+        when(mongoCollection.countDocuments(filter)).thenReturn(5L, 6L);
+
+        // Act
+        long first = dao.countBySpecification(specification);
+        long cached = dao.countBySpecification(specification);
+        dao.insert(new TestEntity("new-id", "Name1"));
+        long afterInsert = dao.countBySpecification(specification);
+
+        // Assert
+        assertEquals(5L, first);
+        assertEquals(5L, cached);
+        assertEquals(6L, afterInsert);
+        verify(mongoCollection, times(2)).countDocuments(filter);
+        assertEquals(1L, dao.getCountCacheStats().orElseThrow().getHits());
+    }
+
+    @Test
+    void countBySpecification_CountRacingWithWriteIsNotCached() {
+        // Arrange
+        dao.enableCountCache(10, Duration.ofMinutes(1));
+        when(mongoCollection.getCodecRegistry()).thenReturn(MongoClientSettings.getDefaultCodecRegistry());
+        LimitSpecification specification = mock(LimitSpecification.class);
+        Bson filter = Filters.eq("name", "Name1");
+        when(specification.filter()).thenReturn(filter);
+        TestEntity inserted = new TestEntity("new-id", "Name1");
+        when(mongoCollection.countDocuments(filter))
+                .thenAnswer(invocation -> {
+                    dao.insert(inserted);
+                    return 5L;
+                })
+                .thenReturn(6L);
+
+        // Act
+        long racing = dao.countBySpecification(specification);
+        long next = dao.countBySpecification(specification);
+
+        // Assert
+        assertEquals(5L, racing);
+        assertEquals(6L, next);
+        verify(mongoCollection, times(2)).countDocuments(filter);
+    }
+
+    @Test
+    void countBySpecification_CountCacheKeepsSecondaryCountsApartFromPrimary() {
+        // Arrange
+        dao.enableCountCache(10, Duration.ofMinutes(1));
+        when(mongoCollection.getCodecRegistry()).thenReturn(MongoClientSettings.getDefaultCodecRegistry());
+        JacksonMongoCollection<TestEntity> secondaryCollection = mock(JacksonMongoCollection.class);
+        when(mongoCollection.withReadPreference(ReadPreference.secondaryPreferred())).thenReturn(secondaryCollection);
+        Bson filter = Filters.eq("name", "Name1");
+        LimitSpecification secondarySpecification = mock(LimitSpecification.class);
+        when(secondarySpecification.filter()).thenReturn(filter);
+        when(secondarySpecification.readOptions()).thenReturn(Optional.of(
+                ReadOptions.defaults().withReadPreference(ReadPreference.secondaryPreferred())));
+        LimitSpecification primarySpecification = mock(LimitSpecification.class);
+        when(primarySpecification.filter()).thenReturn(filter);
+        when(secondaryCollection.countDocuments(filter)).thenReturn(4L);
+        when(mongoCollection.countDocuments(filter)).thenReturn(5L);
+
+        // Act
+        long secondary = dao.countBySpecification(secondarySpecification);
+        long primary = dao.countBySpecification(primarySpecification);
+        long secondaryAgain = dao.countBySpecification(secondarySpecification);
+
+        // Assert
+        assertEquals(4L, secondary);
+        assertEquals(5L, primary);
+        assertEquals(4L, secondaryAgain);
+        verify(secondaryCollection, times(1)).countDocuments(filter);
+        verify(mongoCollection, times(1)).countDocuments(filter);
+    }
+
+    @Test
+    void findBySpecification_ResultCacheServesRepeatsUntilWrite() {
+        // Arrange
+        dao.enableSpecificationCache(NameSpecification.class, 10, Duration.ofMinutes(1));
+        FindIterable<TestEntity> findIterable = mock(FindIterable.class);
+        when(mongoCollection.find(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.sort(any())).thenReturn(findIterable);
+        when(findIterable.limit(anyInt())).thenReturn(findIterable);
+        when(findIterable.skip(anyInt())).thenReturn(findIterable);
+        MongoCursor<TestEntity> firstCursor = mockCursorFor(new TestEntity("id1", "Name1"));
+        MongoCursor<TestEntity> secondCursor = mockCursorFor(new TestEntity("id1", "Name1"));
+        when(findIterable.iterator()).thenReturn(firstCursor, secondCursor);
+
+        // Act
+        List<TestEntity> first = dao.findBySpecification(new NameSpecification("Name1"));
+        first.getFirst().setName("mutated by caller");
+        List<TestEntity> cached = dao.findBySpecification(new NameSpecification("Name1"));
+        dao.insert(new TestEntity("new-id", "Name1"));
+        dao.findBySpecification(new NameSpecification("Name1"));
+
+        // Assert
+        assertEquals("Name1", cached.getFirst().getName());
+        verify(mongoCollection, times(2)).find(any(Bson.class));
+        CacheStats stats = dao.getSpecificationCacheStats().get(NameSpecification.class);
+        assertEquals(1L, stats.getHits());
+        assertEquals(2L, stats.getMisses());
+        assertTrue(dao.hasLocalCache());
+    }
+
+    @Test
+    void countBySpecification_UsesReadPreferenceOfSpecification() {
+        // Arrange
+        JacksonMongoCollection<TestEntity> secondaryCollection = mock(JacksonMongoCollection.class);
+        when(mongoCollection.withReadPreference(ReadPreference.secondaryPreferred())).thenReturn(secondaryCollection);
+        LimitSpecification specification = mock(LimitSpecification.class);
+        Bson filter = Filters.eq("name", "Name1");
+        when(specification.filter()).thenReturn(filter);
+        when(specification.readOptions()).thenReturn(Optional.of(
+                ReadOptions.defaults().withReadPreference(ReadPreference.secondaryPreferred())));
+        when(secondaryCollection.countDocuments(filter)).thenReturn(7L);
+
+        // Act
+        long result = dao.countBySpecification(specification);
+
+        // Assert
+        assertEquals(7L, result);
+        verify(mongoCollection, never()).countDocuments(any(Bson.class));
+    }
+
+    @Test
+    void count_UsesEstimateWhenEnabled() {
+        // Arrange
+        dao.enableEstimatedUnfilteredCount();
+        when(mongoCollection.estimatedDocumentCount()).thenReturn(1000L);
+
+        // Act
+        long result = dao.count();
+
+        // Assert
+        assertEquals(1000L, result);
+        verify(mongoCollection, never()).countDocuments();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void existsBySpecification_StopsAtFirstMatch() {
+        // Arrange
+        LimitSpecification specification = mock(LimitSpecification.class);
+        Bson filter = Filters.eq("name", "Name1");
+        when(specification.filter()).thenReturn(filter);
+        FindIterable<TestEntity> findIterable = mock(FindIterable.class);
+        when(mongoCollection.find(filter)).thenReturn(findIterable);
+        when(findIterable.projection(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.limit(1)).thenReturn(findIterable);
+        when(findIterable.first()).thenReturn(new TestEntity("id1", null));
+
+        // Act & Assert
+        assertTrue(dao.existsBySpecification(specification));
+        verify(findIterable).limit(1);
+        verify(mongoCollection, never()).countDocuments(any(Bson.class));
+    }
+
     // Тестовая сущность для тестирования
+    static class NameSpecification extends LimitSpecification {
+        private final String name;
+
+        NameSpecification(String name) {
+            super(10);
+            this.name = name;
+        }
+
+        @Override
+        public Bson filter() {
+            return Filters.eq("name", name);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof NameSpecification other && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+
     @MongoCollection(name = "test_entity")
     static class TestEntity extends DbEntity {
+        @Id
         private String id;
         private String name;
 
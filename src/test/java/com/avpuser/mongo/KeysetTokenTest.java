@@ -0,0 +1,110 @@
+package com.avpuser.mongo;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetTokenTest {
+
+    @Test
+    void withIdTieBreaker_AppendsIdOnce() {
+        Map<String, Boolean> sortFields = new LinkedHashMap<>();
+        sortFields.put("status", true);
+        sortFields.put("createdAt", false);
+
+        Map<String, Boolean> keys = KeysetToken.withIdTieBreaker(sortFields);
+
+        assertEquals(List.of("status", "createdAt", "_id"), List.copyOf(keys.keySet()));
+        assertEquals(List.of("_id"), List.copyOf(KeysetToken.withIdTieBreaker(Map.of("_id", false)).keySet()));
+        assertFalse(KeysetToken.withIdTieBreaker(Map.of("_id", false)).get("_id"));
+    }
+
+    @Test
+    void encodeDecode_RoundTripsLastValues() {
+        Map<String, Boolean> keys = KeysetToken.withIdTieBreaker(Map.of("meta.rank", false));
+        BsonDocument last = new BsonDocument("_id", new BsonString("id-42"))
+                .append("meta", new BsonDocument("rank", new BsonInt64(7)));
+
+        String token = KeysetToken.encode(keys, last);
+        List<BsonValue> values = KeysetToken.decode(token, keys);
+
+        assertEquals(List.of(new BsonInt64(7), new BsonString("id-42")), values);
+    }
+
+    @Test
+    void decode_RejectsTokenForOtherSortKeys() {
+        Map<String, Boolean> keys = KeysetToken.withIdTieBreaker(Map.of("name", true));
+        String token = KeysetToken.encode(keys, new BsonDocument("_id", new BsonString("a"))
+                .append("name", new BsonString("n")));
+
+        Map<String, Boolean> otherKeys = KeysetToken.withIdTieBreaker(Map.of("createdAt", true));
+        assertThrows(IllegalArgumentException.class, () -> KeysetToken.decode(token, otherKeys));
+        assertThrows(IllegalArgumentException.class, () -> KeysetToken.decode("not a token", keys));
+    }
+
+    @Test
+    void decode_RejectsNonStringSortKey() {
+        Map<String, Boolean> keys = KeysetToken.withIdTieBreaker(Map.of());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> KeysetToken.decode(tokenOf("{\"f\": [1], \"v\": [\"a\"]}"), keys));
+
+        assertTrue(exception.getMessage().startsWith("Malformed continuation token"), exception.getMessage());
+    }
+
+    @Test
+    void decode_RejectsMissingValues() {
+        Map<String, Boolean> keys = KeysetToken.withIdTieBreaker(Map.of());
+
+        assertThrows(IllegalArgumentException.class, () -> KeysetToken.decode(tokenOf("{\"f\": [\"_id\"]}"), keys));
+    }
+
+    @Test
+    void decode_RejectsFewerValuesThanSortKeys() {
+        Map<String, Boolean> keys = KeysetToken.withIdTieBreaker(Map.of("name", true));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> KeysetToken.decode(tokenOf("{\"f\": [\"name\", \"_id\"], \"v\": [\"n\"]}"), keys));
+    }
+
+    @Test
+    void decode_RejectsOtherStructures() {
+        Map<String, Boolean> keys = KeysetToken.withIdTieBreaker(Map.of());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> KeysetToken.decode(tokenOf("{\"f\": \"_id\", \"v\": [\"a\"]}"), keys));
+        assertThrows(IllegalArgumentException.class,
+                () -> KeysetToken.decode(tokenOf("{\"f\": [\"_id\"], \"v\": \"a\"}"), keys));
+        assertThrows(IllegalArgumentException.class, () -> KeysetToken.decode(tokenOf("{}"), keys));
+        assertThrows(IllegalArgumentException.class, () -> KeysetToken.decode(tokenOf("[\"_id\"]"), keys));
+    }
+
+    @Test
+    void seekFilter_BuildsLexicographicRangeWithDirections() {
+        Map<String, Boolean> keys = new LinkedHashMap<>();
+        keys.put("score", false);
+        keys.put("_id", true);
+
+        BsonDocument filter = KeysetToken.seekFilter(keys, List.of(new BsonInt64(10), new BsonString("x")));
+
+        BsonDocument expected = BsonDocument.parse("{\"$or\": ["
+                + "{\"score\": {\"$lt\": {\"$numberLong\": \"10\"}}},"
+                + "{\"$and\": [{\"score\": {\"$eq\": {\"$numberLong\": \"10\"}}}, {\"_id\": {\"$gt\": \"x\"}}]}"
+                + "]}");
+        assertEquals(expected, filter);
+    }
+
+    private static String tokenOf(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,226 @@
+package com.avpuser.mongo;
+
+import com.avpuser.mongo.exception.VersionConflictException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WriteCoalescerTest {
+
+    static class Job extends DbEntity {
+
+        private String id;
+        private int progress;
+
+        Job() {
+        }
+
+        Job(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public int getProgress() {
+            return progress;
+        }
+
+        public void setProgress(int progress) {
+            this.progress = progress;
+        }
+    }
+
+    private CommonDao<Job> dao;
+    private WriteCoalescer<Job> coalescer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        dao = mock(CommonDao.class);
+        when(dao.getType()).thenReturn(Job.class);
+        when(dao.getCollectionName()).thenReturn("jobs");
+        when(dao.updateAll(any())).thenReturn(new BulkUpdateResult());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_MergesSubmitsForSameIdIntoOneWrite() {
+        // Arrange
+        coalescer = new WriteCoalescer<>(dao, WriteCoalescerOptions.defaults().withWindow(Duration.ofHours(1)));
+        Job first = new Job("j1");
+        first.setProgress(1);
+        Job latest = new Job("j1");
+        latest.setProgress(2);
+        Job other = new Job("j2");
+
+        // Act
+        coalescer.submit(first);
+        coalescer.submit(other);
+        coalescer.submit(latest);
+        coalescer.flush();
+
+        // Assert
+        ArgumentCaptor<Collection<Job>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(dao, times(1)).updateAll(written.capture());
+        List<Job> jobs = List.copyOf(written.getValue());
+        assertEquals(List.of("j1", "j2"), jobs.stream().map(Job::getId).toList());
+        assertEquals(2, jobs.getFirst().getProgress());
+        assertEquals(1, coalescer.getMergedCount());
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    @Test
+    void submit_WritesCopyAndReportsNewVersion() throws Exception {
+        // Arrange
+        coalescer = new WriteCoalescer<>(dao, WriteCoalescerOptions.defaults().withWindow(Duration.ofHours(1)));
+        List<Job> written = new ArrayList<>();
+        when(dao.updateAll(any())).thenAnswer(invocation -> {
+            BulkUpdateResult result = new BulkUpdateResult();
+            for (Job job : invocation.<Collection<Job>>getArgument(0)) {
+                written.add(job);
+                job.setVersion(job.getVersion() + 1);
+                result.getUpdatedIds().add(job.getId());
+            }
+            return result;
+        });
+        Job job = new Job("j1");
+        job.setVersion(4);
+        job.setProgress(10);
+
+        // Act
+        CompletableFuture<Long> first = coalescer.submit(job);
+        job.setProgress(20);
+        coalescer.flush();
+        CompletableFuture<Long> second = coalescer.submit(job);
+        coalescer.flush();
+
+        // Assert
+        assertEquals(5L, first.get());
+        assertEquals(10, written.get(0).getProgress());
+        assertNotSame(job, written.get(0));
+        assertEquals(4, job.getVersion());
+        // the caller's instance still carries version 4: it is written on top of version 5
+        assertEquals(6L, second.get());
+        assertEquals(20, written.get(1).getProgress());
+    }
+
+    @Test
+    void submit_FailsFutureOnConflict() {
+        // Arrange
+        coalescer = new WriteCoalescer<>(dao, WriteCoalescerOptions.defaults().withWindow(Duration.ofHours(1)));
+        BulkUpdateResult conflicted = new BulkUpdateResult();
+        conflicted.getConflictedIds().add("j1");
+        when(dao.updateAll(any())).thenReturn(conflicted);
+
+        // Act
+        CompletableFuture<Long> written = coalescer.submit(new Job("j1"));
+        coalescer.flush();
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, written::get);
+        assertInstanceOf(VersionConflictException.class, exception.getCause());
+    }
+
+    @Test
+    void submit_ThrowsWhenFullAndTimeoutElapsed() {
+        // Arrange
+        coalescer = new WriteCoalescer<>(dao, WriteCoalescerOptions.defaults()
+                .withWindow(Duration.ofHours(1))
+                .withMaxPending(1)
+                .withSubmitTimeout(Duration.ZERO));
+        coalescer.submit(new Job("j1"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> coalescer.submit(new Job("j2")));
+        assertDoesNotThrow(() -> coalescer.submit(new Job("j1")));
+    }
+
+    @Test
+    void submit_WaitsForBackgroundFlushWhenFull() {
+        // Arrange
+        coalescer = new WriteCoalescer<>(dao, WriteCoalescerOptions.defaults()
+                .withWindow(Duration.ofHours(1))
+                .withMaxPending(1)
+                .withSubmitTimeout(Duration.ofSeconds(5)));
+        coalescer.submit(new Job("j1"));
+
+        // Act
+        coalescer.submit(new Job("j2"));
+
+        // Assert
+        verify(dao, timeout(1000).times(1)).updateAll(any());
+        assertEquals(1, coalescer.getPendingCount());
+    }
+
+    @Test
+    void flush_KeepsEntitiesWhenWriteFailsTransiently() {
+        // Arrange
+        coalescer = new WriteCoalescer<>(dao, WriteCoalescerOptions.defaults().withWindow(Duration.ofHours(1)));
+        Job job = new Job("j1");
+        job.setVersion(4);
+        when(dao.updateAll(any()))
+                .thenThrow(new MongoSocketReadException("connection reset", new ServerAddress()))
+                .thenReturn(new BulkUpdateResult());
+        coalescer.submit(job);
+
+        // Act & Assert
+        assertThrows(MongoSocketReadException.class, () -> coalescer.flush());
+        assertEquals(1, coalescer.getPendingCount());
+        assertEquals(4, job.getVersion());
+
+        coalescer.close();
+        verify(dao, times(2)).updateAll(any());
+        assertEquals(0, coalescer.getPendingCount());
+        assertThrows(IllegalStateException.class, () -> coalescer.submit(job));
+    }
+
+    @Test
+    void flush_DropsBatchOnPermanentFailure() {
+        // Arrange
+        List<Job> deadLetters = new ArrayList<>();
+        coalescer = new WriteCoalescer<>(dao, WriteCoalescerOptions.defaults().withWindow(Duration.ofHours(1)),
+                null, (jobs, error) -> deadLetters.addAll(jobs));
+        MongoException validationError = new MongoException(121, "Document failed validation");
+        when(dao.updateAll(any())).thenThrow(validationError);
+
+        // Act
+        CompletableFuture<Long> written = coalescer.submit(new Job("j1"));
+        assertDoesNotThrow(() -> coalescer.flush());
+
+        // Assert
+        assertEquals(0, coalescer.getPendingCount());
+        assertEquals(1, coalescer.getFailedCount());
+        assertEquals(List.of("j1"), deadLetters.stream().map(Job::getId).toList());
+        ExecutionException exception = assertThrows(ExecutionException.class, written::get);
+        assertSame(validationError, exception.getCause());
+    }
+}
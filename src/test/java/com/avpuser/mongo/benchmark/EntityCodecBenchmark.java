@@ -0,0 +1,141 @@
+package com.avpuser.mongo.benchmark;
+
+import com.avpuser.mongo.DbEntity;
+import com.avpuser.mongo.typeconverter.EntityCodec;
+import com.avpuser.mongo.typeconverter.MongoObjectMapperFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.mongojack.Id;
+import org.mongojack.JacksonCodecRegistry;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Manual benchmark, not a test: surefire does not pick it up. Compares encode + decode of
+ * {@link EntityCodec} against MongoJack's Jackson codec for the same entity. Run {@link #main}
+ * with the test classpath, e.g. before and after changing either path:
+ * <pre>{@code
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.avpuser.mongo.benchmark.EntityCodecBenchmark
+ * }</pre>
+ */
+public class EntityCodecBenchmark {
+
+    private static final int WARM_UP = 200_000;
+    private static final int MEASURED = 1_000_000;
+
+    public static void main(String[] args) {
+        ObjectMapper mapper = MongoObjectMapperFactory.createObjectMapper();
+        Codec<BenchEntity> direct = EntityCodec.create(BenchEntity.class, mapper, null);
+        Codec<BenchEntity> jackson = new JacksonCodecRegistry(mapper,
+                MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.STANDARD)
+                .get(BenchEntity.class);
+
+        BenchEntity entity = BenchEntity.sample();
+
+        for (Codec<BenchEntity> codec : List.of(jackson, direct, jackson, direct)) {
+            run(codec, entity, WARM_UP);
+            long started = System.nanoTime();
+            run(codec, entity, MEASURED);
+            long elapsed = System.nanoTime() - started;
+            System.out.printf("%-20s %6d ns/op (encode + decode)%n",
+                    codec.getClass().getSimpleName(), elapsed / MEASURED);
+        }
+    }
+
+    private static void run(Codec<BenchEntity> codec, BenchEntity entity, int iterations) {
+        EncoderContext encoderContext = EncoderContext.builder().build();
+        DecoderContext decoderContext = DecoderContext.builder().build();
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            BsonDocument document = new BsonDocument();
+            codec.encode(new BsonDocumentWriter(document), entity, encoderContext);
+            sink += codec.decode(new BsonDocumentReader(document), decoderContext).getScore();
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /** Typical small entity: a few scalars, a date, a list and the {@link DbEntity} bookkeeping fields. */
+    public static class BenchEntity extends DbEntity {
+        @Id
+        private String id;
+        private String name;
+        private int score;
+        private boolean active;
+        private LocalDate birthDate;
+        private List<String> tags;
+
+        static BenchEntity sample() {
+            BenchEntity entity = new BenchEntity();
+            entity.setId("bench-1");
+            entity.setName("Benchmark entity");
+            entity.setScore(7);
+            entity.setActive(true);
+            entity.setBirthDate(LocalDate.of(2000, 1, 1));
+            entity.setTags(List.of("x", "y", "z"));
+            entity.setCreatedAt(Instant.now());
+            entity.setUpdatedAt(Instant.now());
+            return entity;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public void setScore(int score) {
+            this.score = score;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public LocalDate getBirthDate() {
+            return birthDate;
+        }
+
+        public void setBirthDate(LocalDate birthDate) {
+            this.birthDate = birthDate;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.avpuser.mongo.benchmark;
+
+import com.avpuser.mongo.benchmark.EntityCodecBenchmark.BenchEntity;
+import com.avpuser.mongo.typeconverter.MongoObjectMapperFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.mongojack.JacksonCodecRegistry;
+
+import java.util.List;
+
+/**
+ * Manual benchmark, not a test: surefire does not pick it up. Compares MongoJack encode and
+ * decode of the same entity with the plain shared mapper configuration and with Blackbird
+ * accessors, as enabled by {@link MongoObjectMapperFactory#enableBytecodeAccessors()}. Run like
+ * {@link EntityCodecBenchmark}:
+ * <pre>{@code
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.avpuser.mongo.benchmark.ObjectMapperBenchmark
+ * }</pre>
+ */
+public class ObjectMapperBenchmark {
+
+    private static final int WARM_UP = 200_000;
+    private static final int MEASURED = 1_000_000;
+
+    public static void main(String[] args) {
+        ObjectMapper reflection = MongoObjectMapperFactory.createObjectMapper();
+        // same configuration as the shared mapper after enableBytecodeAccessors()
+        ObjectMapper blackbird = MongoObjectMapperFactory.createObjectMapper().registerModule(new BlackbirdModule());
+
+        BenchEntity entity = BenchEntity.sample();
+        EncoderContext encoderContext = EncoderContext.builder().build();
+        DecoderContext decoderContext = DecoderContext.builder().build();
+
+        for (String name : List.of("reflection", "blackbird", "reflection", "blackbird")) {
+            Codec<BenchEntity> codec = codec(name.equals("blackbird") ? blackbird : reflection);
+            BsonDocument encoded = encode(codec, entity, encoderContext);
+
+            encodeLoop(codec, entity, encoderContext, WARM_UP);
+            long started = System.nanoTime();
+            encodeLoop(codec, entity, encoderContext, MEASURED);
+            long encodeNanos = (System.nanoTime() - started) / MEASURED;
+
+            decodeLoop(codec, encoded, decoderContext, WARM_UP);
+            started = System.nanoTime();
+            decodeLoop(codec, encoded, decoderContext, MEASURED);
+            long decodeNanos = (System.nanoTime() - started) / MEASURED;
+
+            System.out.printf("%-12s encode %5d ns/op, decode %5d ns/op%n", name, encodeNanos, decodeNanos);
+        }
+    }
+
+    private static Codec<BenchEntity> codec(ObjectMapper mapper) {
+        return new JacksonCodecRegistry(mapper, MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.STANDARD)
+                .get(BenchEntity.class);
+    }
+
+    private static BsonDocument encode(Codec<BenchEntity> codec, BenchEntity entity, EncoderContext context) {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), entity, context);
+        return document;
+    }
+
+    private static void encodeLoop(Codec<BenchEntity> codec, BenchEntity entity, EncoderContext context, int iterations) {
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += encode(codec, entity, context).size();
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void decodeLoop(Codec<BenchEntity> codec, BsonDocument document, DecoderContext context, int iterations) {
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += codec.decode(new BsonDocumentReader(document), context).getScore();
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+}
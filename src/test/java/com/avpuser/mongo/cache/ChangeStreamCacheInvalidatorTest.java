@@ -0,0 +1,146 @@
+package com.avpuser.mongo.cache;
+
+import com.avpuser.mongo.CommonDao;
+import com.avpuser.mongo.DbEntity;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChangeStreamCacheInvalidatorTest {
+
+    private LocalChangeEventSource eventSource;
+    private InMemoryResumeTokenStore tokenStore;
+    private CommonDao<DbEntity> cachedDao;
+    private CommonDao<DbEntity> uncachedDao;
+    private Map<Class<?>, CommonDao<? extends DbEntity>> allDaos;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        eventSource = new LocalChangeEventSource();
+        tokenStore = new InMemoryResumeTokenStore();
+        cachedDao = mock(CommonDao.class);
+        when(cachedDao.getCollectionName()).thenReturn("cached");
+        when(cachedDao.hasLocalCache()).thenReturn(true);
+        uncachedDao = mock(CommonDao.class);
+        when(uncachedDao.getCollectionName()).thenReturn("uncached");
+        allDaos = new LinkedHashMap<>();
+        allDaos.put(String.class, cachedDao);
+        allDaos.put(Integer.class, uncachedDao);
+    }
+
+    @Test
+    void updateAndDelete_InvalidateSingleEntity_InsertIsIgnored() {
+        ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos, eventSource, tokenStore, false);
+        invalidator.start();
+
+        eventSource.publish(EntityChangeEvent.of("cached", EntityChangeEvent.Type.INSERT, "id0"));
+        eventSource.publish(EntityChangeEvent.of("cached", EntityChangeEvent.Type.UPDATE, "id1"));
+        eventSource.publish(EntityChangeEvent.of("cached", EntityChangeEvent.Type.DELETE, "id2"));
+
+        verify(cachedDao, never()).invalidateCachedEntity("id0");
+        verify(cachedDao).invalidateCachedEntity("id1");
+        verify(cachedDao).invalidateCachedEntity("id2");
+        verify(cachedDao, never()).findById(anyString());
+    }
+
+    @Test
+    void collectionChanged_InvalidatesEverything() {
+        ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos, eventSource, tokenStore, false);
+        invalidator.start();
+
+        eventSource.publish(EntityChangeEvent.of("cached", EntityChangeEvent.Type.COLLECTION_CHANGED, null));
+
+        verify(cachedDao).invalidateCachedEntities();
+    }
+
+    @Test
+    void refreshOnUpdate_ReloadsEntity() {
+        ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos, eventSource, tokenStore, true);
+        invalidator.start();
+
+        eventSource.publish(EntityChangeEvent.of("cached", EntityChangeEvent.Type.REPLACE, "id1"));
+
+        verify(cachedDao).invalidateCachedEntity("id1");
+        verify(cachedDao).findById("id1");
+    }
+
+    @Test
+    void daoWithoutCache_IsNotWatched() {
+        ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos, eventSource, tokenStore, false);
+        invalidator.start();
+
+        eventSource.publish(EntityChangeEvent.of("uncached", EntityChangeEvent.Type.UPDATE, "id1"));
+
+        verify(uncachedDao, never()).invalidateCachedEntity(anyString());
+    }
+
+    @Test
+    void resumeToken_IsSavedAndUsedOnRestart() {
+        BsonDocument token = new BsonDocument("_data", new BsonString("826A"));
+        ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos, eventSource, tokenStore, false);
+        invalidator.start();
+
+        eventSource.publish(new EntityChangeEvent("cached", EntityChangeEvent.Type.UPDATE, "id1", token));
+        invalidator.close();
+
+        assertEquals(token, tokenStore.load("cached").orElseThrow());
+
+        ChangeEventSource restartedSource = mock(ChangeEventSource.class);
+        new ChangeStreamCacheInvalidator(allDaos, restartedSource, tokenStore, false).start();
+        verify(restartedSource).subscribe(eq("cached"), eq(token), any());
+    }
+
+    @Test
+    void resumeToken_IsSavedEveryNEventsAndOnCollectionChange() {
+        ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos, eventSource, tokenStore,
+                false, 3, Duration.ofHours(1));
+        invalidator.start();
+
+        eventSource.publish(new EntityChangeEvent("cached", EntityChangeEvent.Type.UPDATE, "id1", token("01")));
+        eventSource.publish(new EntityChangeEvent("cached", EntityChangeEvent.Type.UPDATE, "id2", token("02")));
+        assertTrue(tokenStore.load("cached").isEmpty());
+
+        eventSource.publish(new EntityChangeEvent("cached", EntityChangeEvent.Type.UPDATE, "id3", token("03")));
+        assertEquals(token("03"), tokenStore.load("cached").orElseThrow());
+
+        eventSource.publish(new EntityChangeEvent("cached", EntityChangeEvent.Type.COLLECTION_CHANGED, null, token("04")));
+        assertEquals(token("04"), tokenStore.load("cached").orElseThrow());
+    }
+
+    @Test
+    void resumeLost_ClearsTokenAndInvalidatesEverything() {
+        tokenStore.save("cached", token("01"));
+        ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos, eventSource, tokenStore, false);
+        invalidator.start();
+
+        eventSource.publish(EntityChangeEvent.of("cached", EntityChangeEvent.Type.RESUME_LOST, null));
+        invalidator.close();
+
+        verify(cachedDao).invalidateCachedEntities();
+        assertTrue(tokenStore.load("cached").isEmpty());
+    }
+
+    @Test
+    void close_StopsDelivery() {
+        ChangeStreamCacheInvalidator invalidator = new ChangeStreamCacheInvalidator(allDaos, eventSource, tokenStore, false);
+        invalidator.start();
+        invalidator.close();
+
+        eventSource.publish(EntityChangeEvent.of("cached", EntityChangeEvent.Type.UPDATE, "id1"));
+
+        verify(cachedDao, never()).invalidateCachedEntity(anyString());
+    }
+
+    private static BsonDocument token(String data) {
+        return new BsonDocument("_data", new BsonString(data));
+    }
+}
@@ -0,0 +1,109 @@
+package com.avpuser.mongo.cache;
+
+import com.avpuser.mongo.DbEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheTest {
+
+    private AtomicLong nanoTime;
+    private EntityCache<Item> cache;
+
+    @BeforeEach
+    void setUp() {
+        nanoTime = new AtomicLong(0);
+        BoundedTtlCache<String, Item> store = new BoundedTtlCache<>(2, Duration.ofSeconds(10), nanoTime::get);
+        cache = new EntityCache<>(store, Item::copy);
+    }
+
+    @Test
+    void get_ReturnsCopyOfCachedEntity() {
+        Item item = new Item("id1", "original", 1);
+        cache.put(item, cache.generation());
+        item.setName("mutated after put");
+
+        Item first = cache.get("id1").orElseThrow();
+        first.setName("mutated after get");
+
+        assertEquals("original", cache.get("id1").orElseThrow().getName());
+        assertEquals(2, cache.stats().getHits());
+    }
+
+    @Test
+    void put_IsDroppedWhenInvalidatedDuringRead() {
+        long generationAtRead = cache.generation();
+        cache.invalidate("id1"); // concurrent local write
+
+        cache.put(new Item("id1", "stale", 1), generationAtRead);
+
+        assertTrue(cache.get("id1").isEmpty());
+    }
+
+    @Test
+    void put_NeverReplacesNewerVersion() {
+        cache.put(new Item("id1", "v3", 3), cache.generation());
+        cache.put(new Item("id1", "v2", 2), cache.generation());
+
+        assertEquals("v3", cache.get("id1").orElseThrow().getName());
+    }
+
+    @Test
+    void entries_ExpireAfterTtlAndRespectSizeBound() {
+        cache.put(new Item("id1", "a", 1), cache.generation());
+        cache.put(new Item("id2", "b", 1), cache.generation());
+        cache.put(new Item("id3", "c", 1), cache.generation()); // вытесняет id1
+
+        assertTrue(cache.get("id1").isEmpty());
+        assertTrue(cache.get("id2").isPresent());
+
+        nanoTime.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertTrue(cache.get("id3").isEmpty());
+
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.getEvictions());
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    void invalidateAll_ClearsEverything() {
+        cache.put(new Item("id1", "a", 1), cache.generation());
+        cache.invalidateAll();
+
+        assertTrue(cache.get("id1").isEmpty());
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    static class Item extends DbEntity {
+        private final String id;
+        private String name;
+
+        Item(String id, String name, long version) {
+            this.id = id;
+            this.name = name;
+            setVersion(version);
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        void setName(String name) {
+            this.name = name;
+        }
+
+        Item copy() {
+            return new Item(id, name, getVersion());
+        }
+    }
+}
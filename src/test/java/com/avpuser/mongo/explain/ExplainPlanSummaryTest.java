@@ -0,0 +1,81 @@
+package com.avpuser.mongo.explain;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExplainPlanSummaryTest {
+
+    private static final QueryShape SHAPE = QueryShape.of("orders", "findBySpecification", new BsonDocument(), null);
+
+    @Test
+    void parse_FindWithCollectionScanAndInMemorySort() {
+        Document explain = Document.parse("""
+                {
+                  "queryPlanner": {
+                    "winningPlan": {
+                      "stage": "SORT",
+                      "inputStage": {"stage": "COLLSCAN", "direction": "forward"}
+                    }
+                  },
+                  "executionStats": {"nReturned": 5, "totalKeysExamined": 0, "totalDocsExamined": 10000}
+                }
+                """);
+
+        ExplainPlanSummary summary = parse(explain);
+
+        assertEquals(List.of("SORT", "COLLSCAN"), summary.getStages());
+        assertTrue(summary.isCollectionScan());
+        assertTrue(summary.isInMemorySort());
+        assertEquals(10000, summary.getDocsExamined());
+        assertEquals(5, summary.getReturned());
+    }
+
+    @Test
+    void parse_AggregateWithIndexScanInCursorStage() {
+        Document explain = Document.parse("""
+                {
+                  "stages": [
+                    {"$cursor": {
+                      "queryPlanner": {
+                        "winningPlan": {"queryPlan": {
+                          "stage": "FETCH",
+                          "inputStage": {"stage": "IXSCAN", "indexName": "status_1"}
+                        }}
+                      },
+                      "executionStats": {"nReturned": 3, "totalKeysExamined": 3, "totalDocsExamined": 3}
+                    }},
+                    {"$group": {"_id": {"$const": 1}, "n": {"$sum": {"$const": 1}}}}
+                  ]
+                }
+                """);
+
+        ExplainPlanSummary summary = parse(explain);
+
+        assertEquals(List.of("FETCH", "IXSCAN"), summary.getStages());
+        assertEquals(List.of("status_1"), summary.getIndexNames());
+        assertFalse(summary.hasWarnings());
+        assertEquals(3, summary.getKeysExamined());
+    }
+
+    @Test
+    void registry_ClaimsFirstRunOncePerShapeAndListsFlaggedPlans() {
+        ExplainRegistry registry = new ExplainRegistry();
+
+        assertTrue(registry.claimFirstRun(SHAPE));
+        assertFalse(registry.claimFirstRun(SHAPE));
+
+        registry.record(parse(Document.parse("{\"queryPlanner\": {\"winningPlan\": {\"stage\": \"COLLSCAN\"}}}")));
+        assertEquals(1, registry.flagged().size());
+        assertTrue(registry.get(SHAPE).isPresent());
+    }
+
+    private static ExplainPlanSummary parse(Document explain) {
+        return ExplainPlanSummary.parse(SHAPE, ExplainPlanSummary.Trigger.FIRST_RUN, 12, explain, Instant.EPOCH);
+    }
+}
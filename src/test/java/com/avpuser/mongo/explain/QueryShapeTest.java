@@ -0,0 +1,47 @@
+package com.avpuser.mongo.explain;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryShapeTest {
+
+    @Test
+    void queriesDifferingOnlyInValues_ShareShape() {
+        QueryShape first = shapeOf(Filters.and(Filters.eq("status", "NEW"), Filters.gt("age", 18)));
+        QueryShape second = shapeOf(Filters.and(Filters.eq("status", "DONE"), Filters.gt("age", 65)));
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void inOperand_CollapsesToSinglePlaceholder() {
+        QueryShape small = shapeOf(Filters.in("status", List.of("NEW")));
+        QueryShape large = shapeOf(Filters.in("status", List.of("NEW", "DONE", "FAILED")));
+
+        assertEquals(small, large);
+        assertEquals("{\"status\": {\"$in\": \"?\"}}", small.getFilter());
+    }
+
+    @Test
+    void differentFieldsOrSort_AreDifferentShapes() {
+        assertNotEquals(shapeOf(Filters.eq("status", "NEW")), shapeOf(Filters.eq("type", "NEW")));
+        assertNotEquals(
+                QueryShape.of("c", "find", new BsonDocument(), toDocument(Sorts.ascending("createdAt"))),
+                QueryShape.of("c", "find", new BsonDocument(), toDocument(Sorts.descending("createdAt"))));
+    }
+
+    private static QueryShape shapeOf(Bson filter) {
+        return QueryShape.of("collection", "find", toDocument(filter), null);
+    }
+
+    private static BsonDocument toDocument(Bson bson) {
+        return bson.toBsonDocument();
+    }
+}
@@ -0,0 +1,120 @@
+package com.avpuser.mongo.index;
+
+import com.avpuser.mongo.LimitSpecification;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexAdvisorTest {
+
+    @SpecificationCollection("orders")
+    static class OrdersByStatusSpecification extends LimitSpecification {
+
+        private final String status;
+        private final Instant createdAfter;
+
+        OrdersByStatusSpecification(String status, Instant createdAfter, int limit) {
+            super(limit);
+            this.status = status;
+            this.createdAfter = createdAfter;
+        }
+
+        @Override
+        public Bson filter() {
+            return Filters.and(Filters.eq("status", status), Filters.gt("createdAt", createdAfter));
+        }
+
+        @Override
+        public Bson sort() {
+            return Sorts.descending("createdAt");
+        }
+    }
+
+    @SpecificationCollection("orders")
+    static class OrdersByCustomerSpecification extends LimitSpecification {
+
+        private final String customerId;
+
+        OrdersByCustomerSpecification(String customerId) {
+            super(10);
+            this.customerId = customerId;
+        }
+
+        @Override
+        public Bson filter() {
+            return Filters.eq("customerId", customerId);
+        }
+
+        @Override
+        public Bson sort() {
+            return Sorts.ascending("total");
+        }
+    }
+
+    static class UnannotatedSpecification extends LimitSpecification {
+
+        UnannotatedSpecification() {
+            super(10);
+        }
+    }
+
+    @Test
+    void advise_ReportsCoverageSuggestionsAndSkippedClasses() {
+        // Arrange
+        List<IndexMeta> declared = List.of(
+                new IndexMeta("orders", Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("createdAt"))),
+                new IndexMeta("orders", Indexes.ascending("customerId")));
+        IndexAdvisor advisor = new IndexAdvisor(declared, null);
+
+        // Act
+        IndexAdviceReport report = advisor.advise(List.of(
+                OrdersByStatusSpecification.class, OrdersByCustomerSpecification.class, UnannotatedSpecification.class));
+
+        // Assert
+        IndexAdviceReport.ShapeFinding byStatus = findingFor(report, OrdersByStatusSpecification.class);
+        assertEquals(IndexAdviceReport.Coverage.COVERED, byStatus.getCoverage());
+        assertEquals("{\"status\": 1, \"createdAt\": -1}", byStatus.getBestIndex());
+
+        IndexAdviceReport.ShapeFinding byCustomer = findingFor(report, OrdersByCustomerSpecification.class);
+        assertEquals(IndexAdviceReport.Coverage.PARTIAL, byCustomer.getCoverage()); // sorts in memory
+        assertEquals("{\"customerId\": 1, \"total\": 1}", byCustomer.getSuggestedIndex());
+
+        assertEquals(List.of(UnannotatedSpecification.class.getName()), report.getSkippedSpecifications());
+    }
+
+    @Test
+    void advise_FlagsPrefixIndexesAsRedundantUnlessTheyChangeBehaviour() {
+        // Arrange
+        List<IndexMeta> declared = List.of(
+                new IndexMeta("orders", Indexes.ascending("status")),
+                new IndexMeta("orders", Indexes.ascending("customerId"), new IndexOptions().unique(true)),
+                new IndexMeta("orders", Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("createdAt"))),
+                new IndexMeta("orders", Indexes.compoundIndex(Indexes.ascending("customerId"), Indexes.ascending("total"))));
+        IndexAdvisor advisor = new IndexAdvisor(declared, null);
+
+        // Act
+        IndexAdviceReport report = advisor.advise(List.of());
+
+        // Assert
+        assertEquals(1, report.getRedundantIndexes().size());
+        IndexAdviceReport.RedundantIndex redundant = report.getRedundantIndexes().getFirst();
+        assertEquals("{\"status\": 1}", redundant.getIndex());
+        assertEquals("{\"status\": 1, \"createdAt\": -1}", redundant.getCoveredBy());
+        assertTrue(redundant.isDeclared());
+    }
+
+    private static IndexAdviceReport.ShapeFinding findingFor(IndexAdviceReport report, Class<?> specificationClass) {
+        return report.getFindings().stream()
+                .filter(finding -> finding.getSpecificationClass().equals(specificationClass.getName()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
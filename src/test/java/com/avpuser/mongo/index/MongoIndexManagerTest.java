@@ -0,0 +1,112 @@
+package com.avpuser.mongo.index;
+
+import com.mongodb.client.ListIndexesIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class MongoIndexManagerTest {
+
+    private MongoDatabase database;
+    private final Map<String, MongoCollection<Document>> collections = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        database = mock(MongoDatabase.class);
+        when(database.getCollection(anyString())).thenAnswer(invocation -> collections.get(invocation.<String>getArgument(0)));
+    }
+
+    @Test
+    void plan_SplitsDeclaredIndexesIntoMissingUnchangedAndDrifted() {
+        // Arrange
+        mockCollection("orders",
+                new Document("name", "_id_").append("key", new Document("_id", 1)),
+                new Document("name", "status_1").append("key", new Document("status", 1.0)),
+                new Document("name", "email_1").append("key", new Document("email", 1)));
+        IndexMeta status = new IndexMeta("orders", Indexes.ascending("status"));
+        IndexMeta email = new IndexMeta("orders", Indexes.ascending("email"), new IndexOptions().unique(true));
+        IndexMeta createdAt = new IndexMeta("orders", Indexes.descending("createdAt"));
+        MongoIndexManager manager = new MongoIndexManager(database, List.of(status, email, createdAt));
+
+        // Act
+        IndexPlan plan = manager.plan();
+
+        // Assert
+        assertEquals(List.of(status), plan.getUnchanged());
+        assertEquals(Map.of("orders", List.of(createdAt)), plan.getMissing());
+        assertEquals(1, plan.getDrifted().size());
+        assertEquals("email_1", plan.getDrifted().getFirst().getLiveIndexName());
+        assertEquals(List.of("unique: declared=true, live=false"), plan.getDrifted().getFirst().getDifferences());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_CreatesOnlyMissingIndexesInOneBatchPerCollection() {
+        // Arrange
+        MongoCollection<Document> orders = mockCollection("orders",
+                new Document("name", "status_1").append("key", new Document("status", 1)));
+        MongoCollection<Document> users = mockCollection("users");
+        when(orders.createIndexes(anyList())).thenReturn(List.of("createdAt_-1"));
+        when(users.createIndexes(anyList())).thenReturn(List.of("email_1", "name_1"));
+        MongoIndexManager manager = new MongoIndexManager(database, List.of(
+                new IndexMeta("orders", Indexes.ascending("status")),
+                new IndexMeta("orders", Indexes.descending("createdAt")),
+                new IndexMeta("users", Indexes.ascending("email")),
+                new IndexMeta("users", Indexes.ascending("name"))));
+
+        // Act
+        IndexReconciliationReport report = manager.reconcile();
+
+        // Assert
+        assertTrue(report.isSuccessful());
+        assertEquals(Map.of("orders", List.of("createdAt_-1"), "users", List.of("email_1", "name_1")), report.getCreated());
+        ArgumentCaptor<List<IndexModel>> usersModels = ArgumentCaptor.forClass(List.class);
+        verify(users).createIndexes(usersModels.capture());
+        assertEquals(2, usersModels.getValue().size());
+        verify(orders, never()).createIndex(any());
+    }
+
+    @Test
+    void reconcile_NothingMissing_CreatesNothing() {
+        // Arrange
+        MongoCollection<Document> orders = mockCollection("orders",
+                new Document("name", "status_1").append("key", new Document("status", 1)));
+        MongoIndexManager manager = new MongoIndexManager(database, List.of(new IndexMeta("orders", Indexes.ascending("status"))));
+
+        // Act
+        IndexReconciliationReport report = manager.reconcile();
+
+        // Assert
+        assertFalse(report.getPlan().hasChanges());
+        verify(orders, never()).createIndexes(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private MongoCollection<Document> mockCollection(String name, Document... liveIndexes) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        ListIndexesIterable<Document> listIndexes = mock(ListIndexesIterable.class);
+        when(collection.listIndexes()).thenReturn(listIndexes);
+        when(listIndexes.into(any())).thenAnswer(invocation -> {
+            List<Document> target = invocation.getArgument(0);
+            target.addAll(List.of(liveIndexes));
+            return target;
+        });
+        collections.put(name, collection);
+        return collection;
+    }
+}
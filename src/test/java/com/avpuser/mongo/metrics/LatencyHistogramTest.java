@@ -0,0 +1,40 @@
+package com.avpuser.mongo.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketBounds_CoverEveryValueWithinSixPercent() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1_000, 123_456, 10_000_000_000L, Long.MAX_VALUE}) {
+            long upperBound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+            assertTrue(upperBound >= value, "upper bound below value " + value);
+            assertTrue(upperBound - value <= value / 16, "bucket too wide for " + value);
+        }
+    }
+
+    @Test
+    void percentiles_FollowRecordedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertEquals(100, histogram.count());
+        assertEquals(100_000, histogram.maxMicros());
+        assertEquals(50_500, histogram.meanMicros(), 0.001);
+        assertEquals(50_000, histogram.percentileMicros(50), 50_000 / 16.0);
+        assertEquals(99_000, histogram.percentileMicros(99), 99_000 / 16.0);
+        assertEquals(100_000, histogram.percentileMicros(100));
+    }
+
+    @Test
+    void emptyHistogram_ReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.percentileMicros(99));
+        assertEquals(0, histogram.meanMicros());
+    }
+}
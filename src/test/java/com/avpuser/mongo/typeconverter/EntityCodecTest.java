@@ -0,0 +1,218 @@
+package com.avpuser.mongo.typeconverter;
+
+import com.avpuser.mongo.DbEntity;
+import com.avpuser.mongo.encryption.Encrypted;
+import com.avpuser.mongo.encryption.EncryptionKeyConfig;
+import com.avpuser.mongo.encryption.PiiEncryptionService;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.junit.jupiter.api.Test;
+import org.mongojack.Id;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCodecTest {
+
+    private static final String CONTEXT = "codec_test_v1:email";
+
+    @Test
+    void encode_WritesSameDocumentAsJacksonAndDecodesBack() {
+        // Arrange
+        ObjectMapper mapper = MongoObjectMapperFactory.createObjectMapper();
+        EntityCodec<PlainEntity> codec = EntityCodec.create(PlainEntity.class, mapper, null);
+        PlainEntity entity = new PlainEntity();
+        entity.setId("p-1");
+        entity.setName("Alice");
+        entity.setScore(42);
+        entity.setActive(true);
+        entity.setBirthDate(LocalDate.of(1990, 5, 17));
+        entity.setTags(List.of("a", "b"));
+        entity.setVersion(3);
+        entity.setCreatedAt(Instant.parse("2024-01-02T03:04:05.678Z"));
+
+        // Act
+        BsonDocument encoded = encode(codec, entity);
+        PlainEntity decoded = decode(codec, encoded);
+
+        // Assert
+        assertEquals(JacksonBsonConverter.toBsonValue(mapper, entity), encoded);
+        assertEquals("p-1", encoded.getString("_id").getValue());
+        assertEquals(entity, decoded);
+    }
+
+    @Test
+    void encode_EncryptsFieldAndComputesLookup() {
+        // Arrange
+        PiiEncryptionService service = new PiiEncryptionService(EncryptionKeyConfig.create(
+                "test-key", EncryptionKeyConfig.generateRandomAesKeyBase64(), Map.of(),
+                EncryptionKeyConfig.generateRandomHmacKeyBase64()));
+        ObjectMapper mapper = MongoObjectMapperFactory.createObjectMapper(service);
+        EntityCodec<EncryptedEntity> codec = EntityCodec.create(EncryptedEntity.class, mapper, service);
+        EncryptedEntity entity = new EncryptedEntity();
+        entity.setId("e-1");
+        entity.setEmail("alice@example.com");
+
+        // Act
+        BsonDocument encoded = encode(codec, entity);
+        EncryptedEntity decoded = decode(codec, encoded);
+
+        // Assert
+        assertNotEquals("alice@example.com", encoded.getString("email").getValue());
+        assertEquals(service.computeLookup("alice@example.com", CONTEXT), encoded.getString("emailLookup").getValue());
+        assertEquals("alice@example.com", decoded.getEmail());
+    }
+
+    @Test
+    void create_RejectsJsonCreator() {
+        // Act & Assert
+        assertThrows(CodecConfigurationException.class,
+                () -> EntityCodec.create(CreatorEntity.class, MongoObjectMapperFactory.createObjectMapper(), null));
+    }
+
+    private static <T> BsonDocument encode(EntityCodec<T> codec, T entity) {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+        return document;
+    }
+
+    private static <T> T decode(EntityCodec<T> codec, BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    static class PlainEntity extends DbEntity {
+        @Id
+        private String id;
+        private String name;
+        private int score;
+        private boolean active;
+        private LocalDate birthDate;
+        private List<String> tags;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public void setScore(int score) {
+            this.score = score;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public LocalDate getBirthDate() {
+            return birthDate;
+        }
+
+        public void setBirthDate(LocalDate birthDate) {
+            this.birthDate = birthDate;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PlainEntity other)) {
+                return false;
+            }
+            return getVersion() == other.getVersion()
+                    && Objects.equals(getCreatedAt(), other.getCreatedAt())
+                    && Objects.equals(getUpdatedAt(), other.getUpdatedAt())
+                    && Objects.equals(id, other.id) && Objects.equals(name, other.name)
+                    && score == other.score && active == other.active
+                    && Objects.equals(birthDate, other.birthDate) && Objects.equals(tags, other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, name);
+        }
+    }
+
+    static class EncryptedEntity extends DbEntity {
+        @Id
+        private String id;
+        @Encrypted(context = CONTEXT, lookupField = "emailLookup")
+        private String email;
+        private String emailLookup;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+
+        public String getEmailLookup() {
+            return emailLookup;
+        }
+
+        public void setEmailLookup(String emailLookup) {
+            this.emailLookup = emailLookup;
+        }
+    }
+
+    static class CreatorEntity extends DbEntity {
+        private final String id;
+
+        @JsonCreator
+        CreatorEntity(@JsonProperty("_id") String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+}
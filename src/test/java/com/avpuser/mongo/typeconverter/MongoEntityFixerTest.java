@@ -0,0 +1,144 @@
+package com.avpuser.mongo.typeconverter;
+
+import com.avpuser.mongo.BulkUpdateResult;
+import com.avpuser.mongo.CommonDao;
+import com.avpuser.mongo.CursorOptions;
+import com.avpuser.mongo.DbEntity;
+import com.avpuser.mongo.IdRange;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MongoEntityFixerTest {
+
+    static class Item extends DbEntity {
+
+        private final String id;
+
+        Item(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+
+    private CommonDao<DbEntity> dao;
+    private InMemoryEntityFixerCheckpointStore checkpointStore;
+    private MongoEntityFixer fixer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        dao = mock(CommonDao.class);
+        when(dao.getCollectionName()).thenReturn("items");
+        when(dao.storedIdOf(any())).thenAnswer(invocation -> new BsonString(invocation.<DbEntity>getArgument(0).getId()));
+        when(dao.updateAll(anyList())).thenAnswer(invocation -> {
+            BulkUpdateResult result = new BulkUpdateResult();
+            invocation.<List<DbEntity>>getArgument(0).forEach(entity -> result.getUpdatedIds().add(entity.getId()));
+            return result;
+        });
+        checkpointStore = new InMemoryEntityFixerCheckpointStore();
+        fixer = new MongoEntityFixer(Map.<Class<?>, CommonDao<? extends DbEntity>>of(Item.class, dao), checkpointStore);
+    }
+
+    @Test
+    void rewriteAllData_WritesRangesInBatchesAndCompletesCheckpoint() {
+        // Arrange
+        IdRange first = IdRange.of(null, new BsonString("m"));
+        IdRange second = IdRange.of(new BsonString("m"), null);
+        when(dao.splitIdRanges(2)).thenReturn(List.of(first, second));
+        when(dao.streamByIdRange(eq(first), any(CursorOptions.class)))
+                .thenAnswer(invocation -> Stream.of(new Item("a"), new Item("b"), new Item("c")));
+        when(dao.streamByIdRange(eq(second), any(CursorOptions.class)))
+                .thenAnswer(invocation -> Stream.of(new Item("x")));
+        EntityFixerOptions options = EntityFixerOptions.defaults().withPartitionsPerCollection(2).withBatchSize(2);
+
+        // Act
+        EntityFixReport report = fixer.rewriteAllData(options);
+
+        // Assert
+        assertTrue(report.isSuccessful());
+        assertEquals(4, report.getResults().get("items").getUpdatedCount());
+        verify(dao, times(3)).updateAll(anyList());
+        assertTrue(checkpointStore.load("items").orElseThrow().isCompleted());
+
+        // a second run finds the completed checkpoint and does nothing
+        EntityFixReport rerun = fixer.rewriteAllData(options);
+        assertEquals(List.of("items"), rerun.getSkipped());
+        verify(dao, times(1)).splitIdRanges(anyInt());
+    }
+
+    @Test
+    void rewriteAllData_ResumesFromCheckpointAfterFailure() {
+        // Arrange
+        IdRange range = IdRange.all();
+        when(dao.splitIdRanges(anyInt())).thenReturn(List.of(range));
+        when(dao.streamByIdRange(eq(range), any(CursorOptions.class)))
+                .thenAnswer(invocation -> Stream.of(new Item("a"), new Item("b"), new Item("c")));
+        IdRange remaining = range.resumeAfter(new BsonString("b"));
+        when(dao.streamByIdRange(eq(remaining), any(CursorOptions.class)))
+                .thenAnswer(invocation -> Stream.of(new Item("c")));
+        when(dao.updateAll(anyList()))
+                .thenAnswer(invocation -> {
+                    BulkUpdateResult result = new BulkUpdateResult();
+                    result.getUpdatedIds().addAll(List.of("a", "b"));
+                    return result;
+                })
+                .thenThrow(new IllegalStateException("connection reset"))
+                .thenAnswer(invocation -> {
+                    BulkUpdateResult result = new BulkUpdateResult();
+                    result.getUpdatedIds().add("c");
+                    return result;
+                });
+        EntityFixerOptions options = EntityFixerOptions.defaults().withBatchSize(2);
+
+        // Act
+        EntityFixReport failed = fixer.rewriteAllData(options);
+        EntityFixReport resumed = fixer.rewriteAllData(options);
+
+        // Assert
+        assertEquals(Map.of("items", "connection reset"), failed.getFailures());
+        assertTrue(resumed.isSuccessful());
+        assertEquals(1, resumed.getResults().get("items").getUpdatedCount());
+        verify(dao, times(1)).splitIdRanges(anyInt());
+        assertTrue(checkpointStore.load("items").orElseThrow().isCompleted());
+    }
+
+    @Test
+    void collectionFixResult_CountsEverythingButKeepsOnlyCappedIds() {
+        // Arrange
+        CollectionFixResult total = new CollectionFixResult();
+        BulkUpdateResult batch = new BulkUpdateResult();
+        batch.getUpdatedIds().addAll(List.of("u1", "u2"));
+        for (int i = 0; i < CollectionFixResult.MAX_REPORTED_IDS; i++) {
+            batch.getConflictedIds().add("c" + i);
+        }
+        batch.getMissingIds().add("m1");
+
+        // Act
+        total.add(batch);
+        total.add(batch);
+
+        // Assert
+        assertEquals(4, total.getUpdatedCount());
+        assertEquals(2L * CollectionFixResult.MAX_REPORTED_IDS, total.getConflictedCount());
+        assertEquals(CollectionFixResult.MAX_REPORTED_IDS, total.getConflictedIds().size());
+        assertEquals(2, total.getMissingCount());
+        assertEquals(List.of("m1", "m1"), total.getMissingIds());
+        assertFalse(total.isFullySuccessful());
+    }
+}
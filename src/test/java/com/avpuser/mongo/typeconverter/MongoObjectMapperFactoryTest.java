@@ -0,0 +1,40 @@
+package com.avpuser.mongo.typeconverter;
+
+import com.avpuser.mongo.encryption.EncryptionKeyConfig;
+import com.avpuser.mongo.encryption.PiiEncryptionService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoObjectMapperFactoryTest {
+
+    @Test
+    void sharedObjectMapper_IsSharedPerEncryptionService() {
+        // Arrange
+        PiiEncryptionService first = newService();
+        PiiEncryptionService second = newService();
+
+        // Act & Assert
+        assertSame(MongoObjectMapperFactory.sharedObjectMapper(null), MongoObjectMapperFactory.sharedObjectMapper(null));
+        assertSame(MongoObjectMapperFactory.sharedObjectMapper(first), MongoObjectMapperFactory.sharedObjectMapper(first));
+        assertNotSame(MongoObjectMapperFactory.sharedObjectMapper(first), MongoObjectMapperFactory.sharedObjectMapper(second));
+        assertNotSame(MongoObjectMapperFactory.sharedObjectMapper(null), MongoObjectMapperFactory.sharedObjectMapper(first));
+    }
+
+    @Test
+    void enableBytecodeAccessors_FailsOnceSharedMapperIsBuilt() {
+        // Arrange
+        MongoObjectMapperFactory.sharedObjectMapper(null);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, MongoObjectMapperFactory::enableBytecodeAccessors);
+    }
+
+    private static PiiEncryptionService newService() {
+        return new PiiEncryptionService(EncryptionKeyConfig.create(
+                "test-key", EncryptionKeyConfig.generateRandomAesKeyBase64(), Map.of(),
+                EncryptionKeyConfig.generateRandomHmacKeyBase64()));
+    }
+}